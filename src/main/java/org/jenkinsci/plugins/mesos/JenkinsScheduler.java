@@ -18,9 +18,7 @@ package org.jenkinsci.plugins.mesos;
 
 import com.cloudbees.plugins.credentials.common.StandardUsernamePasswordCredentials;
 import com.google.common.annotations.VisibleForTesting;
-import hudson.model.Computer;
 import hudson.model.Label;
-import hudson.model.Node;
 import hudson.util.Secret;
 import jenkins.model.Jenkins;
 import net.sf.json.JSONObject;
@@ -36,10 +34,14 @@ import org.jenkinsci.plugins.mesos.scheduling.*;
 
 import javax.annotation.Nonnull;
 import java.util.*;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
@@ -53,13 +55,29 @@ public abstract class JenkinsScheduler implements Scheduler {
 
   private static final double DEFAULT_NO_REQUESTS_DECLINE_OFFER_DURATION = TimeUnit.MINUTES.toSeconds(10);
   private static final double DEFAULT_FAILOVER_TIMEOUT = TimeUnit.DAYS.toSeconds(7);
+  private static final long SUPERVISION_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(5);
+  private static final long RELEASE_OFFERS_ON_STOP_TIMEOUT_SECONDS = 5;
+  /** requests arriving within this delay are placed on the held offers together */
+  private static final long HELD_OFFERS_MATCH_DELAY_MILLIS = 50;
 
   /** pending tasks/requests */
-  private BlockingQueue<Request> requests;
+  private PendingRequests requests;
   /** active tasks */
-  private Map<TaskID, Result> results;
+  private final TaskTable tasks;
   /** finished tasks */
-  private Set<TaskID> finishedTasks;
+  private final TaskTombstones finishedTasks;
+
+  /** owner of all state changes, see {@link SchedulerEventLoop} */
+  private final SchedulerEventLoop eventLoop;
+  private final ReviveCoalescer reviveCoalescer;
+  private final OfferPool offerPool;
+  /** hostname and attributes of the agents, across offer cycles */
+  private final AgentInfoCache agentInfoCache;
+  private final AtomicBoolean supervisionPending = new AtomicBoolean();
+  /** cancelled by Jenkins threads, applied on the event loop by the next cancel event or offer cycle */
+  private final Queue<Cancellation> cancellations = new ConcurrentLinkedQueue<>();
+  /** owned by the event loop */
+  private boolean heldOffersMatchPending;
 
   private String jenkinsMaster;
   private final String displayName;
@@ -78,9 +96,14 @@ public abstract class JenkinsScheduler implements Scheduler {
     this.mesosCloud = mesosCloud;
     this.displayName = displayName;
 
-    this.requests = new LinkedBlockingQueue<>();
-    this.results = new HashMap<>();
-    this.finishedTasks = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    this.requests = new PendingRequests();
+    this.tasks = new TaskTable();
+    this.finishedTasks = new TaskTombstones(AgentIdGenerator.forFramework(mesosCloud.getFrameworkName()));
+
+    this.eventLoop = new SchedulerEventLoop("Framework " + mesosCloud.getFrameworkName() + " event loop");
+    this.reviveCoalescer = new ReviveCoalescer(eventLoop, () -> driver, () -> getMesosCloud().getReviveDebounceMillis());
+    this.offerPool = new OfferPool(eventLoop, () -> getMesosCloud().getMaxHeldOffers(), () -> getMesosCloud().getOfferHoldMillis(), this::releaseHeldOffers);
+    this.agentInfoCache = new AgentInfoCache();
   }
 
   public static JenkinsScheduler createScheduler(String jenkinsMaster, MesosCloud mesosCloud) {
@@ -97,6 +120,7 @@ public abstract class JenkinsScheduler implements Scheduler {
     // This is to ensure that isRunning() returns true even when the driver is not yet inside run().
     // This is important because MesosCloud.provision() starts a new framework whenever isRunning() is false.
     running = true;
+    eventLoop.start();
     String targetUser = mesosCloud.getSlavesUser();
     String webUrl = Jenkins.get().getRootUrl();
     if (webUrl == null) webUrl = System.getenv("JENKINS_URL");
@@ -150,6 +174,7 @@ public abstract class JenkinsScheduler implements Scheduler {
         }
         driver = null;
         running = false;
+        eventLoop.stop();
         SUPERVISOR_LOCK.unlock();
       }
     }, "Framework " + mesosCloud.getFrameworkName() + " thread").start();
@@ -187,52 +212,92 @@ public abstract class JenkinsScheduler implements Scheduler {
   }
 
 
+  /**
+   * Asks for a supervision of the framework (see {@link #supervise()}), which runs on the event loop after
+   * {@link #SUPERVISION_DELAY_MILLIS}. Further requests until then are coalesced.
+   */
+  protected void requestSupervision() {
+    if (!mesosCloud.isOnDemandRegistration() || !supervisionPending.compareAndSet(false, true)) {
+      return;
+    }
+
+    eventLoop.schedule("supervise", this::supervise, SUPERVISION_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
   /**
    * Disconnect framework, if we don't have active mesos slaves. Also, make
    * sure JenkinsScheduler's request queue is empty.
+   *
+   * Pending requests and connected agents are checked by their counters first, the Jenkins nodes are only looked at
+   * if the framework might actually be disconnected.
    */
-  public static void supervise() {
+  private void supervise() {
+    supervisionPending.set(false);
+
+    if (!running) {
+      return;
+    }
+
+    int pendingTasks = requests.size();
+    long connectedTasks = tasks.count(TaskTable.State.CONNECTED);
+    if (pendingTasks > 0 || connectedTasks > 0) {
+      LOGGER.fine("Pending tasks: " + pendingTasks + " | Connected tasks: " + connectedTasks + ". Keeping the scheduler running.");
+      return;
+    }
+
     SUPERVISOR_LOCK.lock();
     try {
-      Collection<Mesos> clouds = Mesos.getAllClouds();
-      for (Mesos cloud : clouds) {
-        try {
-          JenkinsScheduler scheduler = (JenkinsScheduler) cloud.getScheduler();
-          if (scheduler != null) {
-            boolean pendingTasks = (scheduler.getNumberOfPendingTasks() > 0);
-            boolean activeSlaves = false;
-            boolean activeTasks = (scheduler.getNumberOfActiveTasks() > 0);
-            List<Node> slaveNodes = Jenkins.get().getNodes();
-            for (Node node : slaveNodes) {
-              if (node instanceof MesosSlave) {
-                activeSlaves = true;
-                break;
-              }
-            }
-            // If there are no active slaves, we should clear up results.
-            if (!activeSlaves) {
-              scheduler.clearResults();
-              activeTasks = false;
-            }
-            LOGGER.info("Active slaves: " + activeSlaves
-                    + " | Pending tasks: " + pendingTasks + " | Active tasks: " + activeTasks);
-            if (!activeTasks && !activeSlaves && !pendingTasks) {
-              LOGGER.info("No active tasks, or slaves or pending slave requests. Stopping the scheduler.");
-              cloud.stopScheduler();
-            }
-          } else {
-            LOGGER.info("Scheduler already stopped. NOOP.");
-          }
-        } catch (Exception e) {
-          LOGGER.info("Exception: " + e);
-        }
+      Mesos mesos = getMesosInstance();
+      if (mesos == null) {
+        LOGGER.info("Scheduler already stopped. NOOP.");
+        return;
+      }
+
+      boolean activeSlaves = hasMesosAgents(mesos);
+      boolean activeTasks = (tasks.size() > 0);
+      // If there are no active slaves, we should clear up results.
+      if (!activeSlaves) {
+        tasks.clear();
+        activeTasks = false;
+      }
+      LOGGER.info("Active slaves: " + activeSlaves
+              + " | Pending tasks: " + !requests.isEmpty() + " | Active tasks: " + activeTasks);
+      if (!activeSlaves && requests.isEmpty()) {
+        LOGGER.info("No active tasks, or slaves or pending slave requests. Stopping the scheduler.");
+        mesos.stopScheduler();
       }
+    } catch (Exception e) {
+      LOGGER.log(Level.WARNING, "Unable to supervise framework '" + mesosCloud.getFrameworkName() + "'", e);
     } finally {
       SUPERVISOR_LOCK.unlock();
     }
   }
 
-  public synchronized void stop() {
+  private Mesos getMesosInstance() {
+    for (Mesos mesos : Mesos.getAllClouds()) {
+      if (mesos.getScheduler() == this) {
+        return mesos;
+      }
+    }
+
+    return null;
+  }
+
+  private static boolean hasMesosAgents(Mesos mesos) {
+    for (MesosComputer mesosComputer : MesosSlaveRegistry.getInstance().getComputers()) {
+      MesosSlave mesosSlave = mesosComputer.getNode();
+      if (mesosSlave != null && mesosSlave.getMesosInstance() == mesos) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  public void stop() {
+    // while the driver still runs, the delayed events which would decline them are dropped with the event loop
+    releaseAllHeldOffers();
+
     SUPERVISOR_LOCK.lock();
     try {
       if (driver != null) {
@@ -243,15 +308,43 @@ public abstract class JenkinsScheduler implements Scheduler {
       }
     } finally {
       running = false;
+      eventLoop.stop();
       SUPERVISOR_LOCK.unlock();
     }
   }
 
-  public synchronized boolean isRunning() {
+  private void releaseAllHeldOffers() {
+    if (!eventLoop.isRunning()) {
+      return;
+    }
+
+    Future<Void> released = eventLoop.submit("release all held offers", offerPool::releaseAll);
+    try {
+      released.get(RELEASE_OFFERS_ON_STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException | TimeoutException | CancellationException e) {
+      LOGGER.log(Level.WARNING, "Unable to release held offers of framework '" + mesosCloud.getFrameworkName() + "'", e);
+    }
+  }
+
+  public boolean isRunning() {
     return running;
   }
 
-  public synchronized void requestJenkinsSlave(SlaveRequest slaveRequest, SlaveResult slaveResult) {
+  public Future<Void> requestJenkinsSlave(SlaveRequest slaveRequest, SlaveResult slaveResult) {
+    Future<Void> requested = eventLoop.submit("request " + slaveRequest.getSlave().getName(),
+            () -> requestJenkinsSlaveImpl(slaveRequest, slaveResult));
+
+    if (requested.isCancelled()) {
+      // the scheduler is stopped already, do not leave the launcher waiting for the agent
+      JenkinsSlave.ResultJenkinsSlave resultJenkinsSlave = new JenkinsSlave.ResultJenkinsSlave(slaveRequest.getSlave());
+      slaveResult.failed(resultJenkinsSlave, SlaveResult.FAILED_CAUSE.SLAVE_NEVER_SCHEDULED);
+    }
+    return requested;
+  }
+
+  private void requestJenkinsSlaveImpl(SlaveRequest slaveRequest, SlaveResult slaveResult) {
     LOGGER.info("Enqueuing jenkins slave request");
 
     Request request = new Request(slaveRequest, slaveResult);
@@ -267,54 +360,78 @@ public abstract class JenkinsScheduler implements Scheduler {
 
     enqueueRequest(request);
 
-    if (driver != null) {
-      // Ask mesos to send all offers, even those we declined earlier.
-      // See comment in resourceOffers() for further details.
-      // TODO: wait for lock to release (when declining offers), dont do this when not needed (no declined offers)?
-      driver.reviveOffers();
+    // Place the request on held offers soon, together with the other requests of a burst
+    requestHeldOffersMatch();
+
+    // Ask mesos to send all offers, even those we declined earlier (or suppressed).
+    // Revives of a burst of requests are coalesced into one.
+    reviveCoalescer.requestRevive();
+  }
+
+  /**
+   * Asks for an offer cycle over the held offers, which runs on the event loop after
+   * {@link #HELD_OFFERS_MATCH_DELAY_MILLIS}. Further requests until then are coalesced, so a burst of requests costs one
+   * cycle instead of one per request.
+   */
+  private void requestHeldOffersMatch() {
+    if (heldOffersMatchPending || offerPool.isEmpty()) {
+      return;
     }
+
+    heldOffersMatchPending = true;
+    eventLoop.schedule("match held offers", this::matchHeldOffers, HELD_OFFERS_MATCH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
   }
 
-  public synchronized void terminateJenkinsSlave(String name) {
+  private void matchHeldOffers() {
+    heldOffersMatchPending = false;
+
+    SchedulerDriver currentDriver = driver;
+    if (currentDriver == null || offerPool.isEmpty()) {
+      return;
+    }
+
+    resourceOffersImpl(currentDriver, offerPool.take());
+  }
+
+  public Future<Void> terminateJenkinsSlave(String name) {
+    return eventLoop.submit("terminate " + name, () -> terminateJenkinsSlaveImpl(name));
+  }
+
+  private void terminateJenkinsSlaveImpl(String name) {
     LOGGER.info("Terminating jenkins slave " + name);
 
     TaskID taskId = TaskID.newBuilder().setValue(name).build();
 
-    if (results.containsKey(taskId)) {
+    if (tasks.contains(name)) {
       LOGGER.info("Killing mesos task " + taskId);
       driver.killTask(taskId);
     } else {
       // This is handling the situation that a slave was provisioned but it never
       // got scheduled because of resource scarcity and jenkins later tries to remove
       // the offline slave but since it was not scheduled we have to remove it from
-      // the request queue. The method has been also synchronized because there is a race
-      // between this removal request from jenkins and a resource getting freed up in mesos
+      // the request queue. The method runs on the event loop (like resourceOffers) because there
+      // is a race between this removal request from jenkins and a resource getting freed up in mesos
       // resulting in scheduling the slave and resulting in orphaned task/slave not monitored
       // by Jenkins.
 
-      for (Request request : requests) {
-        String requestedSlaveName = request.getRequest().getSlave().getName();
-        if(StringUtils.equals(requestedSlaveName, name)) {
-          LOGGER.info("Removing enqueued mesos task " + name);
-          requests.remove(request);
-          // Also signal the Thread of the MesosComputerLauncher.launch() to exit from latch.await()
-          // Otherwise the Thread will stay in WAIT forever -> Leak!
-          JenkinsSlave.ResultJenkinsSlave resultJenkinsSlave =
-                  new JenkinsSlave.ResultJenkinsSlave(request.getRequest().getSlave());
-          request.getResult().failed(resultJenkinsSlave, SlaveResult.FAILED_CAUSE.SLAVE_NEVER_SCHEDULED);
-          return;
-        }
+      Request request = requests.remove(name);
+      if (request != null) {
+        LOGGER.info("Removing enqueued mesos task " + name);
+        // Also signal the Thread of the MesosComputerLauncher.launch() to exit from latch.await()
+        // Otherwise the Thread will stay in WAIT forever -> Leak!
+        JenkinsSlave.ResultJenkinsSlave resultJenkinsSlave =
+                new JenkinsSlave.ResultJenkinsSlave(request.getRequest().getSlave());
+        request.getResult().failed(resultJenkinsSlave, SlaveResult.FAILED_CAUSE.SLAVE_NEVER_SCHEDULED);
+        return;
       }
 
       LOGGER.warning("Asked to kill unknown mesos task " + taskId);
     }
 
     // Since this task is now running, we should not start this task up again at a later point in time
-    finishedTasks.add(taskId);
+    finishedTasks.add(name);
 
-    if (mesosCloud.isOnDemandRegistration()) {
-      supervise();
-    }
+    requestSupervision();
 
   }
 
@@ -332,6 +449,45 @@ public abstract class JenkinsScheduler implements Scheduler {
     driver.declineOffer(offer.getId(), filters);
   }
 
+  /**
+   * Stops receiving offers until new requests arrive, called when there is no demand.
+   */
+  protected void suppressOffers() {
+    reviveCoalescer.suppress();
+  }
+
+  /**
+   * Holds an unused offer for new requests, see {@link OfferPool}.
+   * @return true if the offer is held, false if it has to be declined
+   */
+  protected boolean holdOffer(Offer offer) {
+    return offerPool.hold(offer);
+  }
+
+  /**
+   * Takes the held offers for an offer cycle, still unused offers have to be held again or declined.
+   */
+  protected List<Offer> takeHeldOffers() {
+    return offerPool.take();
+  }
+
+  private void releaseHeldOffers(List<Offer> offers) {
+    SchedulerDriver currentDriver = driver;
+    if (currentDriver == null) {
+      return;
+    }
+
+    double refuseSeconds = requests.isEmpty() ? getNoRequestsDeclineOfferDuration() : 1;
+    Filters filters = Filters.newBuilder().setRefuseSeconds(refuseSeconds).build();
+    for (Offer offer : offers) {
+      try {
+        declineOffer(currentDriver, offer, filters);
+      } catch (Exception e) {
+        LOGGER.log(Level.SEVERE, "Unable to decline held offer '" + offer.getId().getValue() + "':", e);
+      }
+    }
+  }
+
   public void reconcileTask(String taskID) {
     TaskID id = TaskID.newBuilder().setValue(taskID).build();
     TaskStatus taskStatus = TaskStatus.newBuilder().setTaskId(id).setState(TaskState.TASK_LOST).build();
@@ -339,8 +495,8 @@ public abstract class JenkinsScheduler implements Scheduler {
   }
 
   public void reconcileAllTasks() {
-    for(TaskID task : results.keySet()) {
-      reconcileTask(task.getValue());
+    for(String taskId : tasks.getTaskIds()) {
+      reconcileTask(taskId);
     }
   }
 
@@ -355,9 +511,15 @@ public abstract class JenkinsScheduler implements Scheduler {
   }
 
   protected void launchMesosTasks(SchedulerDriver driver, List<Protos.OfferID> offerIds, Map<Protos.TaskInfo, Request> assignments, String hostname) {
+    launchMesosTasks(driver, offerIds, assignments, hostname, Protos.Filters.newBuilder().setRefuseSeconds(1).build());
+  }
+
+  /**
+   * @param filters filters for the resources of the offers which remain unused by the tasks
+   */
+  protected void launchMesosTasks(SchedulerDriver driver, List<Protos.OfferID> offerIds, Map<Protos.TaskInfo, Request> assignments, String hostname, Protos.Filters filters) {
     LOGGER.fine("Launching tasks: " + stringifyTaskIds(assignments.keySet()));
 
-    Protos.Filters filters = Protos.Filters.newBuilder().setRefuseSeconds(1).build();
     driver.launchTasks(offerIds, assignments.keySet(), filters);
 
     // "transition" to finished
@@ -395,23 +557,33 @@ public abstract class JenkinsScheduler implements Scheduler {
   @Override
   public void registered(SchedulerDriver driver, FrameworkID frameworkId, MasterInfo masterInfo) {
     LOGGER.info("Framework registered! ID = " + frameworkId.getValue());
+    eventLoop.submit("registered", () -> {
+      reviveCoalescer.reset();
+      offerPool.clear();
+    });
   }
 
   @Override
   public void reregistered(SchedulerDriver driver, MasterInfo masterInfo) {
     LOGGER.info("Framework re-registered");
+    eventLoop.submit("reregistered", () -> {
+      reviveCoalescer.reset();
+      offerPool.clear();
+    });
   }
 
   @Override
   public void disconnected(SchedulerDriver driver) {
     LOGGER.info("Framework disconnected!");
+    // offers are invalid now
+    eventLoop.submit("disconnected", offerPool::clear);
   }
 
   @Override
-  public synchronized void resourceOffers(SchedulerDriver driver, List<Offer> offers) {
+  public void resourceOffers(SchedulerDriver driver, List<Offer> offers) {
     LOGGER.fine("Received offers " + offers.size());
 
-    resourceOffersImpl(driver, offers);
+    eventLoop.submit("offers " + offers.size(), () -> resourceOffersImpl(driver, offers));
   }
 
   protected abstract void resourceOffersImpl(SchedulerDriver driver, List<Offer> offers);
@@ -422,39 +594,46 @@ public abstract class JenkinsScheduler implements Scheduler {
     this.driver = driver;
   }
 
+  /**
+   * Starts processing events with the given driver, without registering a framework.
+   */
+  @VisibleForTesting
+  void startEventLoop(SchedulerDriver driver) {
+    this.driver = driver;
+    running = true;
+    eventLoop.start();
+  }
+
   @Override
   public void offerRescinded(SchedulerDriver driver, OfferID offerId) {
     LOGGER.info("Rescinded offer " + offerId);
-  }
-
-  private MesosSlave asMesosAgent(Node node) {
-    if (node instanceof MesosSlave) {
-      return (MesosSlave) node;
-    }
-
-    return null;
+    eventLoop.submit("rescinded " + offerId.getValue(), () -> offerPool.rescind(offerId));
   }
 
   @Override
   public void statusUpdate(SchedulerDriver driver, TaskStatus status) {
+    eventLoop.submit("status " + status.getTaskId().getValue(), () -> statusUpdateImpl(status));
+  }
+
+  private void statusUpdateImpl(TaskStatus status) {
     TaskID taskId = status.getTaskId();
     LOGGER.fine("Status update: task " + taskId + " is in state " + status.getState() +
                 (status.hasMessage() ? " with message '" + status.getMessage() + "'" : ""));
 
-    if (!results.containsKey(taskId)) {
-      // The task might not be present in the 'results' map if this is a duplicate terminal
+    if (!tasks.contains(taskId.getValue())) {
+      // The task might not be present in the task table if this is a duplicate terminal
       // update.
       LOGGER.fine("Ignoring status update " + status.getState() + " for unknown task " + taskId);
       return;
     }
 
     //setData
-    MesosSlave mesosSlave = asMesosAgent(Jenkins.get().getNode(taskId.getValue()));
+    MesosSlave mesosSlave = MesosSlaveRegistry.getInstance().getSlave(taskId.getValue());
     if (mesosSlave != null) {
       mesosSlave.setTaskStatus(status);
     }
 
-    Result result = results.get(taskId);
+    Result result = tasks.get(taskId.getValue());
     boolean terminalState = false;
 
     SlaveResult slaveResult = result.getResult();
@@ -463,8 +642,10 @@ public abstract class JenkinsScheduler implements Scheduler {
     switch (status.getState()) {
       case TASK_STAGING:
       case TASK_STARTING:
+        tasks.transition(taskId.getValue(), TaskTable.State.STAGING);
         break;
       case TASK_RUNNING:
+        tasks.transition(taskId.getValue(), TaskTable.State.RUNNING);
         slaveResult.running(resultSlave);
         if(mesosSlave != null && StringUtils.isBlank(mesosSlave.getDockerContainerID())) {
           mesosSlave.setDockerContainerID(extractContainerIdFromTaskStatus(status));
@@ -494,12 +675,10 @@ public abstract class JenkinsScheduler implements Scheduler {
     }
 
     if (terminalState) {
-      results.remove(taskId);
+      tasks.transition(taskId.getValue(), TaskTable.State.TERMINAL);
     }
 
-    if (mesosCloud.isOnDemandRegistration()) {
-      supervise();
-    }
+    requestSupervision();
   }
 
   @Override
@@ -512,6 +691,7 @@ public abstract class JenkinsScheduler implements Scheduler {
   @Override
   public void slaveLost(SchedulerDriver driver, SlaveID slaveId) {
     LOGGER.info("Slave " + slaveId + " lost!");
+    agentInfoCache.invalidate(slaveId);
   }
 
   @Override
@@ -557,13 +737,13 @@ public abstract class JenkinsScheduler implements Scheduler {
   @VisibleForTesting
   private boolean isExistingTask(TaskID taskId) {
     // If the task has already been queued, don't launch it again
-    if (results.containsKey(taskId)) {
+    if (tasks.contains(taskId.getValue())) {
       LOGGER.info("Task " + taskId.getValue() + " has already been launched, ignoring and refusing offer");
       return true;
     }
 
     // If the task has already finished, then do not start it up again even if we are offered it
-    if (finishedTasks.contains(taskId)) {
+    if (finishedTasks.contains(taskId.getValue())) {
       LOGGER.info("Task " + taskId.getValue() + " has already finished. Ignoring and refusing offer");
       return true;
     }
@@ -572,23 +752,9 @@ public abstract class JenkinsScheduler implements Scheduler {
   }
 
   private boolean isExistingAgent(Protos.TaskID taskId) {
-    for (final Computer computer : Jenkins.get().getComputers()) {
-      if (!(computer instanceof MesosComputer)) {
-        LOGGER.finest("Not a mesos computer, skipping");
-        continue;
-      }
-
-      MesosComputer mesosComputer = (MesosComputer) computer;
-
-      MesosSlave mesosSlave = mesosComputer.getNode();
-      if (mesosSlave != null) {
-        if (StringUtils.equals(taskId.getValue(), computer.getName()) && mesosSlave.isPendingDelete()) {
-          LOGGER.fine("This mesos task " + taskId.getValue() + " is pending deletion. Not launching another task");
-          return true;
-        }
-      } else {
-        LOGGER.warning("Unable to get node object for computer '" + computer + "'");
-      }
+    if (MesosSlaveRegistry.getInstance().isPendingDelete(taskId.getValue())) {
+      LOGGER.fine("This mesos task " + taskId.getValue() + " is pending deletion. Not launching another task");
+      return true;
     }
 
     return false;
@@ -604,9 +770,9 @@ public abstract class JenkinsScheduler implements Scheduler {
 
 
   protected List<Request> drainRequests() {
-    List<Request> currentRequests = new ArrayList<>(requests.size());
-    requests.drainTo(currentRequests);
-    return currentRequests;
+    // an offer cycle queued before a cancel event must not launch the cancelled request
+    applyCancellations();
+    return requests.drain();
   }
 
   protected void enqueueRequest(@Nonnull Request request) {
@@ -623,62 +789,69 @@ public abstract class JenkinsScheduler implements Scheduler {
     }
   }
 
-  public List<Request> getRequestsMatchingLabel(Label label) {
-    List<Request> foundRequests = new ArrayList<>();
+  public Future<List<Request>> getRequestsMatchingLabel(Label label) {
+    return eventLoop.submit("requests for label " + label.getDisplayName(), () -> requests.getForLabel(label.getDisplayName()));
+  }
 
-    for (Request request : requests) {
-      try {
-        String requestedLabelString = request.getRequest().getSlaveInfo().getLabelString();
+  public Future<Request> getRequestForLinkedItem(String linkedItem) {
+    return eventLoop.submit("request for " + linkedItem, () -> requests.getFirstForLinkedItem(linkedItem));
+  }
 
-        if (StringUtils.equals(requestedLabelString, label.getDisplayName())) {
-          foundRequests.add(request);
-        }
-      } catch (Exception e) {
-          LOGGER.log(Level.WARNING, "Error while trying to find a request matching with label '" + label + "'", e);
-      }
-    }
+  /**
+   * Removes the oldest pending request for the given item on the event loop. The cancellation is recorded right away,
+   * so that an offer cycle queued before the cancel event skips the request instead of launching it.
+   * @param linkedItem the full name of the item
+   * @return completes with true if a pending request for the item was removed
+   */
+  public CompletableFuture<Boolean> removeRequestForLinkedItem(String linkedItem) {
+    Cancellation cancellation = new Cancellation(linkedItem);
+    cancellations.add(cancellation);
 
-    return foundRequests;
+    if (eventLoop.submit("cancel " + linkedItem, this::applyCancellations).isCancelled()) {
+      // the scheduler is stopped already, nothing is launched anymore
+      cancellation.removed.complete(false);
+    }
+    return cancellation.removed;
   }
 
-  public Request getRequestForLinkedItem(String linkedItem) {
-    try {
-      for (Request request : requests) {
-        String requestedLinkedItem = request.getRequest().getSlave().getLinkedItem();
-        if (StringUtils.equals(requestedLinkedItem, linkedItem)) {
-          return request;
-        }
-      }
-    } catch (Exception e) {
-      LOGGER.log(Level.WARNING, "Error while finding request for '" + linkedItem + "':", e);
+  private void applyCancellations() {
+    Cancellation cancellation;
+    while ((cancellation = cancellations.poll()) != null) {
+      cancellation.removed.complete(requests.removeFirstForLinkedItem(cancellation.linkedItem) != null);
     }
-    return null;
   }
 
-  public boolean removeRequestForLinkedItem(String linkedItem) {
-    Request request = getRequestForLinkedItem(linkedItem);
-    if(request != null) {
-      requests.remove(request);
-      return true;
+  private static final class Cancellation {
+    private final String linkedItem;
+    private final CompletableFuture<Boolean> removed = new CompletableFuture<>();
+
+    private Cancellation(String linkedItem) {
+      this.linkedItem = linkedItem;
     }
-    return false;
   }
 
   public Result getResult(String slaveName) {
-    TaskID taskId = TaskID.newBuilder().setValue(slaveName).build();
-    return results.get(taskId);
+    return tasks.get(slaveName);
   }
 
   protected void addResult(Protos.TaskID taskId, Result result) {
-    results.put(taskId, result);
+    tasks.launched(taskId.getValue(), result);
   }
 
   public void clearResults() {
-    results.clear();
+    eventLoop.submit("clear results", tasks::clear);
+  }
+
+  /**
+   * Marks the task of the agent as connected, called when the Jenkins agent comes online.
+   * @param name the name of the agent (equals the task id)
+   */
+  public void agentConnected(String name) {
+    eventLoop.submit("connected " + name, () -> tasks.transition(name, TaskTable.State.CONNECTED));
   }
 
   protected void finishTask(Protos.TaskID taskId) {
-    finishedTasks.add(taskId);
+    finishedTasks.add(taskId.getValue());
   }
 
   private boolean isCpuLimitActivated() {
@@ -706,27 +879,31 @@ public abstract class JenkinsScheduler implements Scheduler {
   }
 
   public double getUsedCpus() {
-    double cpus = 0.0;
-    for(Request request: requests) {
-      cpus += request.getRequest().getSlave().getCpus();
-    }
-
-    for(Result result: results.values()) {
-      cpus += result.getSlave().getCpus();
-    }
-    return cpus;
+    return requests.getUsage().getCpus() + tasks.getUsage().getCpus();
   }
 
   public double getUsedMem() {
-    double mem = 0.0;
-    for(Request request: requests) {
-      mem += request.getRequest().getSlave().getMem();
-    }
+    return requests.getUsage().getMem() + tasks.getUsage().getMem();
+  }
 
-    for(Result result: results.values()) {
-      mem += result.getSlave().getMem();
-    }
-    return mem;
+  public ReviveCoalescer getReviveCoalescer() {
+    return reviveCoalescer;
+  }
+
+  public OfferPool getOfferPool() {
+    return offerPool;
+  }
+
+  public AgentInfoCache getAgentInfoCache() {
+    return agentInfoCache;
+  }
+
+  public ResourceUsage getPendingResourceUsage() {
+    return requests.getUsage();
+  }
+
+  public ResourceUsage getActiveResourceUsage() {
+    return tasks.getUsage();
   }
 
   protected double getNoRequestsDeclineOfferDuration() {
@@ -734,11 +911,16 @@ public abstract class JenkinsScheduler implements Scheduler {
   }
 
   public int getNumberOfPendingTasks() {
-    return requests.size();
+    // readable from any thread, unlike the requests themselves
+    return requests.getUsage().getAgents();
   }
 
   public int getNumberOfActiveTasks() {
-    return results.size();
+    return tasks.size();
+  }
+
+  public long getNumberOfTasks(TaskTable.State state) {
+    return tasks.count(state);
   }
 
   public MesosCloud getMesosCloud() {
@@ -3,15 +3,32 @@ package org.jenkinsci.plugins.mesos;
 import org.apache.commons.lang.StringUtils;
 import org.apache.mesos.Protos;
 import org.apache.mesos.SchedulerDriver;
+import org.jenkinsci.plugins.mesos.config.slavedefinitions.MesosSlaveInfo;
+import org.jenkinsci.plugins.mesos.scheduling.AttributeIndex;
+import org.jenkinsci.plugins.mesos.scheduling.CapacityIndex;
+import org.jenkinsci.plugins.mesos.scheduling.JenkinsSlave;
 import org.jenkinsci.plugins.mesos.scheduling.Lease;
+import org.jenkinsci.plugins.mesos.scheduling.MatchingContext;
 import org.jenkinsci.plugins.mesos.scheduling.Request;
+import org.jenkinsci.plugins.mesos.scheduling.assignment.AssignmentStrategies;
+import org.jenkinsci.plugins.mesos.scheduling.assignment.AssignmentStrategy;
+import org.jenkinsci.plugins.mesos.scheduling.assignment.Placement;
 import org.jenkinsci.plugins.mesos.scheduling.creator.TaskCreator;
+import org.jenkinsci.plugins.mesos.scheduling.decline.AdaptiveDeclinePolicy;
+import org.jenkinsci.plugins.mesos.scheduling.decline.DeclinePolicy;
 import org.jenkinsci.plugins.mesos.scheduling.fitness.FitnessRater;
-import org.jenkinsci.plugins.mesos.scheduling.fitness.NodeAffineRaters;
+import org.jenkinsci.plugins.mesos.scheduling.fitness.FitnessRaters;
+import org.jenkinsci.plugins.mesos.scheduling.fitness.ParallelLeaseRater;
+import org.jenkinsci.plugins.mesos.scheduling.fitness.RolePreferringRaters;
 
 import javax.annotation.Nonnull;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 public class JenkinsSchedulerNew extends JenkinsScheduler {
@@ -19,123 +36,179 @@ public class JenkinsSchedulerNew extends JenkinsScheduler {
     public static final String NAME = "FitnessScheduler";
 
     private final FitnessRater fitnessRater;
+    private final DeclinePolicy declinePolicy;
+    private final AssignmentStrategy assignmentStrategy;
+    private final ParallelLeaseRater parallelLeaseRater;
 
+    // configurations which failed to resolve, only accessed on the event loop
+    private final Set<String> invalidFitnessRaters = new HashSet<>();
 
     public JenkinsSchedulerNew(String jenkinsMaster, MesosCloud mesosCloud) {
-        this(jenkinsMaster, mesosCloud, NodeAffineRaters.NODE_AFFINE_CPU_MEM_SPREAD);
+        this(jenkinsMaster, mesosCloud, RolePreferringRaters.ROLE_PREFERRING_NODE_AFFINE_CPU_MEM_SPREAD);
     }
 
 
     public JenkinsSchedulerNew(String jenkinsMaster, MesosCloud mesosCloud, FitnessRater fitnessRater) {
+        this(jenkinsMaster, mesosCloud, fitnessRater, new AdaptiveDeclinePolicy());
+    }
+
+
+    public JenkinsSchedulerNew(String jenkinsMaster, MesosCloud mesosCloud, FitnessRater fitnessRater, DeclinePolicy declinePolicy) {
+        this(jenkinsMaster, mesosCloud, fitnessRater, declinePolicy, AssignmentStrategies.DOMINANT_RESOURCE_DECREASING);
+    }
+
+
+    public JenkinsSchedulerNew(String jenkinsMaster, MesosCloud mesosCloud, FitnessRater fitnessRater, DeclinePolicy declinePolicy, AssignmentStrategy assignmentStrategy) {
         super(jenkinsMaster, mesosCloud, NAME);
 
-        // TODO: configurable fitness rater (on request with mapping like "FrameworkToItem"?)
-        this.fitnessRater = fitnessRater;
+        // used unless the slave info or the cloud configure a fitness rater
+        this.fitnessRater = FitnessRaters.compile(fitnessRater);
+        this.declinePolicy = declinePolicy;
+        this.assignmentStrategy = assignmentStrategy;
+        this.parallelLeaseRater = new ParallelLeaseRater("Framework " + mesosCloud.getFrameworkName() + " scoring", Runtime.getRuntime().availableProcessors());
     }
 
     @Override
-    protected void resourceOffersImpl(SchedulerDriver driver, List<Protos.Offer> offers) {
-        List<Protos.Offer> offersToDecline;
-        double declineOfferDuration = 1;
+    public void stop() {
+        try {
+            super.stop();
+        } finally {
+            parallelLeaseRater.shutdown();
+        }
+    }
 
+    @Override
+    protected void resourceOffersImpl(SchedulerDriver driver, List<Protos.Offer> offers) {
         // drain/move requests to a separate list, so that we try not to be greedy
         List<Request> currentRequests = drainRequests();
 
         if (!currentRequests.isEmpty()) {
+            // consider held offers as well
+            List<Protos.Offer> allOffers = new ArrayList<>(offers);
+            allOffers.addAll(takeHeldOffers());
+
+            // all leases of the cycle are rated against the same point in time
+            MatchingContext matchingContext = new MatchingContext(System.currentTimeMillis());
+
             // create leases list from offers
-            List<Lease> leases = createLeases(offers);
+            List<Lease> leases = createLeases(allOffers, matchingContext);
 
             // try to assign requests
-            List<Request> unassignedRequests = assignRequests(currentRequests, leases);
+            List<Request> unassignedRequests = assignRequests(currentRequests, leases, matchingContext);
 
             // add still unassigned requests back to requests (finally block?)
             enqueueRequests(unassignedRequests);
 
-            offersToDecline = launchAssignments(driver, leases);
+            launchAssignments(driver, leases, unassignedRequests);
         } else {
-            // Decline offer for a longer period if no slave is waiting to get spawned.
+            // Decline offer for a longer period and suppress further offers if no slave is waiting to get spawned.
             // This prevents unnecessarily getting offers every few seconds and causing
-            // starvation when running a lot of frameworks.
-            declineOfferDuration = getNoRequestsDeclineOfferDuration();
-            LOGGER.info("No requests in queue, framework '" + getMesosCloud().getFrameworkName() + "' rejects offers for " + declineOfferDuration + "s");
+            // starvation when running a lot of frameworks. New requests revive offers again.
+            // (A few offers are held for a short time, for requests arriving meanwhile.)
+            double declineOfferDuration = getNoRequestsDeclineOfferDuration();
+            LOGGER.info("No requests in queue, framework '" + getMesosCloud().getFrameworkName() + "' rejects offers for " + declineOfferDuration + "s and suppresses offers");
 
-            offersToDecline = offers;
+            declineOffers(driver, holdOffers(offers), createFilters(declineOfferDuration));
+            suppressOffers();
         }
-
-        declineOffers(driver, offersToDecline, Protos.Filters.newBuilder().setRefuseSeconds(declineOfferDuration).build());
     }
 
-    private List<Protos.Offer> launchAssignments(SchedulerDriver driver, List<Lease> leases) {
+    private void launchAssignments(SchedulerDriver driver, List<Lease> leases, List<Request> unassignedRequests) {
         // launch tasks / decline other offers/leases
         // TODO: what if launchMesosTask/declineOffer goes awry? -> add requests of unhandled leases back to requests as well
-        List<Protos.Offer> offersToDecline = new ArrayList<>();
-
         for (Lease lease : leases) {
+            // the remaining resources of the lease are filtered according to the requests still waiting
+            Protos.Filters filters = createFilters(declinePolicy.getRefuseSeconds(lease, unassignedRequests));
+
             try {
                 if (lease.hasAssignments()) {
                     // launch tasks
-                    launchMesosTasks(driver, lease);
+                    launchMesosTasks(driver, lease, filters);
                 } else {
-                    // decline leases with no assignments
-                    offersToDecline.addAll(lease.getOffers());
+                    // hold or decline leases with no assignments
+                    declineOffers(driver, holdOffers(lease.getOffers()), filters);
                 }
             } catch (Exception e) {
                 LOGGER.log(Level.SEVERE, "Unable to launch tasks for lease '" + lease + "':", e);
-                offersToDecline.addAll(lease.getOffers());
+                declineOffers(driver, lease.getOffers(), createFilters(DeclinePolicy.DEFAULT_REFUSE_SECONDS));
+            }
+        }
+    }
+
+    /**
+     * @return the offers which could not be held
+     */
+    private List<Protos.Offer> holdOffers(List<Protos.Offer> offers) {
+        List<Protos.Offer> offersToDecline = new ArrayList<>();
+
+        for (Protos.Offer offer : offers) {
+            if (!holdOffer(offer)) {
+                offersToDecline.add(offer);
             }
         }
 
-        return  offersToDecline;
+        return offersToDecline;
     }
 
-    private boolean assignToFittestLease(Request request, List<Lease> leases) {
+    private static Protos.Filters createFilters(double refuseSeconds) {
+        return Protos.Filters.newBuilder().setRefuseSeconds(refuseSeconds).build();
+    }
+
+    private boolean assignToFittestLease(Request request, FitnessRater tieBreaker, List<Lease> leases, CapacityIndex capacityIndex) {
         // find fittest lease/offer
-        // (this part could be multi-threaded)
-        Lease fittestLease = findFittestLease(request, leases);
+        Lease fittestLease = findFittestLease(request, tieBreaker, leases);
 
         // assign request to fittest lease/offer ("create task")
-        return fittestLease != null && fittestLease.assign(request, new TaskCreator(request, fittestLease, this).createTask());
+        if (fittestLease == null || !fittestLease.assign(request, new TaskCreator(request, fittestLease, this).createTask())) {
+            return false;
+        }
+
+        // the lease has less capacity left
+        capacityIndex.update(fittestLease);
+        return true;
     }
 
-    private List<Request> assignRequests(@Nonnull List<Request> currentRequests, @Nonnull List<Lease> leases) {
-        List<Request> unassignedRequests = new ArrayList<>();
+    private static List<Lease> getCandidates(Request request, List<Lease> leases, AttributeIndex attributeIndex, CapacityIndex capacityIndex) {
+        JenkinsSlave.RequestJenkinsSlave requestedAgent = request.getRequest().getSlave();
 
-        // try to assign requests to a lease
-        for (Request request : currentRequests) {
-            try {
-                if (!(isExistingRequest(request, leases) || assignToFittestLease(request, leases))) {
-                    unassignedRequests.add(request);
-                }
-            } catch (Exception e) {
-                LOGGER.log(Level.SEVERE, "Unable to assign request '" + request + "' to a lease:", e);
-                unassignedRequests.add(request);
-            }
+        List<Lease> attributeCandidates = attributeIndex.getCandidates(request.getRequest().getSlaveInfo());
+        if (attributeCandidates.size() < leases.size()) {
+            // only a few agents match the attributes, check their capacity directly
+            return CapacityIndex.filter(requestedAgent, attributeCandidates);
         }
 
-        return unassignedRequests;
+        return capacityIndex.getCandidates(requestedAgent);
     }
 
-    private boolean isRequestAlreadyAssigned(String agentName, List<Lease> leases) {
-        for (Lease lease : leases) {
-            for (Request existingRequest : lease.getAssignedRequests()) {
-                String existingAgentName = existingRequest.getRequest().getSlave().getName();
-                if (StringUtils.equals(agentName, existingAgentName)) {
-                    return true;
+    private List<Request> assignRequests(@Nonnull List<Request> currentRequests, @Nonnull final List<Lease> leases, @Nonnull final MatchingContext matchingContext) {
+        // requests are only rated against the leases of agents matching their attributes and with enough capacity
+        final AttributeIndex attributeIndex = new AttributeIndex(leases);
+        final CapacityIndex capacityIndex = new CapacityIndex(leases);
+
+        Placement placement = new Placement(leases, TimeUnit.MILLISECONDS.toNanos(AssignmentStrategy.DEFAULT_BUDGET_MILLIS)) {
+            @Override
+            protected boolean placeOnFittestLease(Request request, FitnessRater tieBreaker) {
+                try {
+                    return isExistingRequest(request, matchingContext)
+                            || assignToFittestLease(request, tieBreaker, getCandidates(request, leases, attributeIndex, capacityIndex), capacityIndex);
+                } catch (Exception e) {
+                    LOGGER.log(Level.SEVERE, "Unable to assign request '" + request + "' to a lease:", e);
+                    return false;
                 }
             }
-        }
+        };
 
-        return false;
+        return placement.assign(assignmentStrategy, currentRequests, TimeUnit.MILLISECONDS.toNanos(AssignmentStrategy.FALLBACK_BUDGET_MILLIS));
     }
 
-    private boolean isExistingRequest(Request request, List<Lease> leases) {
+    private boolean isExistingRequest(Request request, MatchingContext matchingContext) {
         // dont test fitness if first part of createMesos applies:
         // * is existing task
         // * is existing jenkins agent
         // (task for request already exists, or jenkins agent already created for it)
         // in this case simply remove request from currentRequests and ignore (log it though)
         String agentName = request.getRequest().getSlave().getName();
-        return isRequestAlreadyAssigned(agentName, leases) || isExistingTaskOrAgent(agentName);
+        return matchingContext.isAssigned(agentName) || isExistingTaskOrAgent(agentName);
     }
 
     private void declineOffers(SchedulerDriver driver, List<Protos.Offer> offers, Protos.Filters filters) {
@@ -150,36 +223,64 @@ public class JenkinsSchedulerNew extends JenkinsScheduler {
         // unlock object
     }
 
-    private List<Lease> createLeases(List<Protos.Offer> offers) {
-        List<Lease> leases = new ArrayList<>(offers.size());
-
+    private List<Lease> createLeases(List<Protos.Offer> offers, MatchingContext matchingContext) {
+        // one lease per agent, so that requests can use the combined resources of all its offers
+        Map<String, List<Protos.Offer>> offersByAgent = new LinkedHashMap<>();
         for (Protos.Offer offer : offers) {
-            leases.add(new Lease(offer));
+            offersByAgent.computeIfAbsent(offer.getSlaveId().getValue(), k -> new ArrayList<>()).add(offer);
+        }
+
+        List<Lease> leases = new ArrayList<>(offersByAgent.size());
+        for (List<Protos.Offer> agentOffers : offersByAgent.values()) {
+            leases.add(new Lease(agentOffers, matchingContext, getAgentInfoCache().get(agentOffers.get(0))));
         }
 
         return leases;
     }
 
 
-    private Lease findFittestLease(Request request, List<Lease> leases) {
-        Lease fittestLease = null;
-        double fittestRating = FitnessRater.NOT_FIT;
+    private FitnessRater getFitnessRater(Request request) {
+        // the slave info may override the fitness rater of the cloud
+        MesosSlaveInfo slaveInfo = request.getRequest().getSlaveInfo();
+        String configuration = StringUtils.defaultIfBlank(slaveInfo != null ? slaveInfo.getFitnessRater() : null, getMesosCloud().getFitnessRater());
+        if (StringUtils.isBlank(configuration) || invalidFitnessRaters.contains(configuration)) {
+            return fitnessRater;
+        }
 
-        for (Lease lease : leases) {
-            double currentRating = fitnessRater.rateFitness(request, lease);
+        try {
+            return FitnessRaters.compile(FitnessRaters.resolve(configuration));
+        } catch (IllegalArgumentException e) {
+            // warn once per configuration instead of for every request
+            invalidFitnessRaters.add(configuration);
+            LOGGER.warning("Using fitness rater '" + fitnessRater + "' instead of '" + configuration + "': " + e.getMessage());
+            return fitnessRater;
+        }
+    }
 
-            if (currentRating > fittestRating) {
-                fittestLease = lease;
-                fittestRating = currentRating;
-            }
+    private Lease findFittestLease(Request request, FitnessRater tieBreaker, List<Lease> leases) {
+        double[] ratings = rateLeases(getFitnessRater(request), request, leases);
+
+        // on equal ratings the first lease wins (or the tie breaker decides), regardless of how the ratings were computed
+        return Placement.chooseFittestLease(request, leases, ratings, tieBreaker != null ? FitnessRaters.compile(tieBreaker) : null);
+    }
+
+    private double[] rateLeases(FitnessRater rater, Request request, List<Lease> leases) {
+        int parallelScoringThreshold = getMesosCloud().getParallelScoringThreshold();
+        if (parallelScoringThreshold > 0 && leases.size() > parallelScoringThreshold) {
+            return parallelLeaseRater.rate(rater, request, leases);
+        }
+
+        double[] ratings = new double[leases.size()];
+        for (int i = 0; i < ratings.length; i++) {
+            ratings[i] = rater.rateFitness(request, leases.get(i));
         }
 
-        return fittestLease;
+        return ratings;
     }
 
 
-    private void launchMesosTasks(SchedulerDriver driver, Lease lease) {
-        launchMesosTasks(driver, lease.getOfferIds(), lease.getAssignments(), lease.getHostname());
+    private void launchMesosTasks(SchedulerDriver driver, Lease lease, Protos.Filters filters) {
+        launchMesosTasks(driver, lease.getOfferIds(), lease.getAssignments(), lease.getHostname(), filters);
     }
 
 }
@@ -1,6 +1,5 @@
 package org.jenkinsci.plugins.mesos;
 
-import net.sf.json.JSONObject;
 import org.apache.commons.lang.StringUtils;
 import org.apache.mesos.Protos;
 import org.apache.mesos.SchedulerDriver;
@@ -78,6 +77,9 @@ public class JenkinsSchedulerOld extends JenkinsScheduler {
             }
         } finally {
             // re-add unprocessed requests
+            if (requests.isEmpty()) {
+                suppressOffers();
+            }
             enqueueRequests(requests);
         }
     }
@@ -163,13 +165,13 @@ public class JenkinsSchedulerOld extends JenkinsScheduler {
         // Check for sufficient cpu and memory resources in the offer.
         double requestedCpus = slaveRequest.getSlave().getCpus();
         double requestedMem = slaveRequest.getSlave().getMem();
-        // Get matching slave attribute for this label.
-        JSONObject slaveAttributes = getMesosCloud().getSlaveAttributeForLabel(slaveInfo.getLabelString());
+        // Get matching slave info (attributes) for this label.
+        MesosSlaveInfo labelSlaveInfo = getMesosCloud().getSlaveInfoForLabel(slaveInfo.getLabelString());
 
         if (requestedCpus <= cpus
                 && requestedMem <= mem
                 && !(hasPortMappings && !hasPortResources)
-                && slaveAttributesMatch(offer, slaveAttributes)) {
+                && getAgentInfoCache().get(offer).hasAllAttributes(labelSlaveInfo)) {
             return true;
         } else {
             String requestedPorts = containerInfo != null
@@ -184,47 +186,11 @@ public class JenkinsSchedulerOld extends JenkinsScheduler {
                             "  cpus:  " + requestedCpus + "\n" +
                             "  mem:   " + requestedMem + "\n" +
                             "  ports: " + requestedPorts + "\n" +
-                            "  attributes:  " + (slaveAttributes == null ? ""  : slaveAttributes.toString()));
+                            "  attributes:  " + (labelSlaveInfo == null ? ""  : StringUtils.defaultString(labelSlaveInfo.getSlaveAttributesString())));
             return false;
         }
     }
 
-    /**
-     * Checks whether the cloud Mesos slave attributes match those from the Mesos offer.
-     *
-     * @param offer Mesos offer data object.
-     * @return true if all the offer attributes match and false if not.
-     */
-    private boolean slaveAttributesMatch(Protos.Offer offer, JSONObject slaveAttributes) {
-
-        //Accept any and all Mesos slave offers by default.
-        boolean slaveTypeMatch = true;
-
-        //Collect the list of attributes from the offer as key-value pairs
-        Map<String, String> attributesMap = new HashMap<>();
-        for (Protos.Attribute attribute : offer.getAttributesList()) {
-            attributesMap.put(attribute.getName(), attribute.getText().getValue());
-        }
-
-        if (slaveAttributes != null && slaveAttributes.size() > 0) {
-
-            //Iterate over the cloud attributes to see if they exist in the offer attributes list.
-            Iterator iterator = slaveAttributes.keys();
-            while (iterator.hasNext()) {
-
-                String key = (String) iterator.next();
-
-                //If there is a single absent attribute then we should reject this offer.
-                if (!(attributesMap.containsKey(key) && attributesMap.get(key).equals(slaveAttributes.getString(key)))) {
-                    slaveTypeMatch = false;
-                    break;
-                }
-            }
-        }
-
-        return slaveTypeMatch;
-    }
-
     private void launchMesosTask(SchedulerDriver driver, Protos.Offer offer, Protos.TaskInfo taskInfo, Request request) {
         launchMesosTasks(driver, Collections.singletonList(offer.getId()), Collections.singletonMap(taskInfo, request), offer.getHostname());
     }
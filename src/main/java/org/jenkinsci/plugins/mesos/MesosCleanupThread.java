@@ -69,38 +69,35 @@ public class MesosCleanupThread extends AsyncPeriodicWork {
 
     @Override
     protected void execute(TaskListener listener) {
+        // once per run instead of on every change of the node list, which happens for every agent
+        MesosSlaveRegistry.getInstance().resync(Jenkins.get().getComputers());
+
         final ImmutableList.Builder<ListenableFuture<?>> deletedNodesBuilder = ImmutableList.builder();
         ListeningExecutorService executor = MoreExecutors.listeningDecorator(Computer.threadPoolForRemoting);
 
         int deleteCount = 0;
 
-        for (final Computer c : Jenkins.get().getComputers()) {
-          if (MesosComputer.class.isInstance(c)) {
-            MesosSlave mesosSlave = (MesosSlave) c.getNode();
-            if (mesosSlave != null && mesosSlave.isPendingDelete()) {
-              final MesosComputer comp = (MesosComputer) c;
-              LOGGER.log(Level.INFO, "Marked " + comp.getName() + " for deletion");
-              if(comp.isIdle()) { //only delete it if it is really idle
-                ListenableFuture<?> f = executor.submit(() -> {
-                    LOGGER.log(Level.INFO, "Deleting pending node " + comp.getName());
-                  if(comp.isOffline() && comp.getChannel() == null) {
-                    //maybe slave was never online.. delete it from Jenkins instance
-                    comp.deleteSlave();
-                  } else {
-                    //disconnect slave so the task at mesos can finish and dont get killed.
-                    comp.disconnect(OfflineCause.create(Messages._deletedCause()));
-                  }
-                });
-                deletedNodesBuilder.add(f);
-                deleteCount++;
-              }
-            } else {
-                LOGGER.log(Level.FINE, c.getName() + " with slave " + mesosSlave +
-                      " is not pending deletion or the slave is null");
+        for (final MesosComputer comp : MesosSlaveRegistry.getInstance().getPendingDeleteComputers()) {
+          MesosSlave mesosSlave = comp.getNode();
+          if (mesosSlave != null && mesosSlave.isPendingDelete()) {
+            LOGGER.log(Level.INFO, "Marked " + comp.getName() + " for deletion");
+            if(comp.isIdle()) { //only delete it if it is really idle
+              ListenableFuture<?> f = executor.submit(() -> {
+                  LOGGER.log(Level.INFO, "Deleting pending node " + comp.getName());
+                if(comp.isOffline() && comp.getChannel() == null) {
+                  //maybe slave was never online.. delete it from Jenkins instance
+                  comp.deleteSlave();
+                } else {
+                  //disconnect slave so the task at mesos can finish and dont get killed.
+                  comp.disconnect(OfflineCause.create(Messages._deletedCause()));
+                }
+              });
+              deletedNodesBuilder.add(f);
+              deleteCount++;
             }
-
           } else {
-              LOGGER.log(Level.FINER, c.getName() + " is not a mesos computer, it is a " + c.getClass().getName());
+              LOGGER.log(Level.FINE, comp.getName() + " with slave " + mesosSlave +
+                    " is not pending deletion or the slave is null");
           }
         }
 
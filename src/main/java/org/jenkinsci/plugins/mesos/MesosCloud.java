@@ -48,19 +48,22 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.builder.EqualsBuilder;
 import org.apache.commons.lang.builder.HashCodeBuilder;
 import org.apache.mesos.MesosNativeLibrary;
-import org.jenkinsci.plugins.mesos.actions.MesosBuiltOnAction;
 import org.jenkinsci.plugins.mesos.actions.MesosBuiltOnProjectAction;
 import org.jenkinsci.plugins.mesos.config.acl.MesosFrameworkToItemMapper;
 import org.jenkinsci.plugins.mesos.config.slavedefinitions.MesosSlaveDefinitions;
 import org.jenkinsci.plugins.mesos.config.slavedefinitions.MesosSlaveInfo;
 import org.jenkinsci.plugins.mesos.config.slavedefinitions.SlaveDefinitionsConfiguration;
+import org.jenkinsci.plugins.mesos.scheduling.AgentIdGenerator;
 import org.jenkinsci.plugins.mesos.scheduling.JenkinsSlave;
 import org.jenkinsci.plugins.mesos.scheduling.SlaveRequest;
 import org.jenkinsci.plugins.mesos.scheduling.SlaveResult;
+import org.jenkinsci.plugins.mesos.scheduling.fitness.FitnessRaters;
+import org.jenkinsci.plugins.mesos.scheduling.fitness.NodeAffineRaters;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.DoNotUse;
 import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.interceptor.RequirePOST;
 
@@ -105,6 +108,18 @@ public class MesosCloud extends Cloud {
 
   private String schedulerName;
 
+  private Integer reviveDebounceMillis;
+
+  private Integer offerHoldMillis;
+
+  private Integer maxHeldOffers;
+
+  private Integer parallelScoringThreshold;
+
+  private String rolePolicy;
+
+  private String fitnessRater;
+
   private static final Logger LOGGER = Logger.getLogger(MesosCloud.class.getName());
 
   // We allocate 10% more memory to the Mesos task to account for the JVM overhead.
@@ -116,6 +131,19 @@ public class MesosCloud extends Cloud {
 
   public static final String DEFAULT_SLAVE_LABEL_NONE = "None";
 
+  public static final int DEFAULT_REVIVE_DEBOUNCE_MILLIS = 500;
+
+  public static final int DEFAULT_OFFER_HOLD_MILLIS = 2000;
+
+  public static final int DEFAULT_MAX_HELD_OFFERS = 16;
+
+  // below, forking costs more than rating the leases sequentially (see ParallelLeaseRaterBenchmark)
+  public static final int DEFAULT_PARALLEL_SCORING_THRESHOLD = 512;
+
+  // the recent builds whose hosts requests prefer (see NodeAffineRaters.DECAYED_AFFINE_*), and the decay of their weight
+  private static final int BUILD_HOST_HISTORY_SIZE = 8;
+  private static final double BUILD_HOST_DECAY = 0.5;
+
   /**
    * We want to start the Mesos scheduler as part of the initialization of Jenkins
    * and after the cloud class values have been restored from persistence.If this is
@@ -397,12 +425,47 @@ public class MesosCloud extends Cloud {
     return jenkinsJob.getEstimatedDuration();
   }
 
-  private String getLastBuildHostname(Job jenkinsJob) {
+  /**
+   * @param maxHostnames 1 for the host of the last build only, more to weigh the hosts of the recent builds
+   * @return the hosts of the recent builds of the job, most recent first
+   */
+  private List<String> getRecentBuildHostnames(Job jenkinsJob, int maxHostnames) {
     if (jenkinsJob == null) {
       LOGGER.warning("Unable to determine hostname of last build because job/linked item was not found");
-      return StringUtils.EMPTY;
+      return Collections.emptyList();
+    }
+
+    List<String> recentHostnames = getBuiltOnProjectAction(jenkinsJob).getRecentHostnames(BUILD_HOST_HISTORY_SIZE, maxHostnames);
+    if (recentHostnames.isEmpty()) {
+      LOGGER.warning("Unable to determine hostname of last build because no recent build on action was found");
+    }
+    return recentHostnames;
+  }
+
+  /**
+   * @return whether the fitness rater of the slave info rates by the hosts of the recent builds (see
+   * {@link NodeAffineRaters#weighBuildHosts(List, double)}), only then weighing them is worth walking the builds
+   */
+  private boolean isWeighingBuildHosts(MesosSlaveInfo slaveInfo) {
+    if (StringUtils.equals(getSchedulerName(), JenkinsSchedulerOld.NAME)) {
+      return false;
     }
 
+    String configuration = StringUtils.defaultIfBlank(slaveInfo.getFitnessRater(), getFitnessRater());
+    if (StringUtils.isBlank(configuration)) {
+      // the default rater of the scheduler prefers the last build host only
+      return false;
+    }
+
+    try {
+      return FitnessRaters.usesBuildHostWeights(FitnessRaters.resolve(configuration));
+    } catch (IllegalArgumentException e) {
+      // the scheduler falls back to its default rater
+      return false;
+    }
+  }
+
+  private MesosBuiltOnProjectAction getBuiltOnProjectAction(Job jenkinsJob) {
     MesosBuiltOnProjectAction builtOnProjectAction = jenkinsJob.getAction(MesosBuiltOnProjectAction.class);
     // it could be that there was:
     // * an error when saving the action, try to imitate
@@ -412,13 +475,7 @@ public class MesosCloud extends Cloud {
       builtOnProjectAction = new MesosBuiltOnProjectAction(jenkinsJob);
     }
 
-    MesosBuiltOnAction builtOnAction = builtOnProjectAction.getAction();
-    if (builtOnAction == null) {
-      LOGGER.warning("Unable to determine hostname of last build because last build on action was not found");
-      return StringUtils.EMPTY;
-    }
-
-    return builtOnAction.getMesosAgentHostname();
+    return builtOnProjectAction;
   }
 
   private Job asJob(String linkedItem) {
@@ -428,18 +485,25 @@ public class MesosCloud extends Cloud {
   }
 
   private void sendSlaveRequest(int numExecutors, MesosSlaveInfo slaveInfo, String linkedItem) {
-    String name = slaveInfo.getLabelString() + "-" + UUID.randomUUID().toString();
+    String name = AgentIdGenerator.forFramework(frameworkName).nextName(slaveInfo.getLabelString());
     double cpus = slaveInfo.getSlaveCpus() + (numExecutors * slaveInfo.getExecutorCpus());
     double memory = (slaveInfo.getSlaveMem() + (numExecutors * slaveInfo.getExecutorMem())) * (1 + JVM_MEM_OVERHEAD_FACTOR);
 
     LOGGER.finer("Trying to get additional information from '" + linkedItem + "'");
     Job jenkinsJob = asJob(linkedItem);
     long estimatedDuration = getEstimatedDuration(jenkinsJob);
-    String lastBuildHostname = getLastBuildHostname(jenkinsJob);
-
-      // TODO: consider making this configurable (on MesosCloud/Framework level)
-    JenkinsSlave.RequestJenkinsSlave jenkinsSlave = new JenkinsSlave.SharedResourcesFirst(
+    // one walk over the recent builds, for their hosts if the rater weighs them or else for the host of the last one
+    boolean weighBuildHosts = isWeighingBuildHosts(slaveInfo);
+    List<String> recentHostnames = getRecentBuildHostnames(jenkinsJob, weighBuildHosts ? BUILD_HOST_HISTORY_SIZE : 1);
+    String lastBuildHostname = recentHostnames.isEmpty() ? StringUtils.EMPTY : recentHostnames.get(0);
+
+    // the slave info may override the role policy of the cloud
+    String requestRolePolicy = StringUtils.defaultIfBlank(slaveInfo.getRolePolicy(), getRolePolicy());
+    JenkinsSlave.RequestJenkinsSlave jenkinsSlave = JenkinsSlave.RequestJenkinsSlave.create(requestRolePolicy,
             name, slaveInfo.getLabelString(), numExecutors, linkedItem, lastBuildHostname, estimatedDuration, cpus, memory, slaveInfo.getContainerInfo().getPortMappings(), role);
+    if (weighBuildHosts) {
+      jenkinsSlave.setBuildHostWeights(NodeAffineRaters.weighBuildHosts(recentHostnames, BUILD_HOST_DECAY));
+    }
     LOGGER.finer("Requesting " + jenkinsSlave);
 
     SlaveRequest slaveRequest = new SlaveRequest(jenkinsSlave, slaveInfo);
@@ -449,14 +513,9 @@ public class MesosCloud extends Cloud {
   }
 
   public void removeSlaveFromJenkins(JenkinsSlave.ResultJenkinsSlave slave) {
-    Jenkins jenkins = Jenkins.get();
-    Node n = jenkins.getNode(slave.getName());
-    if(n != null) {
-      Computer computer = n.toComputer();
-      if(computer instanceof MesosComputer) {
-        MesosComputer mesosComputer = (MesosComputer) computer;
-        mesosComputer.deleteSlave();
-      }
+    MesosComputer mesosComputer = MesosSlaveRegistry.getInstance().getComputer(slave.getName());
+    if(mesosComputer != null) {
+      mesosComputer.deleteSlave();
     }
   }
 
@@ -699,12 +758,17 @@ public class MesosCloud extends Cloud {
   */
 
   public JSONObject getSlaveAttributeForLabel(String labelName) {
+    MesosSlaveInfo slaveInfo = getSlaveInfoForLabel(labelName);
+    return slaveInfo != null ? slaveInfo.getSlaveAttributes() : null;
+  }
+
+  public MesosSlaveInfo getSlaveInfoForLabel(String labelName) {
     if(labelName!=null) {
       List<MesosSlaveInfo> slaveInfos = getSlaveInfos();
 
       for (MesosSlaveInfo slaveInfo : slaveInfos) {
         if (labelName.equals(slaveInfo.getLabelString())) {
-          return slaveInfo.getSlaveAttributes();
+          return slaveInfo;
         }
       }
     }
@@ -767,6 +831,85 @@ public class MesosCloud extends Cloud {
     return schedulerName;
   }
 
+  public int getReviveDebounceMillis() {
+    if (reviveDebounceMillis == null || reviveDebounceMillis < 0) {
+      return DEFAULT_REVIVE_DEBOUNCE_MILLIS;
+    }
+    return reviveDebounceMillis;
+  }
+
+  @DataBoundSetter
+  public void setReviveDebounceMillis(int reviveDebounceMillis) {
+    this.reviveDebounceMillis = reviveDebounceMillis;
+  }
+
+  public int getOfferHoldMillis() {
+    if (offerHoldMillis == null || offerHoldMillis < 0) {
+      return DEFAULT_OFFER_HOLD_MILLIS;
+    }
+    return offerHoldMillis;
+  }
+
+  @DataBoundSetter
+  public void setOfferHoldMillis(int offerHoldMillis) {
+    this.offerHoldMillis = offerHoldMillis;
+  }
+
+  public int getMaxHeldOffers() {
+    if (maxHeldOffers == null || maxHeldOffers < 0) {
+      return DEFAULT_MAX_HELD_OFFERS;
+    }
+    return maxHeldOffers;
+  }
+
+  @DataBoundSetter
+  public void setMaxHeldOffers(int maxHeldOffers) {
+    this.maxHeldOffers = maxHeldOffers;
+  }
+
+  /**
+   * @return the number of leases above which a request is rated against the leases in parallel (0 to disable)
+   */
+  public int getParallelScoringThreshold() {
+    if (parallelScoringThreshold == null || parallelScoringThreshold < 0) {
+      return DEFAULT_PARALLEL_SCORING_THRESHOLD;
+    }
+    return parallelScoringThreshold;
+  }
+
+  @DataBoundSetter
+  public void setParallelScoringThreshold(int parallelScoringThreshold) {
+    this.parallelScoringThreshold = parallelScoringThreshold;
+  }
+
+  /**
+   * @return how requests use the resources of the role and shared resources (see {@link JenkinsSlave.RequestJenkinsSlave#create})
+   */
+  public String getRolePolicy() {
+    if (StringUtils.isBlank(rolePolicy)) {
+      return JenkinsSlave.SharedResourcesFirst.NAME;
+    }
+    return rolePolicy;
+  }
+
+  @DataBoundSetter
+  public void setRolePolicy(String rolePolicy) {
+    this.rolePolicy = rolePolicy;
+  }
+
+  /**
+   * @return the fitness rater (name or weighted composite, see {@link FitnessRaters}) for requests whose slave info
+   * does not define one, or null to use the default rater of the scheduler
+   */
+  public String getFitnessRater() {
+    return fitnessRater;
+  }
+
+  @DataBoundSetter
+  public void setFitnessRater(String fitnessRater) {
+    this.fitnessRater = StringUtils.stripToNull(fitnessRater);
+  }
+
   @Extension
   @SuppressFBWarnings
   public static class DescriptorImpl extends Descriptor<Cloud> {
@@ -842,6 +985,20 @@ public class MesosCloud extends Cloud {
       }
     }
 
+    @SuppressWarnings("unused")
+    public FormValidation doCheckFitnessRater(@QueryParameter String value) {
+      if (StringUtils.isBlank(value)) {
+        return FormValidation.ok();
+      }
+
+      try {
+        FitnessRaters.resolve(value);
+        return FormValidation.ok();
+      } catch (IllegalArgumentException e) {
+        return FormValidation.error(e.getMessage());
+      }
+    }
+
     @SuppressWarnings("unused")
     public FormValidation doCheckMaxExecutors(@QueryParameter("maxExecutors") final String strMaxExecutors,
                                               @QueryParameter("useSlaveOnce") final String strUseSlaveOnce) {
@@ -31,6 +31,12 @@ public class MesosComputer extends SlaveComputer {
     super(slave);
   }
 
+  @Override
+  protected void onRemoved() {
+    MesosSlaveRegistry.getInstance().unregister(this);
+    super.onRemoved();
+  }
+
   @Override
   public MesosSlave getNode() {
     return (MesosSlave) super.getNode();
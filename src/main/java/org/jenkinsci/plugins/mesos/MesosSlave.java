@@ -167,6 +167,7 @@ public class MesosSlave extends Slave implements EphemeralNode {
 
   public void setPendingDelete(boolean pendingDelete) {
       this.pendingDelete = pendingDelete;
+      MesosSlaveRegistry.getInstance().setPendingDelete(getNodeName(), pendingDelete);
   }
 
   public void idleTimeout() {
@@ -0,0 +1,115 @@
+package org.jenkinsci.plugins.mesos;
+
+import hudson.model.Computer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the computers of all Mesos agents by name, including the names of the agents pending deletion.
+ *
+ * The registry is maintained by {@link org.jenkinsci.plugins.mesos.listener.MesosComputerListener} (which registers
+ * computers when they are launched or come online), by {@link MesosComputer#onRemoved()} and by
+ * {@link MesosSlave#setPendingDelete(boolean)}. {@link MesosCleanupThread} resynchronizes it with the computers of
+ * Jenkins every minute, for changes of the node list which none of them saw. It allows lookups
+ * without iterating all computers of Jenkins, e.g. for every request of an offer cycle. Registrations are synchronized
+ * with resynchronizations, so that none of them gets lost in between.
+ */
+public final class MesosSlaveRegistry {
+
+  private static final MesosSlaveRegistry INSTANCE = new MesosSlaveRegistry();
+
+  private final ConcurrentMap<String, MesosComputer> computers = new ConcurrentHashMap<>();
+  private final Set<String> pendingDelete = ConcurrentHashMap.newKeySet();
+
+  private MesosSlaveRegistry() {
+  }
+
+  public static MesosSlaveRegistry getInstance() {
+    return INSTANCE;
+  }
+
+  public synchronized void register(MesosComputer computer) {
+    String name = computer.getName();
+    computers.put(name, computer);
+
+    MesosSlave mesosSlave = computer.getNode();
+    setPendingDelete(name, mesosSlave != null && mesosSlave.isPendingDelete());
+  }
+
+  public synchronized void unregister(MesosComputer computer) {
+    String name = computer.getName();
+    if (computers.remove(name, computer)) {
+      pendingDelete.remove(name);
+    }
+  }
+
+  public void setPendingDelete(String name, boolean isPendingDelete) {
+    if (isPendingDelete) {
+      pendingDelete.add(name);
+    } else {
+      pendingDelete.remove(name);
+    }
+  }
+
+  /**
+   * Replaces the content of the registry with the Mesos computers of the given computers.
+   */
+  public synchronized void resync(Computer[] allComputers) {
+    Set<String> names = new HashSet<>();
+    for (Computer computer : allComputers) {
+      if (computer instanceof MesosComputer) {
+        register((MesosComputer) computer);
+        names.add(computer.getName());
+      }
+    }
+
+    computers.keySet().retainAll(names);
+    pendingDelete.retainAll(names);
+  }
+
+  public MesosComputer getComputer(String name) {
+    return name != null ? computers.get(name) : null;
+  }
+
+  public MesosSlave getSlave(String name) {
+    MesosComputer computer = getComputer(name);
+    return computer != null ? computer.getNode() : null;
+  }
+
+  public boolean isPendingDelete(String name) {
+    return pendingDelete.contains(name);
+  }
+
+  /**
+   * @return the computers of the agents pending deletion
+   */
+  public List<MesosComputer> getPendingDeleteComputers() {
+    List<MesosComputer> result = new ArrayList<>(pendingDelete.size());
+    for (String name : pendingDelete) {
+      MesosComputer computer = computers.get(name);
+      if (computer != null) {
+        result.add(computer);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * @return a live, unmodifiable view of the computers of all Mesos agents
+   */
+  public Collection<MesosComputer> getComputers() {
+    return Collections.unmodifiableCollection(computers.values());
+  }
+
+  public int size() {
+    return computers.size();
+  }
+}
@@ -5,6 +5,8 @@ import hudson.model.Job;
 import hudson.model.Run;
 
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
 
 public class MesosBuiltOnProjectAction extends InvisibleAction {
 
@@ -41,4 +43,24 @@ public class MesosBuiltOnProjectAction extends InvisibleAction {
         return getFirstActionOrNull(job.getLastBuild(), job.getLastCompletedBuild());
     }
 
+    /**
+     * @param maxBuilds the number of recent builds to look at
+     * @param maxHostnames the number of hostnames after which to stop looking (e.g. 1 for the host of the last build)
+     * @return the Mesos agent hostnames of the recent builds (with a {@link MesosBuiltOnAction}), most recent first
+     */
+    public List<String> getRecentHostnames(int maxBuilds, int maxHostnames) {
+        List<String> hostnames = new ArrayList<>();
+
+        Run<?, ?> run = job.getLastBuild();
+        for (int builds = 0; run != null && builds < maxBuilds && hostnames.size() < maxHostnames; builds++) {
+            MesosBuiltOnAction action = run.getAction(MesosBuiltOnAction.class);
+            if (action != null && action.getMesosAgentHostname() != null) {
+                hostnames.add(action.getMesosAgentHostname());
+            }
+            run = run.getPreviousBuild();
+        }
+
+        return hostnames;
+    }
+
 }
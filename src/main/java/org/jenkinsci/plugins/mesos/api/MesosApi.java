@@ -4,6 +4,7 @@ import hudson.Extension;
 import hudson.model.*;
 import hudson.model.Descriptor.FormException;
 import jenkins.model.Jenkins;
+import net.sf.json.JSONObject;
 import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.plugins.mesos.*;
 import org.jenkinsci.plugins.mesos.Messages;
@@ -12,8 +13,12 @@ import org.jenkinsci.plugins.mesos.config.acl.MesosFrameworkToItemMapper;
 import org.jenkinsci.plugins.mesos.config.slavedefinitions.MesosSlaveDefinitions;
 import org.jenkinsci.plugins.mesos.config.slavedefinitions.MesosSlaveInfo;
 import org.jenkinsci.plugins.mesos.config.slavedefinitions.SlaveDefinitionsConfiguration;
+import org.jenkinsci.plugins.mesos.scheduling.AgentInfoCache;
 import org.jenkinsci.plugins.mesos.scheduling.JenkinsSlave;
+import org.jenkinsci.plugins.mesos.scheduling.OfferPool;
+import org.jenkinsci.plugins.mesos.scheduling.ResourceUsage;
 import org.jenkinsci.plugins.mesos.scheduling.Result;
+import org.jenkinsci.plugins.mesos.scheduling.TaskTable;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
@@ -21,6 +26,7 @@ import org.kohsuke.stapler.interceptor.RequirePOST;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -147,6 +153,93 @@ public class MesosApi extends AbstractModelObject implements UnprotectedRootActi
     throw new Failure(String.format("Corresponding request for taskId '%s' does not exist", taskId));
   }
 
+  /**
+   * Returns the resources (agents, cpus and mem) of pending and active tasks as JSON, in total and by role and label,
+   * as well as the number of tasks per state and offer revive/suppress statistics, for every Mesos cloud with a running
+   * scheduler.
+   *
+   * <br><br>
+   *
+   * Example: &lt;JenkinsURL&gt;/mesos/metrics
+   *
+   * @param rsp Response object which will contain the status code and content type
+   * @return the metrics as JSON
+   */
+  @SuppressWarnings("unused")
+  public String doMetrics(StaplerResponse rsp) {
+    Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+
+    JSONObject metrics = new JSONObject();
+    for (MesosCloud mesosCloud : Mesos.getAllMesosClouds()) {
+      Mesos mesos = Mesos.getInstance(mesosCloud);
+      if (mesos == null || !(mesos.getScheduler() instanceof JenkinsScheduler)) {
+        continue;
+      }
+
+      JenkinsScheduler jenkinsScheduler = (JenkinsScheduler) mesos.getScheduler();
+
+      JSONObject frameworkMetrics = new JSONObject();
+      frameworkMetrics.put("pending", toJSON(jenkinsScheduler.getPendingResourceUsage()));
+      frameworkMetrics.put("active", toJSON(jenkinsScheduler.getActiveResourceUsage()));
+
+      JSONObject taskMetrics = new JSONObject();
+      for (TaskTable.State state : TaskTable.State.values()) {
+        taskMetrics.put(state.name().toLowerCase(), jenkinsScheduler.getNumberOfTasks(state));
+      }
+      frameworkMetrics.put("tasks", taskMetrics);
+
+      JSONObject offerMetrics = new JSONObject();
+      offerMetrics.put("suppressed", jenkinsScheduler.getReviveCoalescer().isSuppressed());
+      offerMetrics.put("requestedRevives", jenkinsScheduler.getReviveCoalescer().getRequestedRevives());
+      offerMetrics.put("sentRevives", jenkinsScheduler.getReviveCoalescer().getSentRevives());
+      offerMetrics.put("sentSuppresses", jenkinsScheduler.getReviveCoalescer().getSentSuppresses());
+      frameworkMetrics.put("offers", offerMetrics);
+
+      OfferPool offerPool = jenkinsScheduler.getOfferPool();
+      JSONObject offerPoolMetrics = new JSONObject();
+      offerPoolMetrics.put("size", offerPool.size());
+      offerPoolMetrics.put("heldOffers", offerPool.getHeldOffers());
+      offerPoolMetrics.put("releasedOffers", offerPool.getReleasedOffers());
+      offerPoolMetrics.put("rejectedOffers", offerPool.getRejectedOffers());
+      offerPoolMetrics.put("rescindedOffers", offerPool.getRescindedOffers());
+      frameworkMetrics.put("offerPool", offerPoolMetrics);
+
+      AgentInfoCache agentInfoCache = jenkinsScheduler.getAgentInfoCache();
+      JSONObject agentInfoCacheMetrics = new JSONObject();
+      agentInfoCacheMetrics.put("size", agentInfoCache.size());
+      agentInfoCacheMetrics.put("hits", agentInfoCache.getHits());
+      agentInfoCacheMetrics.put("misses", agentInfoCache.getMisses());
+      frameworkMetrics.put("agentInfoCache", agentInfoCacheMetrics);
+      metrics.put(mesosCloud.getFrameworkName(), frameworkMetrics);
+    }
+
+    rsp.setStatus(SC_OK);
+    rsp.setContentType("application/json");
+    return metrics.toString();
+  }
+
+  private static JSONObject toJSON(ResourceUsage resourceUsage) {
+    JSONObject json = new JSONObject();
+    json.put("agents", resourceUsage.getAgents());
+    json.put("cpus", resourceUsage.getCpus());
+    json.put("mem", resourceUsage.getMem());
+    json.put("roles", toJSON(resourceUsage.getUsageByRole()));
+    json.put("labels", toJSON(resourceUsage.getUsageByLabel()));
+    return json;
+  }
+
+  private static JSONObject toJSON(Map<String, ResourceUsage.Usage> usages) {
+    JSONObject json = new JSONObject();
+    for (Map.Entry<String, ResourceUsage.Usage> entry : usages.entrySet()) {
+      JSONObject usage = new JSONObject();
+      usage.put("agents", entry.getValue().getAgents());
+      usage.put("cpus", entry.getValue().getCpus());
+      usage.put("mem", entry.getValue().getMem());
+      json.put(entry.getKey(), usage);
+    }
+    return json;
+  }
+
   /**
    * Adds an ACL entry with the specified item pattern and name of the framework to the Mesos Framework to Jenkins
    * Item pattern ACL entries.
@@ -9,6 +9,7 @@ import org.apache.commons.lang.builder.EqualsBuilder;
 import org.apache.commons.lang.builder.HashCodeBuilder;
 import org.apache.mesos.Protos.ContainerInfo.DockerInfo.Network;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.export.Exported;
 import org.kohsuke.stapler.export.ExportedBean;
 
@@ -37,6 +38,8 @@ public class MesosSlaveInfo {
   @Deprecated
   private transient JSONObject slaveAttributes;
   private String slaveAttributesString;
+  /** the requested slave attributes by name, parsed once from {@link #slaveAttributesString} */
+  private transient volatile Map<String, String> slaveAttributesMap;
   private final ContainerInfo containerInfo;
   private final List<URI> additionalURIs;
   private final Mode mode;
@@ -45,6 +48,10 @@ public class MesosSlaveInfo {
 
   private final String labelString;
 
+  private String rolePolicy;
+
+  private String fitnessRater;
+
   private static final Logger LOGGER = Logger.getLogger(MesosSlaveInfo.class
       .getName());
 
@@ -193,6 +200,41 @@ public class MesosSlaveInfo {
     return parseSlaveAttributes(slaveAttributesString);
   }
 
+  /**
+   * @return the requested slave attributes as configured (JSON), or null
+   */
+  public String getSlaveAttributesString() {
+    return slaveAttributesString;
+  }
+
+  /**
+   * @return the requested slave attributes by name (parsed once), empty if there are none or they are malformed
+   */
+  public Map<String, String> getSlaveAttributesMap() {
+    Map<String, String> attributes = slaveAttributesMap;
+    if (attributes == null) {
+      attributes = toAttributesMap(parseSlaveAttributes(slaveAttributesString));
+      slaveAttributesMap = attributes;
+    }
+
+    return attributes;
+  }
+
+  private static Map<String, String> toAttributesMap(JSONObject slaveAttributes) {
+    if (slaveAttributes == null || slaveAttributes.isEmpty()) {
+      return Collections.emptyMap();
+    }
+
+    Map<String, String> attributes = new LinkedHashMap<>();
+    Iterator iterator = slaveAttributes.keys();
+    while (iterator.hasNext()) {
+      String key = (String) iterator.next();
+      attributes.put(key, slaveAttributes.getString(key));
+    }
+
+    return Collections.unmodifiableMap(attributes);
+  }
+
   public String getJvmArgs() {
     return jvmArgs;
   }
@@ -218,6 +260,31 @@ public class MesosSlaveInfo {
     return additionalCommands;
   }
 
+  /**
+   * @return the role policy of the requests for this slave info, or null to use the role policy of the cloud
+   */
+  public String getRolePolicy() {
+    return rolePolicy;
+  }
+
+  @DataBoundSetter
+  public void setRolePolicy(String rolePolicy) {
+    this.rolePolicy = StringUtils.stripToNull(rolePolicy);
+  }
+
+  /**
+   * @return the fitness rater (name or weighted composite) for the requests of this slave info, or null to use the
+   * fitness rater of the cloud
+   */
+  public String getFitnessRater() {
+    return fitnessRater;
+  }
+
+  @DataBoundSetter
+  public void setFitnessRater(String fitnessRater) {
+    this.fitnessRater = StringUtils.stripToNull(fitnessRater);
+  }
+
   /**
    * Removes any additional {@code -Xmx} JVM args from the provided JVM
    * arguments. This is to ensure that the logic that sets the maximum heap
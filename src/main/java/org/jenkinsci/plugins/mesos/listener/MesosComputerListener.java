@@ -0,0 +1,66 @@
+package org.jenkinsci.plugins.mesos.listener;
+
+import hudson.Extension;
+import hudson.model.Computer;
+import hudson.model.TaskListener;
+import hudson.slaves.ComputerListener;
+import org.apache.mesos.Scheduler;
+import org.jenkinsci.plugins.mesos.JenkinsScheduler;
+import org.jenkinsci.plugins.mesos.Mesos;
+import org.jenkinsci.plugins.mesos.MesosComputer;
+import org.jenkinsci.plugins.mesos.MesosSlave;
+import org.jenkinsci.plugins.mesos.MesosSlaveRegistry;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the scheduler informed about the connection state of Mesos agents and registers their computers in the
+ * {@link MesosSlaveRegistry}.
+ */
+@Extension
+public class MesosComputerListener extends ComputerListener {
+
+  private static final Logger LOGGER = Logger.getLogger(MesosComputerListener.class.getName());
+
+  @Override
+  public void preLaunch(Computer c, TaskListener taskListener) {
+    // before the task of the agent is requested, so that its status updates find the agent
+    if (c instanceof MesosComputer) {
+      MesosSlaveRegistry.getInstance().register((MesosComputer) c);
+    }
+  }
+
+  @Override
+  public void onOnline(Computer c, TaskListener listener) {
+    if (!(c instanceof MesosComputer)) {
+      return;
+    }
+
+    MesosSlaveRegistry.getInstance().register((MesosComputer) c);
+
+    try {
+      MesosSlave mesosSlave = ((MesosComputer) c).getNode();
+      if (mesosSlave == null) {
+        return;
+      }
+
+      JenkinsScheduler jenkinsScheduler = getScheduler(mesosSlave);
+      if (jenkinsScheduler != null) {
+        jenkinsScheduler.agentConnected(mesosSlave.getNodeName());
+      }
+    } catch (Exception e) {
+      LOGGER.log(Level.WARNING, "Error while marking agent '" + c.getName() + "' as connected", e);
+    }
+  }
+
+  private static JenkinsScheduler getScheduler(MesosSlave mesosSlave) {
+    Mesos mesos = Mesos.getInstance(mesosSlave.getCloud());
+    if (mesos == null) {
+      return null;
+    }
+
+    Scheduler scheduler = mesos.getScheduler();
+    return scheduler instanceof JenkinsScheduler ? (JenkinsScheduler) scheduler : null;
+  }
+}
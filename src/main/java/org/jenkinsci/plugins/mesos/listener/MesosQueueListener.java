@@ -14,6 +14,7 @@ import org.jenkinsci.plugins.mesos.Mesos;
 import org.jenkinsci.plugins.mesos.MesosCloud;
 import org.jenkinsci.plugins.mesos.config.slavedefinitions.MesosSlaveInfo;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -43,13 +44,14 @@ public class MesosQueueListener extends QueueListener {
   /***
    * Collect cancelled Items from queue
    * due to the fact, that for every buildable item (Labeltype Mesos) was sent a mesos request, this request must be
-   * cancelled.
+   * cancelled. The requests are removed on the event loops of the schedulers, the queue is not blocked meanwhile.
    * @param li item which left the queue
    */
   @Override
   public void onLeft(Queue.LeftItem li) {
     try {
       if (li.isCancelled() && li.getAssignedLabel() != null) {
+        CompletableFuture<Boolean> removed = CompletableFuture.completedFuture(false);
         Jenkins jenkins = Jenkins.get();
         for (Cloud cloud : jenkins.clouds) {
           if (cloud instanceof MesosCloud) {
@@ -60,9 +62,11 @@ public class MesosQueueListener extends QueueListener {
               if (scheduler != null) {
                 if (scheduler instanceof JenkinsScheduler) {
                   JenkinsScheduler jenkinsScheduler = (JenkinsScheduler) scheduler;
-                  if (jenkinsScheduler.removeRequestForLinkedItem(mesosCloud.getFullNameOfTask(li.task))) {
-                    return; //it should only remove one task
-                  }
+                  String linkedItem = mesosCloud.getFullNameOfTask(li.task);
+                  // it should only remove one task, thus ask the next scheduler only if this one had none
+                  removed = removed.thenCompose(isRemoved -> isRemoved
+                          ? CompletableFuture.completedFuture(true)
+                          : jenkinsScheduler.removeRequestForLinkedItem(linkedItem));
                 }
               }
             }
@@ -0,0 +1,62 @@
+package org.jenkinsci.plugins.mesos.scheduling;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates framework scoped, sequence based agent names (which are used as Mesos task ids as well).
+ *
+ * Names have the form <code>&lt;label&gt;-&lt;epoch&gt;-&lt;sequence&gt;</code>, where the epoch (start time of
+ * this Jenkins instance) keeps names unique across restarts and the sequence is counted per framework. Epoch and
+ * sequence are base 36 encoded. Unlike random UUIDs, no entropy is needed on the request path and the sequence can be
+ * used to track finished tasks compactly (see {@link TaskTombstones}).
+ */
+public class AgentIdGenerator {
+
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private static final Map<String, AgentIdGenerator> GENERATORS = new ConcurrentHashMap<>();
+
+    private final String suffix;
+    private final AtomicLong sequence = new AtomicLong();
+
+    AgentIdGenerator(String epoch) {
+        this.suffix = "-" + epoch + "-";
+    }
+
+    /**
+     * @param frameworkName the name of the framework
+     * @return the generator of the framework
+     */
+    public static AgentIdGenerator forFramework(String frameworkName) {
+        return GENERATORS.computeIfAbsent(String.valueOf(frameworkName), k -> new AgentIdGenerator(EPOCH));
+    }
+
+    public String nextName(String label) {
+        return label + suffix + Long.toString(sequence.getAndIncrement(), Character.MAX_RADIX);
+    }
+
+    /**
+     * @param name the name of an agent
+     * @return the sequence number of the name, or -1 if the name was not generated by this generator (e.g. before a
+     * restart of Jenkins)
+     */
+    public long getSequence(String name) {
+        int index = name.lastIndexOf(suffix);
+        if (index < 0) {
+            return -1;
+        }
+
+        String sequence = name.substring(index + suffix.length());
+        if (sequence.isEmpty() || sequence.indexOf('-') >= 0) {
+            return -1;
+        }
+
+        try {
+            long value = Long.parseLong(sequence, Character.MAX_RADIX);
+            return value < this.sequence.get() ? value : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.jenkinsci.plugins.mesos.scheduling;
+
+import net.sf.json.JSONObject;
+import org.apache.commons.lang.StringUtils;
+import org.apache.mesos.Protos;
+import org.jenkinsci.plugins.mesos.config.slavedefinitions.MesosSlaveInfo;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The static data of a Mesos agent, i.e. its hostname and attributes, which are the same for all its offers and rarely
+ * change. The results of matching the attributes against the requested attributes of slave infos are kept as well.
+ *
+ * See {@link AgentInfoCache} to reuse instances across offer cycles.
+ */
+public final class AgentInfo {
+
+    private final String hostname;
+    private final List<Protos.Attribute> attributesList;
+    private final int fingerprint;
+    private final Map<String, String> attributes;
+
+    /** match results by requested attributes (as configured) */
+    private final ConcurrentMap<String, Boolean> attributeMatches = new ConcurrentHashMap<>();
+
+    private AgentInfo(Protos.Offer offer) {
+        this.hostname = offer.getHostname();
+        this.attributesList = offer.getAttributesList();
+        this.fingerprint = fingerprint(offer);
+
+        //Collect the list of attributes from the offer as key-value pairs
+        Map<String, String> offeredAttributes = new LinkedHashMap<>();
+        for (Protos.Attribute attribute : attributesList) {
+            offeredAttributes.put(attribute.getName(), attribute.getText().getValue());
+        }
+        this.attributes = Collections.unmodifiableMap(offeredAttributes);
+    }
+
+    /**
+     * @return the (uncached) static data of the agent of the offer
+     */
+    public static AgentInfo of(Protos.Offer offer) {
+        return new AgentInfo(offer);
+    }
+
+    static int fingerprint(Protos.Offer offer) {
+        // hash codes of protobuf messages are memoized
+        return 31 * offer.getHostname().hashCode() + offer.getAttributesList().hashCode();
+    }
+
+    /**
+     * @return whether the hostname and attributes of the offer are still the same
+     */
+    boolean isUpToDate(Protos.Offer offer, int offerFingerprint) {
+        return fingerprint == offerFingerprint
+                && hostname.equals(offer.getHostname())
+                && attributesList.equals(offer.getAttributesList());
+    }
+
+    public String getHostname() {
+        return hostname;
+    }
+
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+    public boolean hasAttribute(String key, String value) {
+        return attributes.containsKey(key) && StringUtils.equals(attributes.get(key), value);
+    }
+
+    public boolean hasAllAttributes(JSONObject requestedAttributes) {
+        if (requestedAttributes != null && !requestedAttributes.isEmpty()) {
+            //Iterate over the cloud attributes to see if they exist in the offer attributes list.
+            Iterator iterator = requestedAttributes.keys();
+            while (iterator.hasNext()) {
+                String key = (String) iterator.next();
+                String value = requestedAttributes.getString(key);
+
+                //If there is a single absent attribute then we should reject this offer.
+                if (!hasAttribute(key, value)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    public boolean hasAllAttributes(Map<String, String> requestedAttributes) {
+        for (Map.Entry<String, String> requestedAttribute : requestedAttributes.entrySet()) {
+            if (!hasAttribute(requestedAttribute.getKey(), requestedAttribute.getValue())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return whether the agent has all attributes requested by the slave info, computed once per requested attributes
+     */
+    public boolean hasAllAttributes(final MesosSlaveInfo slaveInfo) {
+        String requestedAttributes = slaveInfo != null ? slaveInfo.getSlaveAttributesString() : null;
+        if (StringUtils.isBlank(requestedAttributes)) {
+            return true;
+        }
+
+        return attributeMatches.computeIfAbsent(requestedAttributes, k -> hasAllAttributes(slaveInfo.getSlaveAttributesMap()));
+    }
+}
@@ -0,0 +1,62 @@
+package org.jenkinsci.plugins.mesos.scheduling;
+
+import org.apache.mesos.Protos;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of the {@link AgentInfo} of Mesos agents by agent id, reused across offer cycles.
+ *
+ * An entry is replaced when the hostname or attributes offered by the agent changed, and the least recently used
+ * entries are evicted when more than {@link #MAX_AGENTS} agents are known.
+ */
+public class AgentInfoCache {
+
+    public static final int MAX_AGENTS = 4096;
+
+    private final Map<String, AgentInfo> agentInfos = new LinkedHashMap<String, AgentInfo>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, AgentInfo> eldest) {
+            return size() > MAX_AGENTS;
+        }
+    };
+
+    private volatile long hits;
+    private volatile long misses;
+
+    /**
+     * @return the (cached) static data of the agent of the offer
+     */
+    public synchronized AgentInfo get(Protos.Offer offer) {
+        String agentId = offer.getSlaveId().getValue();
+        int fingerprint = AgentInfo.fingerprint(offer);
+
+        AgentInfo agentInfo = agentInfos.get(agentId);
+        if (agentInfo != null && agentInfo.isUpToDate(offer, fingerprint)) {
+            hits++;
+            return agentInfo;
+        }
+
+        misses++;
+        agentInfo = AgentInfo.of(offer);
+        agentInfos.put(agentId, agentInfo);
+        return agentInfo;
+    }
+
+    public synchronized void invalidate(Protos.SlaveID agentId) {
+        agentInfos.remove(agentId.getValue());
+    }
+
+    public synchronized int size() {
+        return agentInfos.size();
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,86 @@
+package org.jenkinsci.plugins.mesos.scheduling;
+
+import org.jenkinsci.plugins.mesos.config.slavedefinitions.MesosSlaveInfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inverted index of the leases of an offer cycle by the attributes (name and value) of their agents, so that requests
+ * with attribute constraints are only rated against the leases of matching agents.
+ *
+ * The index is built on the first request with attribute constraints. Like the leases, it is owned by the offer cycle.
+ */
+public class AttributeIndex {
+
+    private final List<Lease> leases;
+
+    /** leases by attribute name and value, in the order of {@link #leases} */
+    private Map<String, Map<String, List<Lease>>> leasesByAttribute;
+
+    public AttributeIndex(List<Lease> leases) {
+        this.leases = leases;
+    }
+
+    /**
+     * @return the leases of agents having all attributes requested by the slave info, in the order of the leases of the
+     * offer cycle
+     */
+    public List<Lease> getCandidates(MesosSlaveInfo slaveInfo) {
+        Map<String, String> requestedAttributes = slaveInfo != null ? slaveInfo.getSlaveAttributesMap() : Collections.emptyMap();
+        if (requestedAttributes.isEmpty()) {
+            return leases;
+        }
+
+        // intersect starting with the most selective attribute
+        List<Lease> smallestMatch = null;
+        for (Map.Entry<String, String> requestedAttribute : requestedAttributes.entrySet()) {
+            List<Lease> match = getLeases(requestedAttribute.getKey(), requestedAttribute.getValue());
+            if (match.isEmpty()) {
+                return Collections.emptyList();
+            }
+            if (smallestMatch == null || match.size() < smallestMatch.size()) {
+                smallestMatch = match;
+            }
+        }
+
+        List<Lease> candidates = new ArrayList<>(smallestMatch.size());
+        for (Lease lease : smallestMatch) {
+            if (lease.getAgentInfo().hasAllAttributes(requestedAttributes)) {
+                candidates.add(lease);
+            }
+        }
+
+        return candidates;
+    }
+
+    private List<Lease> getLeases(String name, String value) {
+        if (leasesByAttribute == null) {
+            leasesByAttribute = buildIndex(leases);
+        }
+
+        Map<String, List<Lease>> leasesByValue = leasesByAttribute.get(name);
+        if (leasesByValue == null) {
+            return Collections.emptyList();
+        }
+
+        List<Lease> match = leasesByValue.get(value);
+        return match != null ? match : Collections.emptyList();
+    }
+
+    private static Map<String, Map<String, List<Lease>>> buildIndex(List<Lease> leases) {
+        Map<String, Map<String, List<Lease>>> index = new HashMap<>();
+        for (Lease lease : leases) {
+            for (Map.Entry<String, String> attribute : lease.getAgentInfo().getAttributes().entrySet()) {
+                index.computeIfAbsent(attribute.getKey(), k -> new HashMap<>())
+                        .computeIfAbsent(attribute.getValue(), k -> new ArrayList<>())
+                        .add(lease);
+            }
+        }
+
+        return index;
+    }
+}
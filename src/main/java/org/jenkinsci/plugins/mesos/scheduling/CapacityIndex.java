@@ -0,0 +1,153 @@
+package org.jenkinsci.plugins.mesos.scheduling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Index of the leases of an offer cycle by their available cpus, so that a request only visits the leases which may
+ * have enough cpus and mem for it.
+ *
+ * The totals of all roles are compared, thus the index only skips leases which cannot fit a request at all, whether a
+ * lease fits the roles of a request is still up to the raters. The index must be {@link #update(Lease) updated} after
+ * resources of a lease were assigned. Like the leases, it is owned by the offer cycle.
+ */
+public class CapacityIndex {
+
+    /** the leases in the order of the offer cycle, the index refers to them by their position */
+    private final Lease[] leases;
+
+    /** the positions of the leases, sorted by their available cpus (descending) */
+    private final int[] positionsByCpus;
+    /** the available cpus of the leases in {@link #positionsByCpus} */
+    private final double[] availableCpus;
+    /** indices into {@link #positionsByCpus} by position of the lease */
+    private final int[] sortedIndices;
+
+    /** the positions of the candidates of a request, reused for all requests of the offer cycle */
+    private final BitSet candidatePositions;
+
+    public CapacityIndex(List<Lease> leases) {
+        this.leases = leases.toArray(new Lease[0]);
+
+        final double[] cpus = new double[this.leases.length];
+        Integer[] positions = new Integer[this.leases.length];
+        for (int i = 0; i < positions.length; i++) {
+            cpus[i] = this.leases[i].getTotalAvailableCpus();
+            positions[i] = i;
+        }
+        // stable, so that leases with the same cpus keep their order
+        Arrays.sort(positions, (first, second) -> Double.compare(cpus[second], cpus[first]));
+
+        positionsByCpus = new int[positions.length];
+        availableCpus = new double[positions.length];
+        sortedIndices = new int[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            positionsByCpus[i] = positions[i];
+            availableCpus[i] = cpus[positions[i]];
+            sortedIndices[positions[i]] = i;
+        }
+
+        candidatePositions = new BitSet(this.leases.length);
+    }
+
+    /**
+     * @return the leases which may fit the requested agent, in the order of the leases of the offer cycle
+     */
+    public List<Lease> getCandidates(JenkinsSlave.RequestJenkinsSlave requestedAgent) {
+        int leasesWithEnoughCpus = countLeasesWithCpus(requestedAgent.getCpus());
+
+        // mark the positions of the candidates, so that they are collected in cycle order without sorting
+        candidatePositions.clear();
+        int numberOfCandidates = 0;
+        for (int i = 0; i < leasesWithEnoughCpus; i++) {
+            int position = positionsByCpus[i];
+            if (leases[position].getTotalAvailableMem() >= requestedAgent.getMem()) {
+                candidatePositions.set(position);
+                numberOfCandidates++;
+            }
+        }
+
+        List<Lease> candidates = new ArrayList<>(numberOfCandidates);
+        for (int position = candidatePositions.nextSetBit(0); position >= 0; position = candidatePositions.nextSetBit(position + 1)) {
+            candidates.add(leases[position]);
+        }
+        return candidates;
+    }
+
+    /**
+     * @return the given leases which may fit the requested agent, in their order
+     */
+    public static List<Lease> filter(JenkinsSlave.RequestJenkinsSlave requestedAgent, List<Lease> leases) {
+        List<Lease> candidates = new ArrayList<>(leases.size());
+        for (Lease lease : leases) {
+            if (lease.getTotalAvailableCpus() >= requestedAgent.getCpus() && lease.getTotalAvailableMem() >= requestedAgent.getMem()) {
+                candidates.add(lease);
+            }
+        }
+
+        return candidates;
+    }
+
+    /**
+     * Moves the lease to its new position, after resources of the lease were assigned.
+     */
+    public void update(Lease lease) {
+        int position = getPosition(lease);
+        if (position < 0) {
+            return;
+        }
+
+        // assignments only consume capacity, so the lease moves towards the end
+        double cpus = lease.getTotalAvailableCpus();
+        int i = sortedIndices[position];
+        while (i + 1 < positionsByCpus.length && availableCpus[i + 1] > cpus) {
+            positionsByCpus[i] = positionsByCpus[i + 1];
+            availableCpus[i] = availableCpus[i + 1];
+            sortedIndices[positionsByCpus[i]] = i;
+            i++;
+        }
+
+        positionsByCpus[i] = position;
+        availableCpus[i] = cpus;
+        sortedIndices[position] = i;
+    }
+
+    /**
+     * @return the position of the lease, or -1 if it is not indexed
+     */
+    private int getPosition(Lease lease) {
+        // the leases of an offer cycle are usually indexed in the order of their matching context
+        int position = lease.getMatchingIndex();
+        if (position >= 0 && position < leases.length && leases[position] == lease) {
+            return position;
+        }
+
+        for (int i = 0; i < leases.length; i++) {
+            if (leases[i] == lease) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the number of leases (at the start of {@link #positionsByCpus}) with at least the requested cpus, found by
+     * a binary search in {@link #availableCpus}
+     */
+    private int countLeasesWithCpus(double requestedCpus) {
+        int low = 0;
+        int high = availableCpus.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (availableCpus[middle] >= requestedCpus) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+}
@@ -5,29 +5,46 @@ import org.jenkinsci.plugins.mesos.config.slavedefinitions.MesosSlaveInfo;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 
 public abstract class JenkinsSlave {
 
+    /**
+     * Uses the resources reserved for the role only.
+     */
     public static class RoleCapped extends RequestJenkinsSlave {
 
+        public static final String NAME = "RoleCapped";
+
         public RoleCapped(String name, String label, Integer numExecutors, String linkedItem, String lastBuildHostname, Long estimatedDuration, Double cpus, Double mem, Set<MesosSlaveInfo.PortMapping> portMappings, String role) {
-            super(name, label, numExecutors, linkedItem, lastBuildHostname, estimatedDuration, cpus, mem, portMappings, new LinkedHashSet<>(Arrays.asList(SHARED_ROLE, role)));
+            super(name, label, numExecutors, linkedItem, lastBuildHostname, estimatedDuration, cpus, mem, portMappings, new LinkedHashSet<>(Collections.singletonList(role)));
         }
 
     }
 
+    /**
+     * Uses the resources reserved for the role first, and shared resources for the rest.
+     */
     public static class RoleResourcesFirst extends RequestJenkinsSlave {
 
+        public static final String NAME = "RoleResourcesFirst";
+
         public RoleResourcesFirst(String name, String label, Integer numExecutors, String linkedItem, String lastBuildHostname, Long estimatedDuration, Double cpus, Double mem, Set<MesosSlaveInfo.PortMapping> portMappings, String role) {
-            super(name, label, numExecutors, linkedItem, lastBuildHostname, estimatedDuration, cpus, mem, portMappings, new LinkedHashSet<>(Arrays.asList(SHARED_ROLE, role)));
+            super(name, label, numExecutors, linkedItem, lastBuildHostname, estimatedDuration, cpus, mem, portMappings, new LinkedHashSet<>(Arrays.asList(role, SHARED_ROLE)));
         }
 
     }
 
+    /**
+     * Uses shared resources first, and the resources reserved for the role for the rest.
+     */
     public static class SharedResourcesFirst extends RequestJenkinsSlave {
 
+        public static final String NAME = "SharedResourcesFirst";
+
         public SharedResourcesFirst(String name, String label, Integer numExecutors, String linkedItem, String lastBuildHostname, Long estimatedDuration, Double cpus, Double mem, Set<MesosSlaveInfo.PortMapping> portMappings, String role) {
             super(name, label, numExecutors, linkedItem, lastBuildHostname, estimatedDuration, cpus, mem, portMappings, new LinkedHashSet<>(Arrays.asList(SHARED_ROLE, role)));
         }
@@ -40,13 +57,30 @@ public abstract class JenkinsSlave {
         private final String lastBuildHostname;
         private final Long estimatedDuration;
         private final Set<MesosSlaveInfo.PortMapping> portMappings;
+        private Map<String, Double> buildHostWeights;
+
+        /**
+         * Creates a request of the given type ({@link RoleCapped#NAME}, {@link RoleResourcesFirst#NAME} or
+         * {@link SharedResourcesFirst#NAME}, the latter for unknown types).
+         */
+        public static RequestJenkinsSlave create(String type, String name, String label, Integer numExecutors, String linkedItem, String lastBuildHostname, Long estimatedDuration, Double cpus, Double mem, Set<MesosSlaveInfo.PortMapping> portMappings, String role) {
+            if (StringUtils.equals(type, RoleCapped.NAME)) {
+                return new RoleCapped(name, label, numExecutors, linkedItem, lastBuildHostname, estimatedDuration, cpus, mem, portMappings, role);
+            }
+            if (StringUtils.equals(type, RoleResourcesFirst.NAME)) {
+                return new RoleResourcesFirst(name, label, numExecutors, linkedItem, lastBuildHostname, estimatedDuration, cpus, mem, portMappings, role);
+            }
+
+            return new SharedResourcesFirst(name, label, numExecutors, linkedItem, lastBuildHostname, estimatedDuration, cpus, mem, portMappings, role);
+        }
 
         public RequestJenkinsSlave(String name, String label, Integer numExecutors, String linkedItem, String lastBuildHostname, Long estimatedDuration, Double cpus, Double mem, Set<MesosSlaveInfo.PortMapping> portMappings, Set<String> roles) {
             super(name, label, numExecutors, linkedItem, cpus, mem, roles);
 
             this.lastBuildHostname = lastBuildHostname;
-            this.portMappings = portMappings;
+            this.portMappings = Collections.unmodifiableSet(portMappings);
             this.estimatedDuration = estimatedDuration;
+            this.buildHostWeights = getLastBuildHostWeight();
         }
 
         public String getLastBuildHostname() {
@@ -57,8 +91,31 @@ public abstract class JenkinsSlave {
             return estimatedDuration;
         }
 
+        /**
+         * @return the hosts of the recent builds of the linked item, weighted by recency (the most recent host has 1.0),
+         * or only the host of the last build if unknown
+         */
+        public Map<String, Double> getBuildHostWeights() {
+            return buildHostWeights;
+        }
+
+        public void setBuildHostWeights(Map<String, Double> buildHostWeights) {
+            if (buildHostWeights.isEmpty()) {
+                this.buildHostWeights = getLastBuildHostWeight();
+            } else {
+                this.buildHostWeights = Collections.unmodifiableMap(new LinkedHashMap<>(buildHostWeights));
+            }
+        }
+
+        private Map<String, Double> getLastBuildHostWeight() {
+            if (StringUtils.isNotBlank(lastBuildHostname)) {
+                return Collections.singletonMap(lastBuildHostname, 1.0);
+            }
+            return Collections.emptyMap();
+        }
+
         public Set<MesosSlaveInfo.PortMapping> getPortMappings() {
-            return Collections.unmodifiableSet(portMappings);
+            return portMappings;
         }
 
         public MesosSlaveInfo.PortMapping getPortMapping(int containerPort) {
@@ -142,7 +199,8 @@ public abstract class JenkinsSlave {
         this.mem = mem;
 
         this.mainRole = getMainRole(roles);
-        this.roles = roles;
+        // the view is created once, the roles are read for every lease a request is rated against
+        this.roles = Collections.unmodifiableSet(roles);
     }
 
     private String getMainRole(Set<String> roles) {
@@ -184,8 +242,18 @@ public abstract class JenkinsSlave {
         return mainRole;
     }
 
+    /**
+     * @return the roles whose resources may be used, in the order they should be used
+     */
     public Set<String> getRoles() {
-        return Collections.unmodifiableSet(roles);
+        return roles;
+    }
+
+    /**
+     * @return the role whose resources should be used first
+     */
+    public String getPreferredRole() {
+        return roles.iterator().next();
     }
 
     @Override
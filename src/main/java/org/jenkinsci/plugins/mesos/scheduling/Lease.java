@@ -2,8 +2,8 @@ package org.jenkinsci.plugins.mesos.scheduling;
 
 
 import net.sf.json.JSONObject;
-import org.apache.commons.lang.StringUtils;
 import org.apache.mesos.Protos;
+import org.jenkinsci.plugins.mesos.config.slavedefinitions.MesosSlaveInfo;
 
 import javax.annotation.Nonnull;
 import java.util.*;
@@ -24,40 +24,71 @@ public class Lease {
     private static final String MEM_NAME = "mem";
     private static final String PORTS_NAME = "ports";
 
+    private static final int INITIAL_UNDO_LOG_SIZE = 8;
+
     private final String id;
-    private final String hostname;
+    private final AgentInfo agentInfo;
     private final List<Protos.Offer> offers;
     private final Map<Protos.TaskInfo, Request> assignments;
 
-    private final Map<String, Map<String, Double>> availableScalarResources;
-    private final Map<String, Map<String, List<Protos.Value.Range>>> availableRangeResources;
+    /** indices of the (interned) resource names and roles in the resource vectors */
+    private final Map<String, Integer> resourceIndices;
+    private final Map<String, Integer> roleIndices;
+
+    /** available scalar resources by resource and role (see {@link #getSlot(String, String)}), NaN if not offered */
+    private final double[] availableScalarResources;
+    /** available range resources by resource and role (see {@link #getSlot(String, String)}), null if not offered */
+    private final RangeSet[] availableRangeResources;
+
+    /** undo log of the assignment in progress: slots and their previous values */
+    private int[] undoSlots = new int[INITIAL_UNDO_LOG_SIZE];
+    private double[] undoScalars = new double[INITIAL_UNDO_LOG_SIZE];
+    private RangeSet[] undoRanges = new RangeSet[INITIAL_UNDO_LOG_SIZE];
+    private int undoSize;
+
+    /** unavailability windows of the offers (epoch millis), decoded once */
+    private final long[] unavailabilityStarts;
+    private final long[] unavailabilityEnds;
+    private final int unavailabilityCount;
 
-    private final Map<String, String> availableAttributes;
+    /** the offer cycle of this lease, also the reference time for availability checks */
+    private final MatchingContext matchingContext;
+    /** index of this lease in the offer cycle */
+    private final int matchingIndex;
 
     /**
      * Create a {@link Lease} out of multiple Offer objects.
      *
-     * Note: Right now Mesos does not provide multiple offers per slave at once per framework (at least this seems true
-     * for our allocator). Nevertheless, it is possible to provide multiple offers via the
-     * {@link org.apache.mesos.SchedulerDriver#launchTasks(java.util.Collection, java.util.Collection)} thus providing this constructor for
-     * possible future use.
+     * Note: The allocator may split the resources of a Mesos agent into multiple offers (e.g. reserved and unreserved
+     * resources, or after partially declined offers). All of them can be used at once via
+     * {@link org.apache.mesos.SchedulerDriver#launchTasks(java.util.Collection, java.util.Collection)}.
      *
-     * @param hostname the hostname of the Mesos agent
+     * @param matchingContext the matching context of the offer cycle
+     * @param agentInfo the hostname and attributes of the Mesos agent
      * @param offers the offers the Mesos agent provides
      */
-    private Lease(@Nonnull String hostname, @Nonnull Protos.Offer... offers) {
+    private Lease(@Nonnull MatchingContext matchingContext, @Nonnull AgentInfo agentInfo, @Nonnull Protos.Offer... offers) {
         this.id = generateId(offers);
-        this.hostname = hostname;
+        this.matchingContext = matchingContext;
+        this.matchingIndex = matchingContext.nextLeaseIndex();
+        this.agentInfo = agentInfo;
         this.offers = Arrays.asList(offers);
 
         this.assignments = new LinkedHashMap<>();
 
-        this.availableScalarResources = new LinkedHashMap<>();
-        this.availableRangeResources = new LinkedHashMap<>();
+        this.resourceIndices = new HashMap<>();
+        this.roleIndices = new LinkedHashMap<>();
+        internResourcesAndRoles();
+
+        int slots = resourceIndices.size() * roleIndices.size();
+        this.availableScalarResources = new double[slots];
+        Arrays.fill(availableScalarResources, Double.NaN);
+        this.availableRangeResources = new RangeSet[slots];
         initializeAvailableResources();
 
-        this.availableAttributes = new LinkedHashMap<>();
-        initializeAttributes();
+        this.unavailabilityStarts = new long[offers.length];
+        this.unavailabilityEnds = new long[offers.length];
+        this.unavailabilityCount = initializeUnavailabilities();
     }
 
     /**
@@ -66,7 +97,37 @@ public class Lease {
      * @param offer the Offer
      */
     public Lease(@Nonnull Protos.Offer offer) {
-        this(offer.getHostname(), offer);
+        this(new MatchingContext(System.currentTimeMillis()), AgentInfo.of(offer), offer);
+    }
+
+    /**
+     * Create a lease (meta offer) out of all offers from the same Mesos agent.
+     *
+     * @param offers the offers, all from the same agent
+     */
+    public Lease(@Nonnull List<Protos.Offer> offers) {
+        this(offers, System.currentTimeMillis());
+    }
+
+    /**
+     * Create a lease (meta offer) out of all offers from the same Mesos agent, for an offer cycle.
+     *
+     * @param offers the offers, all from the same agent
+     * @param cycleStartMillis the start of the offer cycle (epoch millis), shared by all leases of the cycle
+     */
+    public Lease(@Nonnull List<Protos.Offer> offers, long cycleStartMillis) {
+        this(offers, new MatchingContext(cycleStartMillis), AgentInfo.of(offers.get(0)));
+    }
+
+    /**
+     * Create a lease (meta offer) out of all offers from the same Mesos agent, for an offer cycle.
+     *
+     * @param offers the offers, all from the same agent
+     * @param matchingContext the matching context of the offer cycle, shared by all leases of the cycle
+     * @param agentInfo the (cached) hostname and attributes of the agent, see {@link AgentInfoCache}
+     */
+    public Lease(@Nonnull List<Protos.Offer> offers, @Nonnull MatchingContext matchingContext, @Nonnull AgentInfo agentInfo) {
+        this(matchingContext, agentInfo, offers.toArray(new Protos.Offer[0]));
     }
 
     private String generateId(Protos.Offer... offers) {
@@ -80,13 +141,47 @@ public class Lease {
         return leaseId.toString();
     }
 
-    private void initializeAttributes() {
-        //Collect the list of attributes from the offer as key-value pairs
+    /**
+     * @return the number of offers with an unavailability
+     */
+    private int initializeUnavailabilities() {
+        int count = 0;
         for (Protos.Offer offer: offers) {
-            for (Protos.Attribute attribute : offer.getAttributesList()) {
-                availableAttributes.put(attribute.getName(), attribute.getText().getValue());
+            if (offer.hasUnavailability()) {
+                Protos.Unavailability unavailability = offer.getUnavailability();
+
+                long start = TimeUnit.NANOSECONDS.toMillis(unavailability.getStart().getNanoseconds());
+                unavailabilityStarts[count] = start;
+                unavailabilityEnds[count] = start + TimeUnit.NANOSECONDS.toMillis(unavailability.getDuration().getNanoseconds());
+                count++;
             }
         }
+
+        return count;
+    }
+
+    private void internResourcesAndRoles() {
+        for (Protos.Offer offer: offers) {
+            for (Protos.Resource resource: offer.getResourcesList()) {
+                if (resource.getType() == Protos.Value.Type.SCALAR || resource.getType() == Protos.Value.Type.RANGES) {
+                    resourceIndices.putIfAbsent(resource.getName(), resourceIndices.size());
+                    roleIndices.putIfAbsent(resource.getRole(), roleIndices.size());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the index of the resource of the role in the resource vectors, or -1 if not offered at all
+     */
+    private int getSlot(String name, String role) {
+        Integer resourceIndex = resourceIndices.get(name);
+        Integer roleIndex = roleIndices.get(role);
+        if (resourceIndex == null || roleIndex == null) {
+            return -1;
+        }
+
+        return resourceIndex * roleIndices.size() + roleIndex;
     }
 
     private void initializeAvailableResources() {
@@ -109,63 +204,43 @@ public class Lease {
         }
     }
 
-    private boolean hasAttribute(String key, String value) {
-        return availableAttributes.containsKey(key) && StringUtils.equals(availableAttributes.get(key), value);
-    }
-
     public boolean hasAllAttributes(JSONObject requestedAttributes) {
-        if (requestedAttributes != null && !requestedAttributes.isEmpty()) {
-            //Iterate over the cloud attributes to see if they exist in the offer attributes list.
-            Iterator iterator = requestedAttributes.keys();
-            while (iterator.hasNext()) {
-                String key = (String) iterator.next();
-                String value = requestedAttributes.getString(key);
-
-                //If there is a single absent attribute then we should reject this offer.
-                if (!hasAttribute(key, value)) {
-                    return false;
-                }
-            }
-        }
+        return agentInfo.hasAllAttributes(requestedAttributes);
+    }
 
-        return true;
+    /**
+     * @return whether the agent has all attributes requested by the slave info (cached per agent)
+     */
+    public boolean hasAllAttributes(MesosSlaveInfo slaveInfo) {
+        return agentInfo.hasAllAttributes(slaveInfo);
     }
 
     private void addAvailableScalarResource(Protos.Resource resource) {
-        Map<String, Double> availableResources = availableScalarResources.get(resource.getName());
-        if (availableResources == null) {
-            availableResources = new HashMap<>();
-        }
+        int slot = getSlot(resource.getName(), resource.getRole());
 
-        Double availableValue = availableResources.get(resource.getRole());
-        Double currentValue = resource.getScalar().getValue();
-        if (availableValue == null) {
+        double availableValue = availableScalarResources[slot];
+        double currentValue = resource.getScalar().getValue();
+        if (Double.isNaN(availableValue)) {
             availableValue = currentValue;
         } else {
             availableValue += currentValue;
         }
 
-        availableResources.put(resource.getRole(), availableValue);
-        availableScalarResources.put(resource.getName(), availableResources);
+        availableScalarResources[slot] = availableValue;
     }
 
     private void addAvailableRangeResource(Protos.Resource resource) {
-        Map<String, List<Protos.Value.Range>> availableResources = availableRangeResources.get(resource.getName());
-        if (availableResources == null) {
-            availableResources = new HashMap<>();
-        }
+        int slot = getSlot(resource.getName(), resource.getRole());
 
-        List<Protos.Value.Range> availableRanges = availableResources.get(resource.getRole());
-
-        List<Protos.Value.Range> currentRanges = resource.getRanges().getRangeList();
+        RangeSet availableRanges = availableRangeResources[slot];
+        RangeSet currentRanges = RangeSet.of(resource.getRanges().getRangeList());
         if (availableRanges == null) {
-            availableRanges = new ArrayList<>(currentRanges);
+            availableRanges = currentRanges;
         } else {
-            availableRanges.addAll(currentRanges);
+            availableRanges = availableRanges.union(currentRanges);
         }
 
-        availableResources.put(resource.getRole(), availableRanges);
-        availableRangeResources.put(resource.getName(), availableResources);
+        availableRangeResources[slot] = availableRanges;
     }
 
     public List<Protos.Offer> getOffers() {
@@ -195,33 +270,63 @@ public class Lease {
     }
 
     public String getHostname() {
-        return hostname;
+        return agentInfo.getHostname();
+    }
+
+    public AgentInfo getAgentInfo() {
+        return agentInfo;
     }
 
     public String getId() {
         return id;
     }
 
+    public String getAgentId() {
+        return offers.get(0).getSlaveId().getValue();
+    }
 
-    public List<Protos.Value.Range> getAvailableRangeResources(String name, Set<String> roles) {
-        Map<String, List<Protos.Value.Range>> availableResources = availableRangeResources.get(name);
 
+    public List<Protos.Value.Range> getAvailableRangeResources(String name, Set<String> roles) {
         List<Protos.Value.Range> result = new ArrayList<>();
-        if (availableResources != null) {
-            for (String role : roles) {
-                List<Protos.Value.Range> currentRange = availableResources.get(role);
-                if (currentRange != null) {
-                    result.addAll(currentRange);
-                }
+        for (String role : roles) {
+            int slot = getSlot(name, role);
+            if (slot >= 0 && availableRangeResources[slot] != null) {
+                result.addAll(availableRangeResources[slot].toRanges());
             }
         }
 
         return Collections.unmodifiableList(result);
     }
 
+    /**
+     * @return the available values of the range resource of all the roles as one set
+     */
+    public RangeSet getAvailableRangeSet(String name, Set<String> roles) {
+        RangeSet result = RangeSet.EMPTY;
+        for (String role : roles) {
+            int slot = getSlot(name, role);
+            if (slot >= 0 && availableRangeResources[slot] != null) {
+                result = result.union(availableRangeResources[slot]);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the available values of the range resource of the role, empty if not offered
+     */
+    public RangeSet getAvailableRangeSet(String name, String role) {
+        int slot = getSlot(name, role);
+        if (slot < 0 || availableRangeResources[slot] == null) {
+            return RangeSet.EMPTY;
+        }
+
+        return availableRangeResources[slot];
+    }
+
     public List<Protos.Value.Range> getTotalAvailableRangeResources(String name) {
-        Set<String> roles = availableRangeResources.containsKey(name) ? availableRangeResources.get(name).keySet() : Collections.emptySet();
-        return getAvailableRangeResources(name, roles);
+        return getAvailableRangeResources(name, roleIndices.keySet());
     }
 
     public List<Protos.Value.Range> getTotalAvailablePortResources() {
@@ -236,187 +341,190 @@ public class Lease {
         return getAvailableRangeResources(PORTS_NAME, roles);
     }
 
+    public RangeSet getAvailablePortRanges(Set<String> roles) {
+        return getAvailableRangeSet(PORTS_NAME, roles);
+    }
+
     public int getAvailablePortResourcesSize(Set<String> roles) {
-        List<Protos.Value.Range> availablePortResources = getAvailablePortResources(roles);
-        int availableSize = 0;
-        for (Protos.Value.Range portRange : availablePortResources) {
-            long currentSize = portRange.getEnd() - portRange.getBegin() + 1;
-            availableSize += currentSize;
+        long availableSize = 0;
+        for (String role : roles) {
+            int slot = getSlot(PORTS_NAME, role);
+            if (slot >= 0 && availableRangeResources[slot] != null) {
+                availableSize += availableRangeResources[slot].size();
+            }
         }
 
-        return availableSize;
+        return (int) Math.min(Integer.MAX_VALUE, availableSize);
     }
 
 
-    public Double getAvailableScalarResources(String name, Set<String> roles) {
-        Map<String, Double> availableResources = availableScalarResources.get(name);
+    public double getAvailableScalarResources(String name, Set<String> roles) {
+        double availableResourcesValue = 0.0;
 
-        Double availableResourcesValue = 0.0;
-
-        if (availableResources != null) {
-            for (String role : roles) {
-                Double currentValue = availableResources.get(role);
-                if (currentValue != null) {
-                    availableResourcesValue += currentValue;
-                }
+        for (String role : roles) {
+            int slot = getSlot(name, role);
+            if (slot >= 0 && !Double.isNaN(availableScalarResources[slot])) {
+                availableResourcesValue += availableScalarResources[slot];
             }
         }
 
         return availableResourcesValue;
     }
 
-    public Double getTotalAvailableScalarResources(String name) {
-        Set<String> roles = availableScalarResources.containsKey(name) ? availableScalarResources.get(name).keySet() : Collections.emptySet();
-        return getAvailableScalarResources(name, roles);
+    /**
+     * @return the available amount of the scalar resource of the role, 0.0 if not offered
+     */
+    public double getAvailableScalarResource(String name, String role) {
+        int slot = getSlot(name, role);
+        if (slot < 0 || Double.isNaN(availableScalarResources[slot])) {
+            return 0.0;
+        }
+
+        return availableScalarResources[slot];
     }
 
-    public Double getTotalAvailableCpus() {
+    public double getTotalAvailableScalarResources(String name) {
+        Integer resourceIndex = resourceIndices.get(name);
+        if (resourceIndex == null) {
+            return 0.0;
+        }
+
+        // the slots of all roles of the resource are adjacent
+        double availableResourcesValue = 0.0;
+        int firstSlot = resourceIndex * roleIndices.size();
+        for (int slot = firstSlot; slot < firstSlot + roleIndices.size(); slot++) {
+            if (!Double.isNaN(availableScalarResources[slot])) {
+                availableResourcesValue += availableScalarResources[slot];
+            }
+        }
+
+        return availableResourcesValue;
+    }
+
+    public double getTotalAvailableCpus() {
         return getTotalAvailableScalarResources(CPUS_NAME);
     }
 
-    public Double getTotalAvailableMem() {
+    public double getTotalAvailableMem() {
         return getTotalAvailableScalarResources(MEM_NAME);
     }
 
-    public Double getAvailableCpus(String role) {
-        return getAvailableCpus(new LinkedHashSet<>(Collections.singletonList(role)));
+    public double getAvailableCpus(String role) {
+        return getAvailableScalarResource(CPUS_NAME, role);
     }
 
-    public Double getAvailableCpus(Set<String> roles) {
+    public double getAvailableCpus(Set<String> roles) {
         return getAvailableScalarResources(CPUS_NAME, roles);
     }
 
-    public Double getAvailableMem(String role) {
-        return getAvailableMem(new LinkedHashSet<>(Collections.singletonList(role)));
+    public double getAvailableMem(String role) {
+        return getAvailableScalarResource(MEM_NAME, role);
     }
 
-    public Double getAvailableMem(Set<String> roles) {
+    public double getAvailableMem(Set<String> roles) {
         return getAvailableScalarResources(MEM_NAME, roles);
     }
 
 
-    private boolean isAssignableScalar(Double newValue) {
+    private boolean isAssignableScalar(double newValue) {
         return newValue >= 0.0;
     }
 
-     /**
-     * (Virtually) assign scalar resources to a temporary resources map which will be committed if all other resources
-     * are assignable.
+    /**
+     * (Virtually) assign scalar resources, recording the previous value in the undo log, which is rolled back if not
+     * all other resources are assignable.
      *
      * @param name Name of the resource
      * @param role Role of the resource
      * @param requestedAmount Requested amount to assign to lease
-     * @param tempAvailableScalarResources Temporary available resources to act assignments upon
      * @return whether or not the assignment was successful
      */
-    private boolean assignRequestedScalarResource(String name, String role, Double requestedAmount, Map<String, Map<String, Double>> tempAvailableScalarResources) {
-        if (!(tempAvailableScalarResources.containsKey(name) && tempAvailableScalarResources.get(name).containsKey(role))) {
+    private boolean assignRequestedScalarResource(String name, String role, double requestedAmount) {
+        int slot = getSlot(name, role);
+        if (slot < 0 || Double.isNaN(availableScalarResources[slot])) {
             return requestedAmount > 0.0;
         }
 
-        Map<String, Double> availableResources = tempAvailableScalarResources.get(name);
-        Double availableValue = availableResources.get(role);
-
-        Double newValue = availableValue - requestedAmount;
+        double newValue = availableScalarResources[slot] - requestedAmount;
 
         boolean assignable = isAssignableScalar(newValue);
         if (assignable) {
-            availableResources.put(role, newValue);
+            recordUndo(slot);
+            availableScalarResources[slot] = newValue;
         }
         return assignable;
     }
 
     /**
-     * (Virtually) assign range resources to a temporary resources map which will be committed if all other resources
-     * are assignable.
+     * (Virtually) assign range resources, recording the previous value in the undo log, which is rolled back if not
+     * all other resources are assignable.
      *
      * @param name Name of the resource
      * @param role Role of the resource
      * @param requestedRanges Requested ranges as list
-     * @param tempAvailableRangeResources Temporary resources to act assignments upon
      * @return whether or not the assignment was successful
      */
-    private boolean assignRequestedRangeResources(String name, String role, List<Protos.Value.Range> requestedRanges, Map<String, Map<String, List<Protos.Value.Range>>> tempAvailableRangeResources) {
-        if (!(tempAvailableRangeResources.containsKey(name) && tempAvailableRangeResources.get(name).containsKey(role))) {
+    private boolean assignRequestedRangeResources(String name, String role, List<Protos.Value.Range> requestedRanges) {
+        int slot = getSlot(name, role);
+        if (slot < 0 || availableRangeResources[slot] == null) {
             return requestedRanges.isEmpty();
         }
 
-        Map<String, List<Protos.Value.Range>> availableResources = tempAvailableRangeResources.get(name);
-        List<Protos.Value.Range> availableRanges = new ArrayList<>(availableResources.get(role));
-
-        Set<Long> unifiedAvailableRanges = getUnifiedSetOfRanges(availableRanges);
-        Set<Long> unifiedRequestedRanges = getUnifiedSetOfRanges(requestedRanges);
+        RangeSet availableRanges = availableRangeResources[slot];
+        RangeSet unifiedRequestedRanges = RangeSet.of(requestedRanges);
 
         // validate:
-        if (!unifiedAvailableRanges.containsAll(unifiedRequestedRanges)) {
+        if (!availableRanges.containsAll(unifiedRequestedRanges)) {
             return false;
         }
 
         // assign
-        unifiedAvailableRanges.removeAll(unifiedRequestedRanges);
-        availableResources.put(role, createRangeList(new TreeSet<>(unifiedAvailableRanges)));
+        recordUndo(slot);
+        availableRangeResources[slot] = availableRanges.subtract(unifiedRequestedRanges);
         return true;
     }
 
-    private List<Protos.Value.Range> createRangeList(SortedSet<Long> sortedRanges) {
-        ArrayList<Protos.Value.Range> resultRangeList = new ArrayList<>();
-
-        if (!sortedRanges.isEmpty()) {
-            mutateRangeAndAddToListWhileRangesConnect(sortedRanges, resultRangeList, sortedRanges.first());
+    private void recordUndo(int slot) {
+        if (undoSize == undoSlots.length) {
+            int newSize = undoSize * 2;
+            undoSlots = Arrays.copyOf(undoSlots, newSize);
+            undoScalars = Arrays.copyOf(undoScalars, newSize);
+            undoRanges = Arrays.copyOf(undoRanges, newSize);
         }
 
-        return resultRangeList;
+        undoSlots[undoSize] = slot;
+        undoScalars[undoSize] = availableScalarResources[slot];
+        undoRanges[undoSize] = availableRangeResources[slot];
+        undoSize++;
     }
 
-    private void mutateRangeAndAddToListWhileRangesConnect(SortedSet<Long> sortedRanges, List<Protos.Value.Range> resultRangeList, Long currentRange) {
-        Protos.Value.Range.Builder rangeBuilder = Protos.Value.Range.newBuilder().setBegin(currentRange);
-
-        while (sortedRanges.remove(currentRange)) {
-            currentRange++;
-        }
-        rangeBuilder.setEnd(currentRange - 1);
-        resultRangeList.add(rangeBuilder.build());
-
-        if (!sortedRanges.isEmpty()) {
-            mutateRangeAndAddToListWhileRangesConnect(sortedRanges, resultRangeList, sortedRanges.first());
+    private void rollback() {
+        // in reverse order, so that the oldest value of a slot changed more than once wins
+        for (int i = undoSize - 1; i >= 0; i--) {
+            availableScalarResources[undoSlots[i]] = undoScalars[i];
+            availableRangeResources[undoSlots[i]] = undoRanges[i];
         }
     }
 
-
-    private Set<Long> getUnifiedSetOfRanges(List<Protos.Value.Range> listOfRanges) {
-        Set<Long> setOfRanges = new HashSet<>();
-        for (Protos.Value.Range range : listOfRanges) {
-            for (long i = range.getBegin(); i <= range.getEnd(); i++) {
-                setOfRanges.add(i);
-            }
-        }
-        return setOfRanges;
-    }
-
-
-    private <K, V> Map<K, Map<K, V>> createTempMap(Map<K, Map<K, V>> source) {
-        Map<K, Map<K, V>> target = new LinkedHashMap<>();
-        for (Map.Entry<K, Map<K, V>> entry : source.entrySet()) {
-            target.put(entry.getKey(), new LinkedHashMap<>(entry.getValue()));
-        }
-        return target;
+    private void clearUndoLog() {
+        Arrays.fill(undoRanges, 0, undoSize, null);
+        undoSize = 0;
     }
 
     public boolean assign(@Nonnull Request request, @Nonnull Protos.TaskInfo taskInfo) {
         boolean allAssigned = true;
 
-        // "start transaction"
-        Map<String, Map<String, Double>> tempAvailableScalarResources = createTempMap(availableScalarResources);
-        Map<String, Map<String, List<Protos.Value.Range>>> tempAvailableRangeResources = createTempMap(availableRangeResources);
+        // "start transaction", all changes are recorded in the undo log
+        clearUndoLog();
 
         for (Protos.Resource resource : taskInfo.getResourcesList()) {
             boolean assigned = true;
             switch (resource.getType()) {
                 case SCALAR:
-                    assigned = assignRequestedScalarResource(resource.getName(), resource.getRole(), resource.getScalar().getValue(), tempAvailableScalarResources);
+                    assigned = assignRequestedScalarResource(resource.getName(), resource.getRole(), resource.getScalar().getValue());
                     break;
                 case RANGES:
-                    assigned = assignRequestedRangeResources(resource.getName(), resource.getRole(), resource.getRanges().getRangeList(), tempAvailableRangeResources);
+                    assigned = assignRequestedRangeResources(resource.getName(), resource.getRole(), resource.getRanges().getRangeList());
                     break;
                 case SET:
                 case TEXT:
@@ -433,72 +541,94 @@ public class Lease {
 
         if (allAssigned) {
             // "commit transaction"
-            availableScalarResources.putAll(tempAvailableScalarResources);
-            availableRangeResources.putAll(tempAvailableRangeResources);
-
             assignments.put(taskInfo, request);
+            matchingContext.assigned(this, request);
+        } else {
+            // "rollback transaction"
+            rollback();
         }
+        clearUndoLog();
 
         return allAssigned;
     }
 
     public String toString() {
         StringBuilder roleCpusBuilder = new StringBuilder();
-        if (availableScalarResources.containsKey(CPUS_NAME)) {
-            for (String role : availableScalarResources.get(CPUS_NAME).keySet()) {
+        StringBuilder roleMemBuilder = new StringBuilder();
+        for (String role : roleIndices.keySet()) {
+            if (isScalarResourceOffered(CPUS_NAME, role)) {
                 roleCpusBuilder.append(String.format("cpus(%s): %.2f, ", role, getAvailableCpus(role)));
             }
-        }
-
-        StringBuilder roleMemBuilder = new StringBuilder();
-        if (availableScalarResources.containsKey(MEM_NAME)) {
-            for (String role : availableScalarResources.get(MEM_NAME).keySet()) {
+            if (isScalarResourceOffered(MEM_NAME, role)) {
                 roleMemBuilder.append(String.format("mem(%s): %.2f, ", role, getAvailableMem(role)));
             }
         }
 
         return String.format("id: %s; hostname: %s; %stotalCpus: %.2f; %stotalMem: %.2f",
                 id,
-                hostname,
+                getHostname(),
                 roleCpusBuilder.toString(),
                 getTotalAvailableCpus(),
                 roleMemBuilder.toString(),
                 getTotalAvailableMem());
     }
 
+    private boolean isScalarResourceOffered(String name, String role) {
+        int slot = getSlot(name, role);
+        return slot >= 0 && !Double.isNaN(availableScalarResources[slot]);
+    }
+
     public boolean isAvailableNow() {
-        return isAvailable(new Date());
+        return isAvailable(System.currentTimeMillis(), 0);
     }
 
     public boolean isAvailable(Date date) {
-        return isAvailable(date, 0);
+        return isAvailable(date.getTime(), 0);
     }
 
     public boolean isAvailable(Date start, long duration) {
-        Date end = new Date(start.getTime() + duration);
+        return isAvailable(start.getTime(), duration);
+    }
 
-        boolean isAvailable = true;
+    /**
+     * @param duration the duration in millis
+     * @return whether the agent is available from the start of the offer cycle for the duration
+     */
+    public boolean isAvailableFromCycleStart(long duration) {
+        return isAvailable(matchingContext.getCycleStartMillis(), duration);
+    }
 
-        Iterator<Protos.Offer> iterator = offers.iterator();
-        while (isAvailable && iterator.hasNext()) {
-            Protos.Offer offer = iterator.next();
-            if (offer.hasUnavailability()) {
-                Protos.Unavailability unavailability = offer.getUnavailability();
+    /**
+     * @param start the start (epoch millis)
+     * @param duration the duration in millis
+     * @return whether the agent is available from the start for the duration, i.e. no unavailability of the offers
+     *         overlaps
+     */
+    public boolean isAvailable(long start, long duration) {
+        long end = start + duration;
 
-                long unavailabilityDuration = unavailability.getDuration().getNanoseconds();
-                Date unavailabilityStart = new Date(TimeUnit.NANOSECONDS.toMillis(unavailability.getStart().getNanoseconds()));
-                Date unavailabilityEnd = new Date(unavailabilityStart.getTime() + TimeUnit.NANOSECONDS.toMillis(unavailabilityDuration));
+        for (int i = 0; i < unavailabilityCount; i++) {
+            long unavailabilityStart = unavailabilityStarts[i];
+            long unavailabilityEnd = unavailabilityEnds[i];
 
-                isAvailable = !(start.before(unavailabilityStart) && end.after(unavailabilityEnd))
-                    && !(isDateBetweenRange(start, unavailabilityStart, unavailabilityEnd))
-                    && !(isDateBetweenRange(end, unavailabilityStart, unavailabilityEnd));
+            if ((start < unavailabilityStart && end > unavailabilityEnd)
+                    || (unavailabilityStart < start && start < unavailabilityEnd)
+                    || (unavailabilityStart < end && end < unavailabilityEnd)) {
+                return false;
             }
         }
 
-        return isAvailable;
+        return true;
     }
 
-    private boolean isDateBetweenRange(Date date, Date start, Date end) {
-        return start.before(date) && end.after(date);
+    public MatchingContext getMatchingContext() {
+        return matchingContext;
+    }
+
+    /**
+     * @return the index of this lease in the offer cycle, in the order the leases were created
+     */
+    public int getMatchingIndex() {
+        return matchingIndex;
     }
 }
@@ -0,0 +1,56 @@
+package org.jenkinsci.plugins.mesos.scheduling;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * State of matching the requests against the leases of one offer cycle.
+ *
+ * The leases of the cycle are numbered in the order they are created (see {@link Lease#getMatchingIndex()}) and share
+ * the start of the cycle as reference time. The names of the agents assigned in this cycle are kept for constant time
+ * lookups. Ratings are not kept: every request is placed once per cycle, thus rates every lease at most once.
+ *
+ * A context is owned by the offer cycle, assignments happen on the offer cycle only.
+ */
+public class MatchingContext {
+
+    private final long cycleStartMillis;
+
+    private int numberOfLeases;
+
+    private final Set<String> assignedAgentNames = new HashSet<>();
+
+    /**
+     * @param cycleStartMillis the start of the offer cycle (epoch millis), shared by all leases of the cycle
+     */
+    public MatchingContext(long cycleStartMillis) {
+        this.cycleStartMillis = cycleStartMillis;
+    }
+
+    public long getCycleStartMillis() {
+        return cycleStartMillis;
+    }
+
+    /**
+     * Called by the leases of the cycle, when they are created.
+     *
+     * @return the index of the next lease of the cycle
+     */
+    int nextLeaseIndex() {
+        return numberOfLeases++;
+    }
+
+    /**
+     * Called by the lease, after the request was assigned to it.
+     */
+    void assigned(Lease lease, Request request) {
+        assignedAgentNames.add(request.getRequest().getSlave().getName());
+    }
+
+    /**
+     * @return whether an agent of the name was assigned to a lease in this cycle
+     */
+    public boolean isAssigned(String agentName) {
+        return assignedAgentNames.contains(agentName);
+    }
+}
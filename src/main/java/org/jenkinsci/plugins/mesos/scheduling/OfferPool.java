@@ -0,0 +1,196 @@
+package org.jenkinsci.plugins.mesos.scheduling;
+
+import org.apache.mesos.Protos;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+/**
+ * Holds a bounded number of unused offers for a short time, instead of declining them right away.
+ *
+ * New requests are matched against the held offers immediately, so they do not have to wait for a revive and the
+ * next allocation cycle of the master. Every offer is released (declined) at the latest when its hold window ends,
+ * counted from the first time it was held, even if it was taken for offer cycles in between. The window therefore
+ * has to be shorter than the offer timeout of the master. Rescinded offers are dropped.
+ *
+ * All methods except the getters are expected to be called from the owner of the scheduler state (see
+ * {@link SchedulerEventLoop}).
+ */
+public class OfferPool {
+
+    private static final Logger LOGGER = Logger.getLogger(OfferPool.class.getName());
+
+    private final SchedulerEventLoop eventLoop;
+    private final IntSupplier maxOffersSupplier;
+    private final LongSupplier holdMillisSupplier;
+    private final Consumer<List<Protos.Offer>> releaser;
+
+    /** held offers by offer id, oldest first */
+    private final Map<String, Protos.Offer> offers = new LinkedHashMap<>();
+    /** end of the hold window by offer id, also kept while the offer is taken for an offer cycle */
+    private final Map<String, Long> deadlines = new HashMap<>();
+
+    private volatile int size;
+
+    private volatile long heldOffers;
+    private volatile long releasedOffers;
+    private volatile long rejectedOffers;
+    private volatile long rescindedOffers;
+
+    /**
+     * @param eventLoop event loop owning the scheduler state, used to release offers when their window ends
+     * @param maxOffersSupplier maximum number of offers to hold
+     * @param holdMillisSupplier hold window in milliseconds, 0 disables holding offers
+     * @param releaser declines the released offers
+     */
+    public OfferPool(SchedulerEventLoop eventLoop, IntSupplier maxOffersSupplier, LongSupplier holdMillisSupplier,
+                     Consumer<List<Protos.Offer>> releaser) {
+        this.eventLoop = eventLoop;
+        this.maxOffersSupplier = maxOffersSupplier;
+        this.holdMillisSupplier = holdMillisSupplier;
+        this.releaser = releaser;
+    }
+
+    /**
+     * @param offer the unused offer
+     * @return true if the offer is held, false if it should be declined (pool disabled or full, window ended)
+     */
+    public boolean hold(Protos.Offer offer) {
+        long holdMillis = holdMillisSupplier.getAsLong();
+        if (holdMillis <= 0 || offers.size() >= maxOffersSupplier.getAsInt()) {
+            rejectedOffers++;
+            return false;
+        }
+
+        String offerId = offer.getId().getValue();
+        long now = System.currentTimeMillis();
+
+        Long deadline = deadlines.get(offerId);
+        if (deadline == null) {
+            deadline = now + holdMillis;
+            deadlines.put(offerId, deadline);
+            heldOffers++;
+            eventLoop.schedule("release held offers", this::releaseExpired, holdMillis, TimeUnit.MILLISECONDS);
+        } else if (deadline <= now) {
+            // held long enough already
+            deadlines.remove(offerId);
+            rejectedOffers++;
+            return false;
+        }
+
+        offers.put(offerId, offer);
+        size = offers.size();
+        return true;
+    }
+
+    /**
+     * Takes all held offers out of the pool, e.g. for matching them against new requests. Offers which are still unused
+     * afterwards should be held again (or declined).
+     *
+     * @return the held offers, oldest first
+     */
+    public List<Protos.Offer> take() {
+        List<Protos.Offer> taken = new ArrayList<>(offers.values());
+        offers.clear();
+        size = 0;
+        return taken;
+    }
+
+    /**
+     * Drops a rescinded offer.
+     */
+    public void rescind(Protos.OfferID offerId) {
+        deadlines.remove(offerId.getValue());
+        if (offers.remove(offerId.getValue()) != null) {
+            size = offers.size();
+            rescindedOffers++;
+        }
+    }
+
+    /**
+     * Drops all offers without declining them, e.g. when the offers became invalid because of a disconnect.
+     */
+    public void clear() {
+        offers.clear();
+        deadlines.clear();
+        size = 0;
+    }
+
+    /**
+     * Releases (declines) all held offers right away, e.g. before the scheduler stops, because the events which would
+     * release them at the end of their window are dropped with the event loop.
+     */
+    public void releaseAll() {
+        List<Protos.Offer> released = take();
+        deadlines.clear();
+
+        if (!released.isEmpty()) {
+            LOGGER.fine("Releasing all " + released.size() + " held offers");
+            releasedOffers += released.size();
+            releaser.accept(released);
+        }
+    }
+
+    public boolean isEmpty() {
+        return offers.isEmpty();
+    }
+
+    private void releaseExpired() {
+        long now = System.currentTimeMillis();
+        List<Protos.Offer> expired = new ArrayList<>();
+
+        Iterator<Map.Entry<String, Long>> iterator = deadlines.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Long> deadline = iterator.next();
+            if (deadline.getValue() > now) {
+                continue;
+            }
+
+            // offers taken and used meanwhile only leave their deadline behind
+            Protos.Offer offer = offers.remove(deadline.getKey());
+            if (offer != null) {
+                expired.add(offer);
+            }
+            iterator.remove();
+        }
+
+        size = offers.size();
+        if (!expired.isEmpty()) {
+            LOGGER.fine("Releasing " + expired.size() + " held offers");
+            releasedOffers += expired.size();
+            releaser.accept(expired);
+        }
+    }
+
+    /**
+     * @return the number of currently held offers
+     */
+    public int size() {
+        return size;
+    }
+
+    public long getHeldOffers() {
+        return heldOffers;
+    }
+
+    public long getReleasedOffers() {
+        return releasedOffers;
+    }
+
+    public long getRejectedOffers() {
+        return rejectedOffers;
+    }
+
+    public long getRescindedOffers() {
+        return rescindedOffers;
+    }
+}
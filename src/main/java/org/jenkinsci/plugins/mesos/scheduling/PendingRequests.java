@@ -0,0 +1,189 @@
+package org.jenkinsci.plugins.mesos.scheduling;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * FIFO store of pending requests, indexed by agent name, linked item and label.
+ *
+ * All operations except {@link #drain()} and {@link #getAll()} are O(1) (per returned request), so cancelling a
+ * build or terminating a never scheduled agent does not scan the whole queue. The resources of all pending requests
+ * are tracked in a {@link ResourceUsage}.
+ *
+ * The store is not thread-safe, it is owned by the event loop of the scheduler (see {@link SchedulerEventLoop}). Other
+ * threads submit their changes as events, only the resource usage may be read from any thread.
+ */
+public class PendingRequests {
+
+    /** insertion ordered, keyed by agent name */
+    private final LinkedHashMap<String, Request> requestsByName = new LinkedHashMap<>();
+    private final Map<String, Set<String>> namesByLinkedItem = new HashMap<>();
+    private final Map<String, Set<String>> namesByLabel = new HashMap<>();
+    private final ResourceUsage usage = new ResourceUsage();
+
+    /**
+     * Appends the request. A pending request for the same agent name is replaced (and keeps its position).
+     * @param request the request to add
+     */
+    public void add(@Nonnull Request request) {
+        String name = getName(request);
+
+        Request replaced = requestsByName.put(name, request);
+        if (replaced != null) {
+            unindex(name, replaced);
+        }
+
+        usage.add(request.getRequest().getSlave());
+        index(namesByLinkedItem, getLinkedItem(request), name);
+        index(namesByLabel, getLabelString(request), name);
+    }
+
+    /**
+     * Removes all requests.
+     * @return the removed requests, in FIFO order
+     */
+    public List<Request> drain() {
+        List<Request> drainedRequests = new ArrayList<>(requestsByName.values());
+
+        requestsByName.clear();
+        namesByLinkedItem.clear();
+        namesByLabel.clear();
+        usage.clear();
+
+        return drainedRequests;
+    }
+
+    public Request get(String name) {
+        return requestsByName.get(name);
+    }
+
+    public Request remove(String name) {
+        Request request = requestsByName.remove(name);
+        if (request != null) {
+            unindex(name, request);
+        }
+        return request;
+    }
+
+    /**
+     * Removes the given request, if it is still pending (and not replaced by another request for the same agent).
+     * @param request the request to remove
+     * @return true if the request was removed
+     */
+    public boolean remove(@Nonnull Request request) {
+        String name = getName(request);
+        if (requestsByName.get(name) != request) {
+            return false;
+        }
+
+        remove(name);
+        return true;
+    }
+
+    /**
+     * @param linkedItem the full name of the item
+     * @return the oldest pending request for the item, or null if there is none
+     */
+    public Request getFirstForLinkedItem(String linkedItem) {
+        Set<String> names = namesByLinkedItem.get(linkedItem);
+        if (names == null) {
+            return null;
+        }
+
+        Iterator<String> iterator = names.iterator();
+        return iterator.hasNext() ? requestsByName.get(iterator.next()) : null;
+    }
+
+    /**
+     * Removes the oldest pending request for the item.
+     * @param linkedItem the full name of the item
+     * @return the removed request, or null if there is none
+     */
+    public Request removeFirstForLinkedItem(String linkedItem) {
+        Request request = getFirstForLinkedItem(linkedItem);
+        if (request != null) {
+            remove(getName(request));
+        }
+        return request;
+    }
+
+    /**
+     * @param labelString the label string of the slave info
+     * @return the pending requests for the label, in FIFO order
+     */
+    public List<Request> getForLabel(String labelString) {
+        Set<String> names = namesByLabel.get(labelString);
+        if (names == null) {
+            return Collections.emptyList();
+        }
+
+        List<Request> requests = new ArrayList<>(names.size());
+        for (String name : names) {
+            requests.add(requestsByName.get(name));
+        }
+        return requests;
+    }
+
+    /**
+     * @return a snapshot of all pending requests, in FIFO order
+     */
+    public List<Request> getAll() {
+        return new ArrayList<>(requestsByName.values());
+    }
+
+    public int size() {
+        return requestsByName.size();
+    }
+
+    public boolean isEmpty() {
+        return requestsByName.isEmpty();
+    }
+
+    public ResourceUsage getUsage() {
+        return usage;
+    }
+
+    private void unindex(String name, Request request) {
+        usage.subtract(request.getRequest().getSlave());
+        unindex(namesByLinkedItem, getLinkedItem(request), name);
+        unindex(namesByLabel, getLabelString(request), name);
+    }
+
+    private static void index(Map<String, Set<String>> index, String key, String name) {
+        index.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(name);
+    }
+
+    private static void unindex(Map<String, Set<String>> index, String key, String name) {
+        Set<String> names = index.get(key);
+        if (names != null) {
+            names.remove(name);
+            if (names.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static String getName(Request request) {
+        return request.getRequest().getSlave().getName();
+    }
+
+    private static String getLinkedItem(Request request) {
+        return request.getRequest().getSlave().getLinkedItem();
+    }
+
+    private static String getLabelString(Request request) {
+        if (request.getRequest().getSlaveInfo() == null) {
+            return null;
+        }
+
+        return request.getRequest().getSlaveInfo().getLabelString();
+    }
+}
@@ -0,0 +1,251 @@
+package org.jenkinsci.plugins.mesos.scheduling;
+
+import org.apache.mesos.Protos;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable set of long values (e.g. ports), stored as sorted, disjoint and non-adjacent closed intervals.
+ *
+ * The intervals are kept in two primitive arrays of begins and ends, so that a range like 31000-32000 costs two longs
+ * instead of a thousand boxed values. Lookups are binary searches over the intervals, set operations are linear in
+ * the number of intervals.
+ */
+public final class RangeSet {
+
+    public static final RangeSet EMPTY = new RangeSet(new long[0], new long[0], 0);
+
+    private final long[] begins;
+    private final long[] ends;
+    private final int count;
+    private final long size;
+
+    private RangeSet(long[] begins, long[] ends, int count) {
+        this.begins = begins;
+        this.ends = ends;
+        this.count = count;
+
+        long currentSize = 0;
+        for (int i = 0; i < count; i++) {
+            currentSize += ends[i] - begins[i] + 1;
+        }
+        this.size = currentSize;
+    }
+
+    /**
+     * @param ranges ranges in any order, possibly overlapping or adjacent
+     * @return the set of all values within the ranges
+     */
+    public static RangeSet of(Collection<Protos.Value.Range> ranges) {
+        if (ranges.isEmpty()) {
+            return EMPTY;
+        }
+
+        long[][] intervals = new long[ranges.size()][];
+        int i = 0;
+        for (Protos.Value.Range range : ranges) {
+            intervals[i++] = new long[] { range.getBegin(), range.getEnd() };
+        }
+        Arrays.sort(intervals, (a, b) -> Long.compare(a[0], b[0]));
+
+        long[] begins = new long[intervals.length];
+        long[] ends = new long[intervals.length];
+        int count = 0;
+        for (long[] interval : intervals) {
+            if (interval[1] < interval[0]) {
+                continue;
+            }
+
+            if (count > 0 && interval[0] <= ends[count - 1] + 1) {
+                // overlapping or adjacent
+                ends[count - 1] = Math.max(ends[count - 1], interval[1]);
+            } else {
+                begins[count] = interval[0];
+                ends[count] = interval[1];
+                count++;
+            }
+        }
+
+        return new RangeSet(begins, ends, count);
+    }
+
+    public static RangeSet of(long begin, long end) {
+        return of(Collections.singletonList(Protos.Value.Range.newBuilder().setBegin(begin).setEnd(end).build()));
+    }
+
+    /**
+     * @return the number of values in the set
+     */
+    public long size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * @return the number of (merged) intervals
+     */
+    public int getNumberOfRanges() {
+        return count;
+    }
+
+    public boolean contains(long value) {
+        int index = indexOf(value);
+        return index >= 0 && value <= ends[index];
+    }
+
+    public boolean containsAll(RangeSet other) {
+        for (int i = 0; i < other.count; i++) {
+            int index = indexOf(other.begins[i]);
+            if (index < 0 || other.ends[i] > ends[index]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public RangeSet union(RangeSet other) {
+        if (other.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return other;
+        }
+
+        List<Protos.Value.Range> ranges = new ArrayList<>(count + other.count);
+        ranges.addAll(toRanges());
+        ranges.addAll(other.toRanges());
+        return of(ranges);
+    }
+
+    public RangeSet subtract(RangeSet other) {
+        if (isEmpty() || other.isEmpty()) {
+            return this;
+        }
+
+        // every interval of the other set splits at most one interval into two
+        long[] resultBegins = new long[count + other.count];
+        long[] resultEnds = new long[count + other.count];
+        int resultCount = 0;
+
+        int j = 0;
+        for (int i = 0; i < count; i++) {
+            long begin = begins[i];
+            long end = ends[i];
+
+            // skip intervals of the other set before the current interval
+            while (j < other.count && other.ends[j] < begin) {
+                j++;
+            }
+
+            int k = j;
+            while (begin <= end && k < other.count && other.begins[k] <= end) {
+                if (other.begins[k] > begin) {
+                    resultBegins[resultCount] = begin;
+                    resultEnds[resultCount] = other.begins[k] - 1;
+                    resultCount++;
+                }
+                begin = Math.max(begin, other.ends[k] + 1);
+                k++;
+            }
+
+            if (begin <= end) {
+                resultBegins[resultCount] = begin;
+                resultEnds[resultCount] = end;
+                resultCount++;
+            }
+        }
+
+        return new RangeSet(resultBegins, resultEnds, resultCount);
+    }
+
+    /**
+     * @param n the number of values
+     * @return the n lowest values of the set (or all values, if the set is smaller), in ascending order
+     */
+    public long[] first(int n) {
+        long[] result = new long[(int) Math.min(n, size)];
+
+        int index = 0;
+        for (int i = 0; i < count && index < result.length; i++) {
+            for (long value = begins[i]; value <= ends[i] && index < result.length; value++) {
+                result[index++] = value;
+            }
+        }
+
+        return result;
+    }
+
+    public List<Protos.Value.Range> toRanges() {
+        List<Protos.Value.Range> ranges = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ranges.add(Protos.Value.Range.newBuilder().setBegin(begins[i]).setEnd(ends[i]).build());
+        }
+        return ranges;
+    }
+
+    /**
+     * @return index of the interval with the greatest begin lower than or equal to the value, or -1
+     */
+    private int indexOf(long value) {
+        int low = 0;
+        int high = count - 1;
+        int result = -1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (begins[middle] <= value) {
+                result = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RangeSet)) {
+            return false;
+        }
+
+        RangeSet other = (RangeSet) o;
+        return count == other.count
+                && Arrays.equals(Arrays.copyOf(begins, count), Arrays.copyOf(other.begins, other.count))
+                && Arrays.equals(Arrays.copyOf(ends, count), Arrays.copyOf(other.ends, other.count));
+    }
+
+    @Override
+    public int hashCode() {
+        int result = count;
+        for (int i = 0; i < count; i++) {
+            result = 31 * result + Long.hashCode(begins[i]);
+            result = 31 * result + Long.hashCode(ends[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(begins[i]).append('-').append(ends[i]);
+        }
+        return builder.append(']').toString();
+    }
+}
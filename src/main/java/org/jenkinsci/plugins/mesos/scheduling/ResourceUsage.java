@@ -0,0 +1,144 @@
+package org.jenkinsci.plugins.mesos.scheduling;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Running cpu/mem counters of Jenkins agents, in total and broken down by role and by label.
+ *
+ * Counters are only changed when an agent is added or removed (e.g. on enqueue, dequeue, launch and terminal status
+ * updates), so reading them is O(1) instead of summing up all requests/results on every admission check.
+ *
+ * Changes are expected to be made by the owner of the scheduler state only (see {@link SchedulerEventLoop}), reads are
+ * lock-free and may happen from any thread (e.g. for metrics). Roles and labels without one are counted as "null".
+ */
+public class ResourceUsage {
+
+    public static final class Usage {
+        private volatile int agents;
+        private volatile double cpus;
+        private volatile double mem;
+
+        private Usage() {
+        }
+
+        private Usage(Usage usage) {
+            this.agents = usage.agents;
+            this.cpus = usage.cpus;
+            this.mem = usage.mem;
+        }
+
+        private void add(JenkinsSlave slave) {
+            agents++;
+            cpus += slave.getCpus();
+            mem += slave.getMem();
+        }
+
+        private void subtract(JenkinsSlave slave) {
+            agents--;
+            if (agents <= 0) {
+                // avoid accumulating floating point errors
+                reset();
+            } else {
+                cpus -= slave.getCpus();
+                mem -= slave.getMem();
+            }
+        }
+
+        private void reset() {
+            agents = 0;
+            cpus = 0.0;
+            mem = 0.0;
+        }
+
+        public int getAgents() {
+            return agents;
+        }
+
+        public double getCpus() {
+            return cpus;
+        }
+
+        public double getMem() {
+            return mem;
+        }
+
+        @Override
+        public String toString() {
+            return "agents: " + agents + ", cpus: " + cpus + ", mem: " + mem;
+        }
+    }
+
+    private final Usage total = new Usage();
+    private final Map<String, Usage> usageByRole = new ConcurrentHashMap<>();
+    private final Map<String, Usage> usageByLabel = new ConcurrentHashMap<>();
+
+    public void add(JenkinsSlave slave) {
+        total.add(slave);
+        usageByRole.computeIfAbsent(String.valueOf(slave.getRole()), k -> new Usage()).add(slave);
+        usageByLabel.computeIfAbsent(String.valueOf(slave.getLabel()), k -> new Usage()).add(slave);
+    }
+
+    public void subtract(JenkinsSlave slave) {
+        total.subtract(slave);
+        subtract(usageByRole, slave.getRole(), slave);
+        subtract(usageByLabel, slave.getLabel(), slave);
+    }
+
+    public void clear() {
+        total.reset();
+        usageByRole.clear();
+        usageByLabel.clear();
+    }
+
+    private static void subtract(Map<String, Usage> usages, String key, JenkinsSlave slave) {
+        Usage usage = usages.get(String.valueOf(key));
+        if (usage != null) {
+            usage.subtract(slave);
+            if (usage.getAgents() == 0) {
+                usages.remove(String.valueOf(key));
+            }
+        }
+    }
+
+    public double getCpus() {
+        return total.getCpus();
+    }
+
+    public double getMem() {
+        return total.getMem();
+    }
+
+    public int getAgents() {
+        return total.getAgents();
+    }
+
+    /**
+     * @return a snapshot of the usage by role, sorted by role
+     */
+    public Map<String, Usage> getUsageByRole() {
+        return snapshot(usageByRole);
+    }
+
+    /**
+     * @return a snapshot of the usage by label, sorted by label
+     */
+    public Map<String, Usage> getUsageByLabel() {
+        return snapshot(usageByLabel);
+    }
+
+    private static Map<String, Usage> snapshot(Map<String, Usage> usages) {
+        Map<String, Usage> snapshot = new TreeMap<>();
+        for (Map.Entry<String, Usage> entry : usages.entrySet()) {
+            snapshot.put(entry.getKey(), new Usage(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    @Override
+    public String toString() {
+        return total.toString();
+    }
+}
@@ -0,0 +1,107 @@
+package org.jenkinsci.plugins.mesos.scheduling;
+
+import org.apache.mesos.SchedulerDriver;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Coalesces revive calls and suppresses offers while there is no demand.
+ *
+ * Every new demand (e.g. a slave request) asks for a revive, but only the first one within the debounce window
+ * actually calls {@link SchedulerDriver#reviveOffers()} when the window ends. When an offer cycle finds no pending
+ * requests, offers are suppressed, so that the Mesos master stops sending offers to this framework (instead of
+ * declining them with a long filter). A revive also clears the suppression, so offers resume as soon as demand returns.
+ *
+ * All methods are expected to be called from the owner of the scheduler state (see {@link SchedulerEventLoop}).
+ */
+public class ReviveCoalescer {
+
+    private static final Logger LOGGER = Logger.getLogger(ReviveCoalescer.class.getName());
+
+    private final SchedulerEventLoop eventLoop;
+    private final Supplier<SchedulerDriver> driverSupplier;
+    private final LongSupplier debounceMillisSupplier;
+
+    private boolean revivePending;
+    private volatile boolean suppressed;
+
+    private volatile long requestedRevives;
+    private volatile long sentRevives;
+    private volatile long sentSuppresses;
+
+    public ReviveCoalescer(SchedulerEventLoop eventLoop, Supplier<SchedulerDriver> driverSupplier, LongSupplier debounceMillisSupplier) {
+        this.eventLoop = eventLoop;
+        this.driverSupplier = driverSupplier;
+        this.debounceMillisSupplier = debounceMillisSupplier;
+    }
+
+    /**
+     * Asks for a revive, which is sent at the end of the debounce window (unless one is pending already).
+     */
+    public void requestRevive() {
+        requestedRevives++;
+        if (revivePending) {
+            return;
+        }
+
+        revivePending = true;
+        long debounceMillis = Math.max(0, debounceMillisSupplier.getAsLong());
+        eventLoop.schedule("revive", this::revive, debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Suppresses offers, if not already suppressed and no revive is pending.
+     */
+    public void suppress() {
+        if (suppressed || revivePending) {
+            return;
+        }
+
+        SchedulerDriver driver = driverSupplier.get();
+        if (driver != null) {
+            LOGGER.fine("No demand, suppressing offers");
+            driver.suppressOffers();
+            suppressed = true;
+            sentSuppresses++;
+        }
+    }
+
+    /**
+     * Forgets about the suppression, e.g. when the framework (re-)registered with a master. Offers are suppressed again
+     * by the next offer cycle without demand.
+     */
+    public void reset() {
+        suppressed = false;
+    }
+
+    private void revive() {
+        revivePending = false;
+
+        SchedulerDriver driver = driverSupplier.get();
+        if (driver != null) {
+            LOGGER.fine("Reviving offers (" + requestedRevives + " requested, " + sentRevives + " sent so far)");
+            driver.reviveOffers();
+            suppressed = false;
+            sentRevives++;
+        }
+    }
+
+    public boolean isSuppressed() {
+        return suppressed;
+    }
+
+    public long getRequestedRevives() {
+        return requestedRevives;
+    }
+
+    public long getSentRevives() {
+        return sentRevives;
+    }
+
+    public long getSentSuppresses() {
+        return sentSuppresses;
+    }
+}
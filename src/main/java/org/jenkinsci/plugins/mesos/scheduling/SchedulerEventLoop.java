@@ -0,0 +1,229 @@
+package org.jenkinsci.plugins.mesos.scheduling;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Single owner thread for all mutable scheduler state.
+ *
+ * Mesos driver callbacks and Jenkins threads submit events to a multi-producer queue, one thread consumes them in
+ * submission order. Therefore, state touched only from within events needs no further locking, and producers never
+ * block each other (e.g. the driver thread is no longer stalled by a burst of slave requests).
+ *
+ * Events submitted from the owner thread itself are executed directly. Events submitted before the loop is started
+ * are queued and processed once it runs, events submitted after it was stopped are rejected (their future is
+ * cancelled), so that no other thread ever touches the state. Delayed events are handed over to the loop when they are
+ * due, delayed events which are not yet due when the loop stops are dropped. Owners therefore have to release what
+ * such events would have released (e.g. held offers) before stopping the loop.
+ */
+public class SchedulerEventLoop {
+
+    private static final Logger LOGGER = Logger.getLogger(SchedulerEventLoop.class.getName());
+
+    private static final Event<Void> POISON_PILL = new Event<>("stop", () -> null);
+
+    private final String name;
+    private final BlockingQueue<Event<?>> events;
+
+    private final Object lifecycleLock = new Object();
+    private volatile Thread owner;
+    private volatile boolean running;
+    private volatile boolean stopped;
+    private ScheduledExecutorService timer;
+
+    public SchedulerEventLoop(String name) {
+        this.name = name;
+        this.events = new LinkedBlockingQueue<>();
+    }
+
+    public void start() {
+        synchronized (lifecycleLock) {
+            if (running || stopped) {
+                return;
+            }
+
+            running = true;
+            owner = new Thread(this::processEvents, name);
+            owner.setDaemon(true);
+            owner.start();
+
+            timer = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread thread = new Thread(r, name + " timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Stops accepting events, for good. Events submitted before are still processed, this method does not wait for
+     * them. Delayed events which are not yet due are dropped.
+     */
+    public void stop() {
+        synchronized (lifecycleLock) {
+            if (stopped) {
+                return;
+            }
+
+            stopped = true;
+            if (!running) {
+                // never started, nobody is going to process what was queued
+                Event<?> event;
+                while ((event = events.poll()) != null) {
+                    event.cancel(false);
+                }
+                return;
+            }
+
+            running = false;
+            events.add(POISON_PILL);
+
+            List<Runnable> droppedEvents = timer.shutdownNow();
+            if (!droppedEvents.isEmpty()) {
+                LOGGER.fine("Dropped " + droppedEvents.size() + " delayed events of scheduler event loop '" + name + "'");
+            }
+            timer = null;
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    public boolean isOwnerThread() {
+        return Thread.currentThread() == owner;
+    }
+
+    public int getNumberOfPendingEvents() {
+        return events.size();
+    }
+
+    /**
+     * @return the future of the event, which is cancelled if the loop was stopped already
+     */
+    public <T> Future<T> submit(String description, Callable<T> callable) {
+        Event<T> event = new Event<>(description, callable);
+
+        if (isOwnerThread()) {
+            event.run();
+            return event;
+        }
+
+        // only the enqueue is guarded, so the poison pill is always the last event in the queue
+        synchronized (lifecycleLock) {
+            if (!stopped) {
+                events.add(event);
+                return event;
+            }
+        }
+
+        LOGGER.fine("Rejected scheduler event '" + description + "', the event loop '" + name + "' is stopped");
+        event.cancel(false);
+        return event;
+    }
+
+    public Future<Void> submit(String description, Runnable runnable) {
+        return submit(description, () -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    /**
+     * Submits the event after the given delay. Before the loop is started, the delay starts with the loop, after it
+     * was stopped, the event is dropped.
+     * @param description description of the event, used for logging
+     * @param runnable the event
+     * @param delay the delay
+     * @param unit unit of the delay
+     */
+    public void schedule(String description, Runnable runnable, long delay, TimeUnit unit) {
+        synchronized (lifecycleLock) {
+            if (stopped) {
+                LOGGER.fine("Dropped delayed scheduler event '" + description + "', the event loop '" + name + "' is stopped");
+                return;
+            }
+            if (running) {
+                timer.schedule(() -> submit(description, runnable), delay, unit);
+                return;
+            }
+        }
+
+        // the timer is not there yet, thus let the loop schedule it once it runs
+        submit("schedule " + description, () -> schedule(description, runnable, delay, unit));
+    }
+
+    private void processEvents() {
+        LOGGER.fine("Started scheduler event loop '" + name + "'");
+
+        try {
+            while (true) {
+                Event<?> event = events.take();
+                if (event == POISON_PILL) {
+                    break;
+                }
+                event.run();
+            }
+        } catch (InterruptedException e) {
+            LOGGER.log(Level.WARNING, "Scheduler event loop '" + name + "' was interrupted", e);
+            Thread.currentThread().interrupt();
+        } finally {
+            // nothing can be enqueued anymore, but do not lose what is left (e.g. when interrupted)
+            Event<?> event;
+            while ((event = events.poll()) != null) {
+                if (event != POISON_PILL) {
+                    event.run();
+                }
+            }
+            if (owner == Thread.currentThread()) {
+                owner = null;
+            }
+        }
+
+        LOGGER.fine("Stopped scheduler event loop '" + name + "'");
+    }
+
+    private static class Event<T> extends FutureTask<T> {
+        private final String description;
+
+        Event(String description, Callable<T> callable) {
+            super(callable);
+            this.description = description;
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                return;
+            }
+
+            try {
+                get();
+            } catch (ExecutionException e) {
+                // most events are fire and forget (e.g. driver callbacks), so nobody else would see this
+                LOGGER.log(Level.WARNING, "Error while processing scheduler event '" + description + "'", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+}
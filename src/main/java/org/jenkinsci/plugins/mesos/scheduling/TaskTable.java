@@ -0,0 +1,167 @@
+package org.jenkinsci.plugins.mesos.scheduling;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Table of the tasks launched by a scheduler, keyed by task id (which equals the name of the Jenkins agent).
+ *
+ * Each task is tracked through its lifecycle: {@link State#LAUNCHED} by the scheduler, {@link State#STAGING} and
+ * {@link State#RUNNING} as reported by Mesos and {@link State#CONNECTED} once the Jenkins agent is online. Tasks
+ * reaching a terminal state are removed.
+ *
+ * Reads (lookups, per-state counts) are lock-free and may happen from any thread, changes are expected to be made by
+ * the owner of the scheduler state only (see {@link SchedulerEventLoop}).
+ */
+public class TaskTable {
+
+    public enum State {
+        LAUNCHED,
+        STAGING,
+        RUNNING,
+        CONNECTED,
+        /** only counted (cumulative), terminated tasks are no longer part of the table */
+        TERMINAL
+    }
+
+    private static final class Task {
+        private final Result result;
+        private volatile State state;
+
+        private Task(Result result, State state) {
+            this.result = result;
+            this.state = state;
+        }
+    }
+
+    private final Map<String, Task> tasks = new ConcurrentHashMap<>();
+    private final AtomicInteger[] activeCounts = new AtomicInteger[State.TERMINAL.ordinal()];
+    private final AtomicLong terminalCount = new AtomicLong();
+    private final ResourceUsage usage = new ResourceUsage();
+
+    public TaskTable() {
+        for (int i = 0; i < activeCounts.length; i++) {
+            activeCounts[i] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * Adds a launched task, replacing a previous task with the same id.
+     * @param taskId the id of the task
+     * @param result the result of the request which led to the task
+     */
+    public void launched(String taskId, Result result) {
+        Task previous = tasks.put(taskId, new Task(result, State.LAUNCHED));
+        if (previous != null) {
+            decrement(previous.state);
+            usage.subtract(previous.result.getSlave());
+        }
+
+        increment(State.LAUNCHED);
+        usage.add(result.getSlave());
+    }
+
+    /**
+     * Moves the task to the given state, {@link State#TERMINAL} removes it. Moving backwards (e.g. a delayed
+     * {@link State#RUNNING} update of an already connected agent) is ignored.
+     * @param taskId the id of the task
+     * @param state the new state
+     * @return the result of the task or null if the task is unknown
+     */
+    public Result transition(String taskId, State state) {
+        if (state == State.TERMINAL) {
+            return remove(taskId);
+        }
+
+        Task task = tasks.get(taskId);
+        if (task == null) {
+            return null;
+        }
+
+        State previous = task.state;
+        if (previous.ordinal() < state.ordinal()) {
+            task.state = state;
+            decrement(previous);
+            increment(state);
+        }
+
+        return task.result;
+    }
+
+    public Result remove(String taskId) {
+        Task task = tasks.remove(taskId);
+        if (task == null) {
+            return null;
+        }
+
+        decrement(task.state);
+        terminalCount.incrementAndGet();
+        usage.subtract(task.result.getSlave());
+        return task.result;
+    }
+
+    /**
+     * Forgets all tasks, e.g. when there are no agents anymore. The tasks did not terminate (as far as we know), thus
+     * they are not counted as terminated.
+     */
+    public void clear() {
+        tasks.clear();
+        for (AtomicInteger activeCount : activeCounts) {
+            activeCount.set(0);
+        }
+        usage.clear();
+    }
+
+    public Result get(String taskId) {
+        Task task = tasks.get(taskId);
+        return task != null ? task.result : null;
+    }
+
+    public State getState(String taskId) {
+        Task task = tasks.get(taskId);
+        return task != null ? task.state : null;
+    }
+
+    public boolean contains(String taskId) {
+        return tasks.containsKey(taskId);
+    }
+
+    /**
+     * @return a live, unmodifiable view of the ids of all (non terminal) tasks
+     */
+    public Set<String> getTaskIds() {
+        return Collections.unmodifiableSet(tasks.keySet());
+    }
+
+    public int size() {
+        return tasks.size();
+    }
+
+    /**
+     * @param state the state
+     * @return the number of tasks currently in the state, or the cumulative number of terminated tasks
+     */
+    public long count(State state) {
+        if (state == State.TERMINAL) {
+            return terminalCount.get();
+        }
+
+        return activeCounts[state.ordinal()].get();
+    }
+
+    public ResourceUsage getUsage() {
+        return usage;
+    }
+
+    private void increment(State state) {
+        activeCounts[state.ordinal()].incrementAndGet();
+    }
+
+    private void decrement(State state) {
+        activeCounts[state.ordinal()].decrementAndGet();
+    }
+}
@@ -0,0 +1,151 @@
+package org.jenkinsci.plugins.mesos.scheduling;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded set of finished (or launched) tasks, used to never start a task twice.
+ *
+ * Tasks named by the {@link AgentIdGenerator} are tracked as bits of a ring bitmap over their sequence numbers,
+ * covering the last {@link #DEFAULT_WINDOW_SIZE} sequence numbers. For time based expiry there are two generations
+ * of this bitmap, which rotate every half of the expiry time, so a tombstone lives between half and the full expiry
+ * time. All other names (e.g. agents from before a restart of Jenkins) are kept in a small LRU map with the same
+ * expiry.
+ *
+ * Within these limits {@link #contains(String)} is exact. The memory used is bounded by
+ * 2 * windowSize / 8 bytes for the bitmaps (32 KiB by default) plus maxOtherNames names.
+ */
+public class TaskTombstones {
+
+    public static final int DEFAULT_WINDOW_SIZE = 1 << 17;
+    public static final int DEFAULT_MAX_OTHER_NAMES = 1024;
+    public static final long DEFAULT_EXPIRY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private final AgentIdGenerator agentIdGenerator;
+    private final int windowSize;
+    private final long rotationMillis;
+
+    private long[] currentGeneration;
+    private long[] previousGeneration;
+    private long currentGenerationStart;
+    private long highestSequence = -1;
+
+    private final LinkedHashMap<String, Long> otherNames;
+
+    public TaskTombstones(AgentIdGenerator agentIdGenerator) {
+        this(agentIdGenerator, DEFAULT_WINDOW_SIZE, DEFAULT_MAX_OTHER_NAMES, DEFAULT_EXPIRY_MILLIS);
+    }
+
+    /**
+     * @param agentIdGenerator generator of the names to track in the bitmap
+     * @param windowSize number of sequence numbers covered, has to be a power of two (and at least 64)
+     * @param maxOtherNames maximum number of names not generated by the agent id generator
+     * @param expiryMillis time after which tombstones expire
+     */
+    public TaskTombstones(AgentIdGenerator agentIdGenerator, int windowSize, final int maxOtherNames, long expiryMillis) {
+        if (windowSize < Long.SIZE || Integer.bitCount(windowSize) != 1) {
+            throw new IllegalArgumentException("Window size has to be a power of two (and at least 64): " + windowSize);
+        }
+
+        this.agentIdGenerator = agentIdGenerator;
+        this.windowSize = windowSize;
+        this.rotationMillis = Math.max(1, expiryMillis / 2);
+
+        this.currentGeneration = new long[windowSize / Long.SIZE];
+        this.previousGeneration = new long[windowSize / Long.SIZE];
+        this.currentGenerationStart = System.currentTimeMillis();
+
+        this.otherNames = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxOtherNames;
+            }
+        };
+    }
+
+    public synchronized void add(String name) {
+        long now = System.currentTimeMillis();
+        rotate(now);
+
+        long sequence = agentIdGenerator.getSequence(name);
+        if (sequence < 0) {
+            otherNames.put(name, now);
+            return;
+        }
+
+        if (sequence > highestSequence) {
+            advance(sequence);
+        } else if (sequence <= highestSequence - windowSize) {
+            // already out of the window
+            return;
+        }
+
+        int bit = (int) (sequence & (windowSize - 1));
+        currentGeneration[bit >>> 6] |= 1L << bit;
+    }
+
+    public synchronized boolean contains(String name) {
+        long now = System.currentTimeMillis();
+        rotate(now);
+
+        long sequence = agentIdGenerator.getSequence(name);
+        if (sequence < 0) {
+            return otherNames.containsKey(name);
+        }
+
+        if (sequence > highestSequence || sequence <= highestSequence - windowSize) {
+            return false;
+        }
+
+        int bit = (int) (sequence & (windowSize - 1));
+        long mask = 1L << bit;
+        return (currentGeneration[bit >>> 6] & mask) != 0 || (previousGeneration[bit >>> 6] & mask) != 0;
+    }
+
+    /**
+     * Clears the bits of the sequence numbers which are reused for (highestSequence, sequence].
+     */
+    private void advance(long sequence) {
+        long from = highestSequence + 1;
+        if (sequence - from + 1 >= windowSize) {
+            Arrays.fill(currentGeneration, 0L);
+            Arrays.fill(previousGeneration, 0L);
+        } else {
+            for (long s = from; s <= sequence; s++) {
+                int bit = (int) (s & (windowSize - 1));
+                currentGeneration[bit >>> 6] &= ~(1L << bit);
+                previousGeneration[bit >>> 6] &= ~(1L << bit);
+            }
+        }
+
+        highestSequence = sequence;
+    }
+
+    private void rotate(long now) {
+        long elapsed = now - currentGenerationStart;
+        if (elapsed < rotationMillis) {
+            return;
+        }
+
+        long[] expired = previousGeneration;
+        Arrays.fill(expired, 0L);
+        if (elapsed >= 2 * rotationMillis) {
+            // both generations expired
+            Arrays.fill(currentGeneration, 0L);
+        }
+        previousGeneration = currentGeneration;
+        currentGeneration = expired;
+        currentGenerationStart = now;
+
+        long expiredBefore = now - 2 * rotationMillis;
+        Iterator<Long> iterator = otherNames.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() < expiredBefore) {
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.jenkinsci.plugins.mesos.scheduling.assignment;
+
+import org.jenkinsci.plugins.mesos.scheduling.JenkinsSlave;
+import org.jenkinsci.plugins.mesos.scheduling.Lease;
+import org.jenkinsci.plugins.mesos.scheduling.Request;
+import org.jenkinsci.plugins.mesos.scheduling.fitness.FitnessRater;
+import org.jenkinsci.plugins.mesos.scheduling.fitness.PackingFitnessRaters;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class AssignmentStrategies {
+
+    private AssignmentStrategies() {}
+
+    /**
+     * Places the requests in queue order, each one on its currently fittest lease.
+     */
+    public static final AssignmentStrategy GREEDY = new AssignmentStrategy() {
+
+        @Override
+        public String toString() {
+            return "GREEDY";
+        }
+
+        @Override
+        public void assign(List<Request> requests, Placement placement) {
+            for (Request request : requests) {
+                if (placement.isExpired()) {
+                    return;
+                }
+                placement.place(request);
+            }
+        }
+    };
+
+    /**
+     * Places the requests in decreasing order of their dominant resource share (the larger of the requested cpus and
+     * mem relative to the largest lease). Thus, small requests cannot fragment the only agent a large request of the
+     * same cycle fits on. Requests with the same share keep their queue order.
+     *
+     * All requests are placed on the lease their configured rater prefers. Among leases the rater considers equally
+     * fit, large requests (a share above {@link #LARGE_REQUEST_SHARE}) take the one they fill most (see
+     * {@link #BEST_FIT}), so that they leave the larger leases to the next large requests.
+     */
+    public static final AssignmentStrategy DOMINANT_RESOURCE_DECREASING = new AssignmentStrategy() {
+
+        @Override
+        public String toString() {
+            return "DOMINANT_RESOURCE_DECREASING";
+        }
+
+        @Override
+        public void assign(List<Request> requests, Placement placement) {
+            double maxCpus = 0.0;
+            double maxMem = 0.0;
+            for (Lease lease : placement.getLeases()) {
+                maxCpus = Math.max(maxCpus, lease.getTotalAvailableCpus());
+                maxMem = Math.max(maxMem, lease.getTotalAvailableMem());
+            }
+
+            final Map<Request, Double> shares = new IdentityHashMap<>();
+            for (Request request : requests) {
+                JenkinsSlave.RequestJenkinsSlave requestedAgent = request.getRequest().getSlave();
+                shares.put(request, Math.max(share(requestedAgent.getCpus(), maxCpus), share(requestedAgent.getMem(), maxMem)));
+            }
+
+            // stable, so that requests of the same share keep their queue order
+            List<Request> sortedRequests = new ArrayList<>(requests);
+            Collections.sort(sortedRequests, Comparator.comparing(shares::get, Comparator.reverseOrder()));
+
+            for (Request request : sortedRequests) {
+                if (placement.isExpired()) {
+                    return;
+                }
+                placement.place(request, shares.get(request) > LARGE_REQUEST_SHARE ? BEST_FIT : null);
+            }
+        }
+    };
+
+    /**
+     * Dominant resource share above which {@link #DOMINANT_RESOURCE_DECREASING} breaks ties best fit.
+     */
+    static final double LARGE_REQUEST_SHARE = 0.5;
+
+    /**
+     * Prefers the lease a request fills most.
+     */
+    static final FitnessRater BEST_FIT = PackingFitnessRaters.CPU_MEM_PACKING;
+
+    private static double share(double requested, double available) {
+        if (requested <= 0.0) {
+            return 0.0;
+        }
+        return available > 0.0 ? requested / available : Double.POSITIVE_INFINITY;
+    }
+
+}
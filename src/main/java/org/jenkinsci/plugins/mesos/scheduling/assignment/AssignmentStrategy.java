@@ -0,0 +1,28 @@
+package org.jenkinsci.plugins.mesos.scheduling.assignment;
+
+import org.jenkinsci.plugins.mesos.scheduling.Request;
+
+import java.util.List;
+
+public abstract class AssignmentStrategy {
+
+    public static final long DEFAULT_BUDGET_MILLIS = 100;
+
+    /**
+     * Time for placing the requests a strategy did not get to, the rest stays pending for the next offer cycle. Thus,
+     * the placement of an offer cycle takes at most both budgets (plus finishing the request in progress).
+     */
+    public static final long FALLBACK_BUDGET_MILLIS = DEFAULT_BUDGET_MILLIS;
+
+    /**
+     * Places the requests drained in an offer cycle, seeing all requests and all leases at once.
+     *
+     * The strategy should stop as soon as the placement is expired. Requests it did not try to place are placed
+     * greedily in queue order afterwards, within {@link #FALLBACK_BUDGET_MILLIS}.
+     *
+     * @param requests the requests, in queue order
+     * @param placement places requests on the leases of the offer cycle
+     */
+    public abstract void assign(List<Request> requests, Placement placement);
+
+}
@@ -0,0 +1,173 @@
+package org.jenkinsci.plugins.mesos.scheduling.assignment;
+
+import org.jenkinsci.plugins.mesos.scheduling.Lease;
+import org.jenkinsci.plugins.mesos.scheduling.Request;
+import org.jenkinsci.plugins.mesos.scheduling.fitness.FitnessRater;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Places the requests of one offer cycle on its leases, on behalf of an {@link AssignmentStrategy}.
+ *
+ * The placement records which requests a strategy tried to place, so that the scheduler can place the remaining
+ * requests greedily when the strategy ran out of time (see {@link #isExpired()}) or failed (see
+ * {@link #assign(AssignmentStrategy, List, long)}).
+ */
+public abstract class Placement {
+
+    private static final Logger LOGGER = Logger.getLogger(Placement.class.getName());
+
+    /**
+     * Leases rated within this distance of the fittest lease are equally fit for a tie breaker.
+     */
+    public static final double TIE_TOLERANCE = 0.01;
+
+    private final List<Lease> leases;
+    private final long deadlineNanos;
+
+    private final Set<Request> attemptedRequests = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<Request> placedRequests = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * @param leases the leases of the offer cycle
+     * @param budgetNanos the time the strategy may take for placing the requests
+     */
+    protected Placement(List<Lease> leases, long budgetNanos) {
+        this.leases = leases;
+        this.deadlineNanos = System.nanoTime() + budgetNanos;
+    }
+
+    public List<Lease> getLeases() {
+        return leases;
+    }
+
+    /**
+     * @return whether the time budget of the strategy is used up
+     */
+    public boolean isExpired() {
+        return System.nanoTime() - deadlineNanos > 0;
+    }
+
+    /**
+     * Lets the strategy place the requests, then places the requests it did not try to place greedily in queue order,
+     * as long as the fallback budget lasts.
+     *
+     * @param strategy the strategy of the offer cycle
+     * @param requests the requests, in queue order
+     * @param fallbackBudgetNanos the time for placing the requests the strategy did not get to
+     * @return the requests which were not placed, in queue order (including the ones deferred to the next cycle)
+     */
+    public final List<Request> assign(AssignmentStrategy strategy, List<Request> requests, long fallbackBudgetNanos) {
+        // let the strategy see all requests and leases at once
+        try {
+            strategy.assign(requests, this);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Assignment strategy '" + strategy + "' failed, assigning the remaining requests greedily:", e);
+        }
+
+        // fall back to greedy placement for requests the strategy did not get to, the rest waits for the next cycle
+        long fallbackDeadlineNanos = System.nanoTime() + fallbackBudgetNanos;
+        List<Request> unplacedRequests = new ArrayList<>();
+        for (Request request : requests) {
+            if (!isAttempted(request)) {
+                if (System.nanoTime() - fallbackDeadlineNanos < 0) {
+                    LOGGER.fine("Assignment strategy '" + strategy + "' did not place request '" + request + "' in time, assigning it greedily");
+                    place(request);
+                } else {
+                    LOGGER.fine("No time left to place request '" + request + "', deferring it to the next offer cycle");
+                }
+            }
+
+            if (!isPlaced(request)) {
+                unplacedRequests.add(request);
+            }
+        }
+
+        return unplacedRequests;
+    }
+
+    /**
+     * Places the request on its fittest lease according to the rater configured for the request, unless a task or
+     * agent for it already exists.
+     *
+     * @return whether the request was placed (or needs no placement)
+     */
+    public final boolean place(Request request) {
+        return place(request, null);
+    }
+
+    /**
+     * Places the request on its fittest lease according to the rater configured for the request, unless a task or
+     * agent for it already exists. Among (nearly) equally fit leases, the tie breaker chooses.
+     *
+     * @param tieBreaker the rater choosing among equally fit leases, or null for the first of them
+     * @return whether the request was placed (or needs no placement)
+     */
+    public final boolean place(Request request, FitnessRater tieBreaker) {
+        attemptedRequests.add(request);
+
+        boolean placed = placeOnFittestLease(request, tieBreaker);
+        if (placed) {
+            placedRequests.add(request);
+        }
+        return placed;
+    }
+
+    public boolean isAttempted(Request request) {
+        return attemptedRequests.contains(request);
+    }
+
+    public boolean isPlaced(Request request) {
+        return placedRequests.contains(request);
+    }
+
+    /**
+     * @param tieBreaker the rater choosing among equally fit leases (see {@link #chooseFittestLease}), or null
+     */
+    protected abstract boolean placeOnFittestLease(Request request, FitnessRater tieBreaker);
+
+    /**
+     * Chooses the fittest lease by its rating. Without tie breaker, the first of equally rated leases wins, otherwise
+     * the one the tie breaker prefers among the leases rated within {@link #TIE_TOLERANCE} of the fittest.
+     *
+     * @param request the request to place
+     * @param leases the candidate leases
+     * @param ratings the ratings of the leases, by index
+     * @param tieBreaker the rater choosing among equally fit leases, or null
+     * @return the fittest lease, or null if no lease is fit
+     */
+    public static Lease chooseFittestLease(Request request, List<Lease> leases, double[] ratings, FitnessRater tieBreaker) {
+        int fittestIndex = -1;
+        double fittestRating = FitnessRater.NOT_FIT;
+        for (int i = 0; i < ratings.length; i++) {
+            if (ratings[i] > fittestRating) {
+                fittestIndex = i;
+                fittestRating = ratings[i];
+            }
+        }
+
+        if (fittestIndex < 0 || tieBreaker == null) {
+            return fittestIndex < 0 ? null : leases.get(fittestIndex);
+        }
+
+        int chosenIndex = fittestIndex;
+        double chosenRating = FitnessRater.NOT_FIT;
+        for (int i = 0; i < ratings.length; i++) {
+            if (ratings[i] > FitnessRater.NOT_FIT && ratings[i] >= fittestRating - TIE_TOLERANCE) {
+                double rating = tieBreaker.rateFitness(request, leases.get(i));
+                if (rating > chosenRating) {
+                    chosenIndex = i;
+                    chosenRating = rating;
+                }
+            }
+        }
+        return leases.get(chosenIndex);
+    }
+
+}
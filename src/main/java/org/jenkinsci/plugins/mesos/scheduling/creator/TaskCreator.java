@@ -8,6 +8,7 @@ import org.jenkinsci.plugins.mesos.JenkinsScheduler;
 import org.jenkinsci.plugins.mesos.MesosCloud;
 import org.jenkinsci.plugins.mesos.config.slavedefinitions.MesosSlaveInfo;
 import org.jenkinsci.plugins.mesos.scheduling.Lease;
+import org.jenkinsci.plugins.mesos.scheduling.RangeSet;
 import org.jenkinsci.plugins.mesos.scheduling.Request;
 import org.jenkinsci.plugins.mesos.scheduling.SlaveRequest;
 
@@ -24,6 +25,10 @@ public class TaskCreator {
     private static final String FRAMEWORK_NAME_TOKEN = "${FRAMEWORK_NAME}";
     private static final String JENKINS_MASTER_TOKEN = "${JENKINS_MASTER}";
 
+    private static final String CPUS_NAME = "cpus";
+    private static final String MEM_NAME = "mem";
+    private static final String PORTS_NAME = "ports";
+
     private static final String SLAVE_REQUEST_FORMAT="mesos/createSlave/%s";
     private static final String SLAVE_JAR_URI_SUFFIX = "jnlpJars/slave.jar";
     private static final String JNLP_SECRET_FORMAT = "-secret %s";
@@ -35,17 +40,15 @@ public class TaskCreator {
     private final Lease lease;
     private final JenkinsScheduler scheduler;
 
-    // TODO: use lease only
-    private final Protos.Offer offer;
-
 
+    /**
+     * The resources of the task are taken from the currently available (i.e. not yet assigned) resources of the lease,
+     * so that several tasks can be created for and assigned to the same lease one after another.
+     */
     public TaskCreator(@Nonnull Request request, @Nonnull Lease lease, @Nonnull JenkinsScheduler scheduler) {
         this.request = request;
         this.lease = lease;
         this.scheduler = scheduler;
-
-        // see
-        this.offer = lease.getOffers().get(0);
     }
 
     public TaskCreator(@Nonnull Request request, @Nonnull Protos.Offer offer, @Nonnull JenkinsScheduler scheduler) {
@@ -97,10 +100,10 @@ public class TaskCreator {
 
         // actual create task
         Protos.CommandInfo.Builder commandBuilder = getCommandInfoBuilder(request);
-        Protos.TaskInfo.Builder taskBuilder = getTaskInfoBuilder(offer, request, taskId, commandBuilder);
+        Protos.TaskInfo.Builder taskBuilder = getTaskInfoBuilder(request, taskId, commandBuilder);
 
         if (request.getRequest().getSlaveInfo().getContainerInfo() != null) {
-            getContainerInfoBuilder(offer, request, agentName, taskBuilder);
+            getContainerInfoBuilder(request, agentName, taskBuilder);
         }
 
         return taskBuilder.build();
@@ -222,86 +225,54 @@ public class TaskCreator {
         return slaveCmd;
     }
 
-    private Protos.TaskInfo.Builder getTaskInfoBuilder(Protos.Offer offer, Request request, Protos.TaskID taskId, Protos.CommandInfo.Builder commandBuilder) {
+    private Protos.TaskInfo.Builder getTaskInfoBuilder(Request request, Protos.TaskID taskId, Protos.CommandInfo.Builder commandBuilder) {
         Protos.TaskInfo.Builder builder = Protos.TaskInfo.newBuilder()
                 .setName("task " + taskId.getValue())
                 .setTaskId(taskId)
-                .setSlaveId(offer.getSlaveId())
+                .setSlaveId(lease.getOffers().get(0).getSlaveId())
                 .setCommand(commandBuilder.build());
 
         SlaveRequest slaveRequest = request.getRequest();
-        double cpusNeeded = slaveRequest.getSlave().getCpus();
-        double memNeeded = slaveRequest.getSlave().getMem();
-
-        // TODO: prettify "for (Protos.Resource... )
-        /*Double cpusToAssign = request.getCpus();
-        Iterator<String> iterator = request.getRoles().iterator();
-        while (cpusToAssign > 0.0 && iterator.hasNext()) {
-            String role = iterator.next();
+        Set<String> roles = slaveRequest.getSlave().getRoles();
 
-            // assign cpus
-            Double availableCpus = getAvailableCpus(role);
-            Double assignableCpus = Math.min(cpusToAssign, availableCpus);
+        addScalarResources(builder, CPUS_NAME, slaveRequest.getSlave().getCpus(), roles);
+        addScalarResources(builder, MEM_NAME, slaveRequest.getSlave().getMem(), roles);
 
-            if (assignableCpus > 0.0) {
-                task.addResource(CPUS_NAME, assignableCpus, role);
-                cpusToAssign -= assignableCpus;
-                substractAvailableCpus(role, assignableCpus);
-            }
-        }
+        return builder;
+    }
 
-        Double memToAssign = request.getMem();
-        iterator = request.getRoles().iterator();
-        while (memToAssign > 0.0 && iterator.hasNext()) {
+    /**
+     * Adds the needed amount of a scalar resource from the available resources of the lease, taking from the roles in
+     * the given order until the amount is reached.
+     *
+     * @throws IllegalStateException if the roles do not provide the needed amount, so that no undersized task is created
+     */
+    private void addScalarResources(Protos.TaskInfo.Builder builder, String name, double needed, Set<String> roles) {
+        Iterator<String> iterator = roles.iterator();
+        while (needed > 0.0 && iterator.hasNext()) {
             String role = iterator.next();
 
-            // assign cpus
-            Double availableMem = getAvailableMem(role);
-            Double assignableMem = Math.min(memToAssign, availableMem);
-
-            if (assignableMem > 0.0) {
-                task.addResource(MEM_NAME, assignableMem, role);
-                memToAssign -= assignableMem;
-                substractAvailableMem(role, assignableMem);
-            }
-        }*/
-
-        for (Protos.Resource r : offer.getResourcesList()) {
-            if (r.getName().equals("cpus") && cpusNeeded > 0) {
-                double cpus = Math.min(r.getScalar().getValue(), cpusNeeded);
+            double assignable = Math.min(lease.getAvailableScalarResource(name, role), needed);
+            if (assignable > 0.0) {
                 builder.addResources(
                         Protos.Resource
                                 .newBuilder()
-                                .setName("cpus")
+                                .setName(name)
                                 .setType(Protos.Value.Type.SCALAR)
-                                .setRole(r.getRole())
+                                .setRole(role)
                                 .setScalar(
                                         Protos.Value.Scalar.newBuilder()
-                                                .setValue(cpus).build()).build());
-                cpusNeeded -= cpus;
-            } else if (r.getName().equals("mem") && memNeeded > 0.0) {
-                double mem = Math.min(r.getScalar().getValue(), memNeeded);
-                builder.addResources(
-                        Protos.Resource
-                                .newBuilder()
-                                .setName("mem")
-                                .setType(Protos.Value.Type.SCALAR)
-                                .setRole(r.getRole())
-                                .setScalar(
-                                        Protos.Value.Scalar
-                                                .newBuilder()
-                                                .setValue(mem)
-                                                .build()).build());
-                memNeeded -= mem;
-            } else if (cpusNeeded <= 0.0 && memNeeded <= 0.0) {
-                break;
+                                                .setValue(assignable).build()).build());
+                needed -= assignable;
             }
         }
 
-        return builder;
+        if (needed > 0.0) {
+            throw new IllegalStateException("Not enough available " + name + " for roles " + roles + " in lease '" + lease.getId() + "', missing " + needed);
+        }
     }
 
-    private void getContainerInfoBuilder(Protos.Offer offer, Request request, String slaveName, Protos.TaskInfo.Builder taskBuilder) {
+    private void getContainerInfoBuilder(Request request, String slaveName, Protos.TaskInfo.Builder taskBuilder) {
         MesosSlaveInfo slaveInfo = request.getRequest().getSlaveInfo();
 
         MesosSlaveInfo.ContainerInfo containerInfo = slaveInfo.getContainerInfo();
@@ -356,38 +327,7 @@ public class TaskCreator {
                 }
 
                 if (slaveInfo.getContainerInfo().hasPortMappings()) {
-                    Set<MesosSlaveInfo.PortMapping> portMappings = slaveInfo.getContainerInfo().getPortMappings();
-                    Set<Long> portsToUse = findPortsToUse(offer, portMappings.size());
-                    Iterator<Long> iterator = portsToUse.iterator();
-                    Protos.Value.Ranges.Builder portRangesBuilder = Protos.Value.Ranges.newBuilder();
-
-                    for (MesosSlaveInfo.PortMapping portMapping : portMappings) {
-                        Protos.ContainerInfo.DockerInfo.PortMapping.Builder portMappingBuilder = Protos.ContainerInfo.DockerInfo.PortMapping.newBuilder() //
-                                .setContainerPort(portMapping.getContainerPort()) //
-                                .setProtocol(portMapping.getProtocol());
-
-                        Integer portToUse = portMapping.isStaticHostPort() ? portMapping.getHostPort() : iterator.next().intValue();
-
-                        portMappingBuilder.setHostPort(portToUse);
-
-                        portRangesBuilder.addRange(
-                                Protos.Value.Range
-                                        .newBuilder()
-                                        .setBegin(portToUse)
-                                        .setEnd(portToUse)
-                        );
-
-                        LOGGER.finest("Adding portMapping: " + portMapping);
-                        dockerInfoBuilder.addPortMappings(portMappingBuilder);
-                    }
-
-                    taskBuilder.addResources(
-                            Protos.Resource
-                                    .newBuilder()
-                                    .setName("ports")
-                                    .setType(Protos.Value.Type.RANGES)
-                                    .setRanges(portRangesBuilder)
-                    );
+                    addPortMappings(slaveInfo.getContainerInfo().getPortMappings(), dockerInfoBuilder, taskBuilder);
                 } else {
                     LOGGER.fine("No portMappings found");
                 }
@@ -417,40 +357,92 @@ public class TaskCreator {
         taskBuilder.setContainer(containerInfoBuilder.build());
     }
 
-    @VisibleForTesting
-    SortedSet<Long> findPortsToUse(Protos.Offer offer, int maxCount) {
-        SortedSet<Long> portsToUse = new TreeSet<>();
-        List<Protos.Value.Range> portRangesList = null;
-
-        // Locate the port resource in the offer
-        for (Protos.Resource resource : offer.getResourcesList()) {
-            if (resource.getName().equals("ports")) {
-                portRangesList = resource.getRanges().getRangeList();
-                break;
+    /**
+     * Assigns host ports of the lease to the port mappings: static host ports as configured, dynamic host ports from
+     * the lowest available port of the first role providing ports. The used ports are added as resources of the task.
+     *
+     * @throws IllegalStateException if the lease has not enough available ports for the dynamic host ports
+     */
+    public void addPortMappings(Set<MesosSlaveInfo.PortMapping> portMappings, Protos.ContainerInfo.DockerInfo.Builder dockerInfoBuilder, Protos.TaskInfo.Builder taskBuilder) {
+        Set<String> roles = request.getRequest().getSlave().getRoles();
+
+        // available ports by role, without the ports used by this task so far
+        Map<String, RangeSet> availablePorts = new LinkedHashMap<>();
+        for (String role : roles) {
+            availablePorts.put(role, lease.getAvailableRangeSet(PORTS_NAME, role));
+        }
+        Map<String, Protos.Value.Ranges.Builder> portRangesBuilders = new LinkedHashMap<>();
+
+        // static host ports first, so that they are not picked as dynamic host ports
+        for (MesosSlaveInfo.PortMapping portMapping : portMappings) {
+            if (portMapping.isStaticHostPort()) {
+                usePort(portMapping.getHostPort(), findPortRole(portMapping.getHostPort(), availablePorts, roles), availablePorts, portRangesBuilders);
             }
         }
 
-        if (portRangesList != null) {
-            LOGGER.fine("portRangesList=" + portRangesList);
-
-            /*
-             * We need to find maxCount ports to use.
-             * We are provided a list of port ranges to use
-             * We are assured by the offer check that we have enough ports to use
-             */
-            // Check this port range for ports that we can use
-            for (Protos.Value.Range currentPortRange : portRangesList) {
-                // Check each port until we reach the end of the current range
-                long begin = currentPortRange.getBegin();
-                long end = currentPortRange.getEnd();
-                for (long candidatePort = begin; candidatePort <= end && portsToUse.size() < maxCount; candidatePort++) {
-                    portsToUse.add(candidatePort);
-                }
+        for (MesosSlaveInfo.PortMapping portMapping : portMappings) {
+            Protos.ContainerInfo.DockerInfo.PortMapping.Builder portMappingBuilder = Protos.ContainerInfo.DockerInfo.PortMapping.newBuilder() //
+                    .setContainerPort(portMapping.getContainerPort()) //
+                    .setProtocol(portMapping.getProtocol());
+
+            Integer portToUse = portMapping.isStaticHostPort() ? portMapping.getHostPort() : useDynamicPort(availablePorts, portRangesBuilders);
+
+            portMappingBuilder.setHostPort(portToUse);
+
+            LOGGER.finest("Adding portMapping: " + portMapping);
+            dockerInfoBuilder.addPortMappings(portMappingBuilder);
+        }
+
+        for (Map.Entry<String, Protos.Value.Ranges.Builder> portRangesBuilder : portRangesBuilders.entrySet()) {
+            taskBuilder.addResources(
+                    Protos.Resource
+                            .newBuilder()
+                            .setName(PORTS_NAME)
+                            .setType(Protos.Value.Type.RANGES)
+                            .setRole(portRangesBuilder.getKey())
+                            .setRanges(portRangesBuilder.getValue())
+            );
+        }
+    }
+
+    /**
+     * @return the first role providing the port, or the first role if none does (the lease will refuse the task then)
+     */
+    private String findPortRole(long port, Map<String, RangeSet> availablePorts, Set<String> roles) {
+        for (Map.Entry<String, RangeSet> rolePorts : availablePorts.entrySet()) {
+            if (rolePorts.getValue().contains(port)) {
+                return rolePorts.getKey();
             }
-        } else {
-            LOGGER.fine("Unable to determine ports to use, because no port resources were found in " + offer);
         }
 
-        return portsToUse;
+        return roles.iterator().next();
+    }
+
+    /**
+     * @return the lowest available port of the first role providing ports
+     */
+    private int useDynamicPort(Map<String, RangeSet> availablePorts, Map<String, Protos.Value.Ranges.Builder> portRangesBuilders) {
+        for (Map.Entry<String, RangeSet> rolePorts : availablePorts.entrySet()) {
+            if (!rolePorts.getValue().isEmpty()) {
+                int port = (int) rolePorts.getValue().first(1)[0];
+                usePort(port, rolePorts.getKey(), availablePorts, portRangesBuilders);
+                return port;
+            }
+        }
+
+        throw new IllegalStateException("Not enough available ports in lease '" + lease.getId() + "'");
+    }
+
+    private void usePort(long port, String role, Map<String, RangeSet> availablePorts, Map<String, Protos.Value.Ranges.Builder> portRangesBuilders) {
+        RangeSet rolePorts = availablePorts.get(role);
+        if (rolePorts != null) {
+            availablePorts.put(role, rolePorts.subtract(RangeSet.of(port, port)));
+        }
+
+        portRangesBuilders.computeIfAbsent(role, k -> Protos.Value.Ranges.newBuilder()).addRange(
+                Protos.Value.Range
+                        .newBuilder()
+                        .setBegin(port)
+                        .setEnd(port));
     }
 }
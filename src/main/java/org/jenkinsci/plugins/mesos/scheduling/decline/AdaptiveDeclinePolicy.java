@@ -0,0 +1,216 @@
+package org.jenkinsci.plugins.mesos.scheduling.decline;
+
+import org.apache.mesos.Protos;
+import org.jenkinsci.plugins.mesos.config.slavedefinitions.MesosSlaveInfo;
+import org.jenkinsci.plugins.mesos.scheduling.JenkinsSlave;
+import org.jenkinsci.plugins.mesos.scheduling.Lease;
+import org.jenkinsci.plugins.mesos.scheduling.Request;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Chooses the refuse duration per agent from the shape of the pending requests and the offer history of the agent.
+ *
+ * <ul>
+ *     <li>the remaining resources fit a pending request, or nearly do: {@link #minRefuseSeconds} (the request might
+ *     fit in the next cycle, e.g. when other tasks finish)</li>
+ *     <li>the agent offered enough resources for a pending request before: starting at {@link #minRefuseSeconds},
+ *     doubled for every consecutive miss, up to {@link #maxTransientRefuseSeconds}</li>
+ *     <li>the agent never offered enough resources for any pending request: starting at
+ *     {@link #maxTransientRefuseSeconds}, doubled for every consecutive miss, up to {@link #maxRefuseSeconds}</li>
+ * </ul>
+ *
+ * Only requests whose attributes the agent has are considered. Pending requests of the same shape (resources, roles
+ * and attributes) are compared with each lease once. New requests revive offers (which clears all filters), so long
+ * filters do not delay requests with a new shape. The history is kept for at most {@link #MAX_AGENTS} agents.
+ */
+public class AdaptiveDeclinePolicy extends DeclinePolicy {
+
+    public static final int MAX_AGENTS = 4096;
+
+    public static final double DEFAULT_NEAR_MISS_RATIO = 0.8;
+    public static final double DEFAULT_MAX_TRANSIENT_REFUSE_SECONDS = 30.0;
+    public static final double DEFAULT_MAX_REFUSE_SECONDS = 300.0;
+
+    private static final String CPUS_NAME = "cpus";
+    private static final String MEM_NAME = "mem";
+
+    private static final class AgentHistory {
+        private double peakCpus;
+        private double peakMem;
+        private int consecutiveMisses;
+    }
+
+    private static final class RequestShape {
+        private final double cpus;
+        private final double mem;
+        private final Set<String> roles;
+        private final String attributes;
+        private final MesosSlaveInfo slaveInfo;
+
+        private RequestShape(Request request) {
+            JenkinsSlave.RequestJenkinsSlave agent = request.getRequest().getSlave();
+            this.cpus = agent.getCpus();
+            this.mem = agent.getMem();
+            this.roles = agent.getRoles();
+            this.slaveInfo = request.getRequest().getSlaveInfo();
+            this.attributes = slaveInfo != null ? slaveInfo.getSlaveAttributesString() : null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof RequestShape)) {
+                return false;
+            }
+            RequestShape that = (RequestShape) o;
+            return Double.compare(cpus, that.cpus) == 0
+                    && Double.compare(mem, that.mem) == 0
+                    && Objects.equals(roles, that.roles)
+                    && Objects.equals(attributes, that.attributes);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(cpus, mem, roles, attributes);
+        }
+    }
+
+    private final double nearMissRatio;
+    private final double minRefuseSeconds;
+    private final double maxTransientRefuseSeconds;
+    private final double maxRefuseSeconds;
+
+    private final Map<String, AgentHistory> histories = new LinkedHashMap<String, AgentHistory>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, AgentHistory> eldest) {
+            return size() > MAX_AGENTS;
+        }
+    };
+
+    // the shapes of the pending requests of the current offer cycle, which are the same for all of its leases
+    private Collection<Request> shapedRequests;
+    private int shapedRequestCount;
+    private List<RequestShape> requestShapes;
+
+    public AdaptiveDeclinePolicy() {
+        this(DEFAULT_NEAR_MISS_RATIO, DEFAULT_REFUSE_SECONDS, DEFAULT_MAX_TRANSIENT_REFUSE_SECONDS, DEFAULT_MAX_REFUSE_SECONDS);
+    }
+
+    public AdaptiveDeclinePolicy(double nearMissRatio, double minRefuseSeconds, double maxTransientRefuseSeconds, double maxRefuseSeconds) {
+        this.nearMissRatio = nearMissRatio;
+        this.minRefuseSeconds = minRefuseSeconds;
+        this.maxTransientRefuseSeconds = maxTransientRefuseSeconds;
+        this.maxRefuseSeconds = maxRefuseSeconds;
+    }
+
+    @Override
+    public String toString() {
+        return "ADAPTIVE";
+    }
+
+    @Override
+    public synchronized double getRefuseSeconds(Lease lease, Collection<Request> pendingRequests) {
+        AgentHistory history = getHistory(lease);
+
+        if (pendingRequests.isEmpty()) {
+            // nothing to wait for, new requests revive offers anyway
+            history.consecutiveMisses = 0;
+            return maxRefuseSeconds;
+        }
+
+        double bestRatio = 0.0;
+        boolean fitsByHistory = false;
+        for (RequestShape shape : getRequestShapes(pendingRequests)) {
+            if (!lease.hasAllAttributes(shape.slaveInfo)) {
+                // the agent never fits the request, whatever resources it offers
+                continue;
+            }
+
+            bestRatio = Math.max(bestRatio, getFitRatio(lease, shape));
+            fitsByHistory |= history.peakCpus >= shape.cpus && history.peakMem >= shape.mem;
+
+            if (bestRatio >= nearMissRatio) {
+                history.consecutiveMisses = 0;
+                return minRefuseSeconds;
+            }
+        }
+
+        double refuseSeconds;
+        if (fitsByHistory) {
+            refuseSeconds = backoff(minRefuseSeconds, history.consecutiveMisses, maxTransientRefuseSeconds);
+        } else {
+            refuseSeconds = backoff(maxTransientRefuseSeconds, history.consecutiveMisses, maxRefuseSeconds);
+        }
+        history.consecutiveMisses++;
+
+        return refuseSeconds;
+    }
+
+    /**
+     * @return how much of the requested cpus and mem (the scarcer of both, at most 1.0) the lease provides
+     */
+    private static double getFitRatio(Lease lease, RequestShape shape) {
+        double cpuRatio = getRatio(lease.getAvailableCpus(shape.roles), shape.cpus);
+        double memRatio = getRatio(lease.getAvailableMem(shape.roles), shape.mem);
+
+        return Math.min(cpuRatio, memRatio);
+    }
+
+    private static double getRatio(double available, double requested) {
+        if (requested <= 0.0) {
+            return 1.0;
+        }
+        return Math.min(1.0, available / requested);
+    }
+
+    /**
+     * @return the distinct shapes of the pending requests, computed once per offer cycle (the scheduler passes the same
+     * collection for all leases of a cycle)
+     */
+    private List<RequestShape> getRequestShapes(Collection<Request> pendingRequests) {
+        if (pendingRequests != shapedRequests || pendingRequests.size() != shapedRequestCount) {
+            Set<RequestShape> shapes = new LinkedHashSet<>();
+            for (Request request : pendingRequests) {
+                shapes.add(new RequestShape(request));
+            }
+            shapedRequests = pendingRequests;
+            shapedRequestCount = pendingRequests.size();
+            requestShapes = new ArrayList<>(shapes);
+        }
+        return requestShapes;
+    }
+
+    private static double backoff(double base, int misses, double max) {
+        return Math.min(max, base * Math.pow(2, Math.min(misses, 16)));
+    }
+
+    private AgentHistory getHistory(Lease lease) {
+        AgentHistory history = histories.computeIfAbsent(lease.getAgentId(), k -> new AgentHistory());
+
+        double offeredCpus = 0.0;
+        double offeredMem = 0.0;
+        for (Protos.Offer offer : lease.getOffers()) {
+            for (Protos.Resource resource : offer.getResourcesList()) {
+                if (CPUS_NAME.equals(resource.getName())) {
+                    offeredCpus += resource.getScalar().getValue();
+                } else if (MEM_NAME.equals(resource.getName())) {
+                    offeredMem += resource.getScalar().getValue();
+                }
+            }
+        }
+
+        history.peakCpus = Math.max(history.peakCpus, offeredCpus);
+        history.peakMem = Math.max(history.peakMem, offeredMem);
+        return history;
+    }
+}
@@ -0,0 +1,28 @@
+package org.jenkinsci.plugins.mesos.scheduling.decline;
+
+import org.jenkinsci.plugins.mesos.scheduling.Lease;
+import org.jenkinsci.plugins.mesos.scheduling.Request;
+
+import java.util.Collection;
+
+public final class DeclinePolicies {
+
+    private DeclinePolicies() {}
+
+    /**
+     * Always refuses for {@value DeclinePolicy#DEFAULT_REFUSE_SECONDS}s, regardless of demand or agent.
+     */
+    public final static DeclinePolicy FIXED = new DeclinePolicy() {
+
+        @Override
+        public String toString() {
+            return "FIXED";
+        }
+
+        @Override
+        public double getRefuseSeconds(Lease lease, Collection<Request> pendingRequests) {
+            return DEFAULT_REFUSE_SECONDS;
+        }
+    };
+
+}
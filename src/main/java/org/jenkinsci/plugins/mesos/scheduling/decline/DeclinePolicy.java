@@ -0,0 +1,22 @@
+package org.jenkinsci.plugins.mesos.scheduling.decline;
+
+import org.jenkinsci.plugins.mesos.scheduling.Lease;
+import org.jenkinsci.plugins.mesos.scheduling.Request;
+
+import java.util.Collection;
+
+public abstract class DeclinePolicy {
+
+    public static final double DEFAULT_REFUSE_SECONDS = 1.0;
+
+    /**
+     * Determines how long Mesos should not offer the (remaining) resources of the lease again, after the lease has
+     * been declined or tasks have been launched on it.
+     *
+     * @param lease the lease (meta offer) with its remaining resources
+     * @param pendingRequests the requests which are still pending after the offer cycle
+     * @return the duration in seconds to refuse the resources of the lease
+     */
+    public abstract double getRefuseSeconds(Lease lease, Collection<Request> pendingRequests);
+
+}
@@ -1,14 +1,11 @@
 package org.jenkinsci.plugins.mesos.scheduling.fitness;
 
-import net.sf.json.JSONObject;
-import org.apache.mesos.Protos;
 import org.jenkinsci.plugins.mesos.config.slavedefinitions.MesosSlaveInfo;
 import org.jenkinsci.plugins.mesos.scheduling.JenkinsSlave;
 import org.jenkinsci.plugins.mesos.scheduling.Lease;
+import org.jenkinsci.plugins.mesos.scheduling.RangeSet;
 import org.jenkinsci.plugins.mesos.scheduling.Request;
 
-import java.util.Date;
-import java.util.List;
 import java.util.Set;
 
 public final class BasicFitnessRaters {
@@ -71,14 +68,8 @@ public final class BasicFitnessRaters {
             return availableSize >= requestedSize;
         }
 
-        private boolean isHostPortAssignable(long hostPort, List<Protos.Value.Range> availablePortResources) {
-            for (Protos.Value.Range portRange : availablePortResources) {
-                if (hostPort >= portRange.getBegin() && hostPort <= portRange.getEnd()) {
-                    return true;
-                }
-            }
-
-            return false;
+        private boolean isHostPortAssignable(long hostPort, RangeSet availablePortResources) {
+            return availablePortResources.contains(hostPort);
         }
 
         /**
@@ -97,7 +88,7 @@ public final class BasicFitnessRaters {
          * @param availablePortResources all available port resources
          * @return whether or not all requested (static) host ports are assignable
          */
-        private boolean areAllHostPortsAssignable(Set<MesosSlaveInfo.PortMapping> requestedPortMappings, List<Protos.Value.Range> availablePortResources) {
+        private boolean areAllHostPortsAssignable(Set<MesosSlaveInfo.PortMapping> requestedPortMappings, RangeSet availablePortResources) {
             for (MesosSlaveInfo.PortMapping requestedPortMapping : requestedPortMappings) {
                 if (requestedPortMapping.isStaticHostPort()
                         && !isHostPortAssignable(requestedPortMapping.getHostPort(), availablePortResources)) {
@@ -112,9 +103,14 @@ public final class BasicFitnessRaters {
             JenkinsSlave.RequestJenkinsSlave requestedAgent = request.getRequest().getSlave();
             Set<String> requestedRoles = requestedAgent.getRoles();
             Set<MesosSlaveInfo.PortMapping> requestedPortMappings = requestedAgent.getPortMappings();
-            List<Protos.Value.Range> availablePortResources = lease.getAvailablePortResources(requestedRoles);
+            if (requestedPortMappings.isEmpty()) {
+                // no need to merge the port ranges of the roles
+                return FITTEST;
+            }
+
+            RangeSet availablePortResources = lease.getAvailablePortRanges(requestedRoles);
 
-            return areEnoughPortResourcesAvailable(requestedPortMappings.size(), lease.getAvailablePortResourcesSize(requestedRoles)) &&
+            return areEnoughPortResourcesAvailable(requestedPortMappings.size(), (int) Math.min(Integer.MAX_VALUE, availablePortResources.size())) &&
                     areAllHostPortsAssignable(requestedPortMappings, availablePortResources) ? FITTEST : NOT_FIT;
         }
     };
@@ -129,21 +125,26 @@ public final class BasicFitnessRaters {
         @Override
         public double rateFitness(Request request, Lease lease) {
             long estimatedDuration = request.getRequest().getSlave().getEstimatedDuration();
-            return lease.isAvailable(new Date(), estimatedDuration) ? FITTEST : NOT_FIT;
+            return lease.isAvailableFromCycleStart(estimatedDuration) ? FITTEST : NOT_FIT;
         }
     };
 
     private final static FitnessRater ATTRIBUTES_ASSIGNABLE = new FitnessRater() {
+
+        @Override
+        public String toString() {
+            return "ATTRIBUTES_ASSIGNABLE";
+        }
+
         @Override
         public double rateFitness(Request request, Lease lease) {
-            // TODO: use "JenkinsSlave.getAttributes()" and map instead of JSON object
-            JSONObject slaveAttributes = request.getRequest().getSlaveInfo().getSlaveAttributes();
-            return lease.hasAllAttributes(slaveAttributes) ? FITTEST : NOT_FIT;
+            // matched once per agent and requested attributes, see AgentInfoCache
+            return lease.hasAllAttributes(request.getRequest().getSlaveInfo()) ? FITTEST : NOT_FIT;
         }
     };
 
     /**
-     * Tests whether the lease can handle the request all.
+     * Tests whether the lease can handle the request all. The cheap tests come first, the first failing test decides.
      */
     public final static FitnessRater ASSIGNABLE = new FitnessRater() {
 
@@ -154,13 +155,16 @@ public final class BasicFitnessRaters {
 
         @Override
         public double rateFitness(Request request, Lease lease) {
-            return combineFitnessValues(
-                    AVAILABILITY_ASSIGNABLE.rateFitness(request, lease),
-                    CPU_ASSIGNABLE.rateFitness(request, lease),
-                    MEM_ASSIGNABLE.rateFitness(request, lease),
-                    PORTS_ASSIGNABLE.rateFitness(request, lease),
-                    ATTRIBUTES_ASSIGNABLE.rateFitness(request, lease)
-            );
+            // all tests rate either FITTEST or NOT_FIT, so their average is FITTEST only if all are
+            if (CPU_ASSIGNABLE.rateFitness(request, lease) <= NOT_FIT
+                    || MEM_ASSIGNABLE.rateFitness(request, lease) <= NOT_FIT
+                    || AVAILABILITY_ASSIGNABLE.rateFitness(request, lease) <= NOT_FIT
+                    || ATTRIBUTES_ASSIGNABLE.rateFitness(request, lease) <= NOT_FIT
+                    || PORTS_ASSIGNABLE.rateFitness(request, lease) <= NOT_FIT) {
+                return NOT_FIT;
+            }
+
+            return FITTEST;
         }
     };
 
@@ -0,0 +1,178 @@
+package org.jenkinsci.plugins.mesos.scheduling.fitness;
+
+import org.jenkinsci.plugins.mesos.scheduling.JenkinsSlave;
+import org.jenkinsci.plugins.mesos.scheduling.Lease;
+import org.jenkinsci.plugins.mesos.scheduling.Request;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.jenkinsci.plugins.mesos.scheduling.fitness.BasicFitnessRaters.ASSIGNABLE;
+
+/**
+ * A rater tree of built-in raters compiled into a flat list of weighted terms (see {@link FitnessRaters#compile}).
+ *
+ * The interpreted raters call each other through several levels, e.g. {@link SpreadingFitnessRaters#CPU_MEM_SPREAD}
+ * tests whether the lease is {@link BasicFitnessRaters#ASSIGNABLE} once for cpus and once for mem, and a composite
+ * repeats this for each of its raters. The compiled rater tests it once, reads the requested and the available cpus
+ * and mem once, and evaluates all terms in one switch on these values. It stops at the first term which is not fit and
+ * allocates nothing (besides what the assignable test and the affinity maps do).
+ */
+final class CompiledFitnessRater extends FitnessRater {
+
+    private static final int TERM_ASSIGNABLE = 0;
+    private static final int TERM_CPU_PACKING = 1;
+    private static final int TERM_MEM_PACKING = 2;
+    private static final int TERM_CPU_MEM_PACKING = 3;
+    private static final int TERM_CPU_SPREAD = 4;
+    private static final int TERM_MEM_SPREAD = 5;
+    private static final int TERM_CPU_MEM_SPREAD = 6;
+    private static final int TERM_NODE_AFFINE_CPU_MEM_PACKING = 7;
+    private static final int TERM_NODE_AFFINE_CPU_MEM_SPREAD = 8;
+    private static final int TERM_DECAYED_AFFINE_CPU_MEM_PACKING = 9;
+    private static final int TERM_DECAYED_AFFINE_CPU_MEM_SPREAD = 10;
+    private static final int TERM_PREFERRED_ROLE_SHARE = 11;
+    private static final int TERM_ROLE_PREFERRING_NODE_AFFINE_CPU_MEM_PACKING = 12;
+    private static final int TERM_ROLE_PREFERRING_NODE_AFFINE_CPU_MEM_SPREAD = 13;
+
+    private static final Map<FitnessRater, Integer> TERMS = new IdentityHashMap<>();
+
+    static {
+        TERMS.put(BasicFitnessRaters.ASSIGNABLE, TERM_ASSIGNABLE);
+        TERMS.put(PackingFitnessRaters.CPU_PACKING, TERM_CPU_PACKING);
+        TERMS.put(PackingFitnessRaters.MEM_PACKING, TERM_MEM_PACKING);
+        TERMS.put(PackingFitnessRaters.CPU_MEM_PACKING, TERM_CPU_MEM_PACKING);
+        TERMS.put(SpreadingFitnessRaters.CPU_SPREAD, TERM_CPU_SPREAD);
+        TERMS.put(SpreadingFitnessRaters.MEM_SPREAD, TERM_MEM_SPREAD);
+        TERMS.put(SpreadingFitnessRaters.CPU_MEM_SPREAD, TERM_CPU_MEM_SPREAD);
+        TERMS.put(NodeAffineRaters.NODE_AFFINE_CPU_MEM_PACKING, TERM_NODE_AFFINE_CPU_MEM_PACKING);
+        TERMS.put(NodeAffineRaters.NODE_AFFINE_CPU_MEM_SPREAD, TERM_NODE_AFFINE_CPU_MEM_SPREAD);
+        TERMS.put(NodeAffineRaters.DECAYED_AFFINE_CPU_MEM_PACKING, TERM_DECAYED_AFFINE_CPU_MEM_PACKING);
+        TERMS.put(NodeAffineRaters.DECAYED_AFFINE_CPU_MEM_SPREAD, TERM_DECAYED_AFFINE_CPU_MEM_SPREAD);
+        TERMS.put(RolePreferringRaters.PREFERRED_ROLE_SHARE, TERM_PREFERRED_ROLE_SHARE);
+        TERMS.put(RolePreferringRaters.ROLE_PREFERRING_NODE_AFFINE_CPU_MEM_PACKING, TERM_ROLE_PREFERRING_NODE_AFFINE_CPU_MEM_PACKING);
+        TERMS.put(RolePreferringRaters.ROLE_PREFERRING_NODE_AFFINE_CPU_MEM_SPREAD, TERM_ROLE_PREFERRING_NODE_AFFINE_CPU_MEM_SPREAD);
+    }
+
+    private final String name;
+    private final int[] terms;
+    private final double[] weights;
+    private final double weightSum;
+    /** whether a term is not fit for leases which are not assignable, i.e. all terms but the preferred role share */
+    private final boolean assignableRequired;
+
+    private CompiledFitnessRater(String name, int[] terms, double[] weights) {
+        this.name = name;
+        this.terms = terms;
+        this.weights = weights;
+
+        double sum = 0.0;
+        boolean required = false;
+        for (int i = 0; i < terms.length; i++) {
+            sum += weights[i];
+            required |= terms[i] != TERM_PREFERRED_ROLE_SHARE;
+        }
+        this.weightSum = sum;
+        this.assignableRequired = required;
+    }
+
+    /**
+     * @param name the name of the compiled rater
+     * @param raters the raters of the weighted average
+     * @param weights the weights of the raters
+     * @return the compiled rater, or null if one of the raters is not a built-in rater
+     */
+    static FitnessRater compile(String name, List<FitnessRater> raters, double[] weights) {
+        int[] terms = new int[raters.size()];
+        for (int i = 0; i < terms.length; i++) {
+            Integer term = TERMS.get(raters.get(i));
+            if (term == null) {
+                return null;
+            }
+            terms[i] = term;
+        }
+
+        return new CompiledFitnessRater(name, terms, weights.clone());
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    @Override
+    public double rateFitness(Request request, Lease lease) {
+        if (assignableRequired && ASSIGNABLE.rateFitness(request, lease) <= NOT_FIT) {
+            return NOT_FIT;
+        }
+
+        JenkinsSlave.RequestJenkinsSlave requestedAgent = request.getRequest().getSlave();
+        double cpuPacking = ratePacking(requestedAgent.getCpus(), lease.getTotalAvailableCpus());
+        double memPacking = ratePacking(requestedAgent.getMem(), lease.getTotalAvailableMem());
+
+        double sum = UNFITTEST;
+        for (int i = 0; i < terms.length; i++) {
+            double fitness = rateTerm(terms[i], request, lease, cpuPacking, memPacking);
+            if (fitness < UNFITTEST) {
+                return NOT_FIT;
+            }
+            sum += weights[i] * fitness;
+        }
+
+        return sum / weightSum;
+    }
+
+    private static double rateTerm(int term, Request request, Lease lease, double cpuPacking, double memPacking) {
+        switch (term) {
+            case TERM_ASSIGNABLE:
+                return FITTEST;
+            case TERM_CPU_PACKING:
+                return cpuPacking;
+            case TERM_MEM_PACKING:
+                return memPacking;
+            case TERM_CPU_MEM_PACKING:
+                return combine(cpuPacking, memPacking);
+            case TERM_CPU_SPREAD:
+                return spread(cpuPacking);
+            case TERM_MEM_SPREAD:
+                return spread(memPacking);
+            case TERM_CPU_MEM_SPREAD:
+                return spread(combine(cpuPacking, memPacking));
+            case TERM_NODE_AFFINE_CPU_MEM_PACKING:
+                return NodeAffineRaters.rateAffinity(request, lease, combine(cpuPacking, memPacking));
+            case TERM_NODE_AFFINE_CPU_MEM_SPREAD:
+                return NodeAffineRaters.rateAffinity(request, lease, spread(combine(cpuPacking, memPacking)));
+            case TERM_DECAYED_AFFINE_CPU_MEM_PACKING:
+                return NodeAffineRaters.rateDecayedAffinity(request, lease, combine(cpuPacking, memPacking));
+            case TERM_DECAYED_AFFINE_CPU_MEM_SPREAD:
+                return NodeAffineRaters.rateDecayedAffinity(request, lease, spread(combine(cpuPacking, memPacking)));
+            case TERM_PREFERRED_ROLE_SHARE:
+                return RolePreferringRaters.PREFERRED_ROLE_SHARE.rateFitness(request, lease);
+            case TERM_ROLE_PREFERRING_NODE_AFFINE_CPU_MEM_PACKING:
+                return RolePreferringRaters.ratePreference(request, lease,
+                        NodeAffineRaters.rateAffinity(request, lease, combine(cpuPacking, memPacking)));
+            case TERM_ROLE_PREFERRING_NODE_AFFINE_CPU_MEM_SPREAD:
+                return RolePreferringRaters.ratePreference(request, lease,
+                        NodeAffineRaters.rateAffinity(request, lease, spread(combine(cpuPacking, memPacking))));
+            default:
+                throw new IllegalStateException("Unknown fitness rater term " + term);
+        }
+    }
+
+    /**
+     * Same as {@link PackingFitnessRaters#CPU_PACKING} and {@link PackingFitnessRaters#MEM_PACKING} for an assignable
+     * lease.
+     */
+    private static double ratePacking(double requestedValue, double totalAvailableValue) {
+        return totalAvailableValue > 0.0 ? requestedValue / totalAvailableValue : NOT_FIT;
+    }
+
+    private static double combine(double first, double second) {
+        return first < UNFITTEST || second < UNFITTEST ? NOT_FIT : (first + second) / 2;
+    }
+
+    private static double spread(double packingFitness) {
+        return packingFitness > NOT_FIT ? FITTEST - packingFitness : NOT_FIT;
+    }
+}
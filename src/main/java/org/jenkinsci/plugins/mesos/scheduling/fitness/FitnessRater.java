@@ -1,9 +1,14 @@
 package org.jenkinsci.plugins.mesos.scheduling.fitness;
 
+import hudson.ExtensionPoint;
 import org.jenkinsci.plugins.mesos.scheduling.Lease;
 import org.jenkinsci.plugins.mesos.scheduling.Request;
 
-public abstract class FitnessRater {
+/**
+ * Rates how fit a lease is for a request. Raters are stateless and named by their {@link #toString()}, other plugins
+ * may contribute raters as {@link hudson.Extension}s (see {@link FitnessRaters}).
+ */
+public abstract class FitnessRater implements ExtensionPoint {
 
     public static final double NOT_FIT   = -1.0;
     public static final double FITTEST   =  1.0;
@@ -33,6 +38,21 @@ public abstract class FitnessRater {
         return sum / fitnessValues.length;
     }
 
+    /**
+     * Same as {@link #combineFitnessValues(double...)} for two values, without allocating the varargs array.
+     *
+     * @param first the first fitness value
+     * @param second the second fitness value
+     * @return average of the values or {@link #NOT_FIT} ({@value NOT_FIT})
+     */
+    protected double combineFitnessValues(double first, double second) {
+        if (first < UNFITTEST || second < UNFITTEST) {
+            return NOT_FIT;
+        }
+
+        return (first + second) / 2;
+    }
+
     /**
      * Rates how fit a request is to run on the provided lease.
      *
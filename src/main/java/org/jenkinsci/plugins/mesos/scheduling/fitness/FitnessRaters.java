@@ -0,0 +1,224 @@
+package org.jenkinsci.plugins.mesos.scheduling.fitness;
+
+import hudson.ExtensionList;
+import jenkins.model.Jenkins;
+import org.apache.commons.lang.StringUtils;
+import org.jenkinsci.plugins.mesos.scheduling.Lease;
+import org.jenkinsci.plugins.mesos.scheduling.Request;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.jenkinsci.plugins.mesos.scheduling.fitness.FitnessRater.NOT_FIT;
+import static org.jenkinsci.plugins.mesos.scheduling.fitness.FitnessRater.UNFITTEST;
+
+/**
+ * Resolves raters from their configuration in the cloud or slave info.
+ *
+ * A configuration is either the name of a rater (see {@link #getNames()}), or a weighted composite of named raters like
+ * {@code "CPU_MEM_PACKING:0.7, NODE_AFFINE_CPU_MEM_SPREAD:0.3"} (weights default to 1). A composite is not fit for a
+ * lease if one of its raters is not, otherwise it rates the weighted average.
+ *
+ * Besides the built-in raters, other plugins may contribute raters as {@link hudson.Extension}s, named by their
+ * {@link FitnessRater#toString()}. Resolved raters are cached by configuration.
+ *
+ * The scheduler rates with compiled raters (see {@link #compile(FitnessRater)}), which evaluate the built-in raters of
+ * a configuration in one pass.
+ */
+public final class FitnessRaters {
+
+    private FitnessRaters() {}
+
+    private static final List<FitnessRater> BUILT_IN = Collections.unmodifiableList(Arrays.asList(
+            BasicFitnessRaters.ASSIGNABLE,
+            PackingFitnessRaters.CPU_PACKING,
+            PackingFitnessRaters.MEM_PACKING,
+            PackingFitnessRaters.CPU_MEM_PACKING,
+            SpreadingFitnessRaters.CPU_SPREAD,
+            SpreadingFitnessRaters.MEM_SPREAD,
+            SpreadingFitnessRaters.CPU_MEM_SPREAD,
+            NodeAffineRaters.NODE_AFFINE_CPU_MEM_PACKING,
+            NodeAffineRaters.NODE_AFFINE_CPU_MEM_SPREAD,
+            NodeAffineRaters.DECAYED_AFFINE_CPU_MEM_PACKING,
+            NodeAffineRaters.DECAYED_AFFINE_CPU_MEM_SPREAD,
+            RolePreferringRaters.PREFERRED_ROLE_SHARE,
+            RolePreferringRaters.ROLE_PREFERRING_NODE_AFFINE_CPU_MEM_PACKING,
+            RolePreferringRaters.ROLE_PREFERRING_NODE_AFFINE_CPU_MEM_SPREAD));
+
+    private static final ConcurrentMap<String, FitnessRater> RESOLVED = new ConcurrentHashMap<>();
+
+    private static final Map<FitnessRater, FitnessRater> COMPILED = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    /**
+     * @return the names of all known raters, built-in ones first
+     */
+    public static List<String> getNames() {
+        return new ArrayList<>(getRatersByName().keySet());
+    }
+
+    /**
+     * @param configuration the name of a rater or a weighted composite of named raters
+     * @return the (cached) rater
+     * @throws IllegalArgumentException if the configuration is malformed or names an unknown rater
+     */
+    public static FitnessRater resolve(String configuration) {
+        String normalized = StringUtils.deleteWhitespace(configuration);
+        if (StringUtils.isEmpty(normalized)) {
+            throw new IllegalArgumentException("Please specify a fitness rater");
+        }
+
+        FitnessRater rater = RESOLVED.get(normalized);
+        if (rater == null) {
+            rater = parse(normalized);
+            FitnessRater existingRater = RESOLVED.putIfAbsent(normalized, rater);
+            if (existingRater != null) {
+                rater = existingRater;
+            }
+        }
+        return rater;
+    }
+
+    /**
+     * Compiles a built-in rater or a composite of built-in raters into a flat evaluator rating the same fitness. Other
+     * raters (e.g. contributed by other plugins) are not compiled.
+     *
+     * @param rater the rater to compile
+     * @return the (cached) compiled rater, or the rater itself if it cannot be compiled
+     */
+    public static FitnessRater compile(FitnessRater rater) {
+        return COMPILED.computeIfAbsent(rater, FitnessRaters::compileRater);
+    }
+
+    /**
+     * Tells whether rating by the rater needs the weights of the recent build hosts of a request, which are costly to
+     * collect (see {@link NodeAffineRaters#weighBuildHosts(List, double)}). Raters contributed by other plugins may
+     * use them, too.
+     *
+     * @param rater a resolved rater (see {@link #resolve(String)})
+     * @return whether the rater is or contains a decayed node affine rater or a contributed rater
+     */
+    public static boolean usesBuildHostWeights(FitnessRater rater) {
+        if (rater instanceof WeightedFitnessRater) {
+            for (FitnessRater weightedRater : ((WeightedFitnessRater) rater).raters) {
+                if (usesBuildHostWeights(weightedRater)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        return rater == NodeAffineRaters.DECAYED_AFFINE_CPU_MEM_PACKING
+                || rater == NodeAffineRaters.DECAYED_AFFINE_CPU_MEM_SPREAD
+                || !BUILT_IN.contains(rater);
+    }
+
+    private static FitnessRater compileRater(FitnessRater rater) {
+        FitnessRater compiledRater;
+        if (rater instanceof WeightedFitnessRater) {
+            WeightedFitnessRater weightedRater = (WeightedFitnessRater) rater;
+            compiledRater = CompiledFitnessRater.compile(weightedRater.configuration, weightedRater.raters, weightedRater.weights);
+        } else {
+            compiledRater = CompiledFitnessRater.compile(rater.toString(), Collections.singletonList(rater), new double[] {1.0});
+        }
+        return compiledRater != null ? compiledRater : rater;
+    }
+
+    private static FitnessRater parse(String configuration) {
+        Map<String, FitnessRater> ratersByName = getRatersByName();
+
+        String[] parts = StringUtils.split(configuration, ',');
+        List<FitnessRater> raters = new ArrayList<>(parts.length);
+        double[] weights = new double[parts.length];
+
+        for (int i = 0; i < parts.length; i++) {
+            String name = StringUtils.substringBefore(parts[i], ":");
+            FitnessRater rater = ratersByName.get(name);
+            if (rater == null) {
+                throw new IllegalArgumentException("Unknown fitness rater '" + name + "', known raters are " + ratersByName.keySet());
+            }
+            raters.add(rater);
+            weights[i] = parseWeight(parts[i]);
+        }
+
+        if (raters.size() == 1 && !parts[0].contains(":")) {
+            return raters.get(0);
+        }
+        return new WeightedFitnessRater(configuration, raters, weights);
+    }
+
+    private static double parseWeight(String part) {
+        if (!part.contains(":")) {
+            return 1.0;
+        }
+
+        String weight = StringUtils.substringAfter(part, ":");
+        try {
+            double value = Double.parseDouble(weight);
+            if (value > 0.0 && !Double.isInfinite(value)) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Invalid weight '" + weight + "' of fitness rater '" + part + "', must be a positive number");
+    }
+
+    private static Map<String, FitnessRater> getRatersByName() {
+        Map<String, FitnessRater> ratersByName = new LinkedHashMap<>();
+        for (FitnessRater rater : BUILT_IN) {
+            ratersByName.put(rater.toString(), rater);
+        }
+
+        if (Jenkins.getInstanceOrNull() != null) {
+            for (FitnessRater rater : ExtensionList.lookup(FitnessRater.class)) {
+                ratersByName.putIfAbsent(rater.toString(), rater);
+            }
+        }
+        return ratersByName;
+    }
+
+    private static final class WeightedFitnessRater extends FitnessRater {
+
+        private final String configuration;
+        private final List<FitnessRater> raters;
+        private final double[] weights;
+        private final double weightSum;
+
+        private WeightedFitnessRater(String configuration, List<FitnessRater> raters, double[] weights) {
+            this.configuration = configuration;
+            this.raters = raters;
+            this.weights = weights;
+
+            double sum = 0.0;
+            for (double weight : weights) {
+                sum += weight;
+            }
+            this.weightSum = sum;
+        }
+
+        @Override
+        public String toString() {
+            return configuration;
+        }
+
+        @Override
+        public double rateFitness(Request request, Lease lease) {
+            double sum = 0.0;
+            for (int i = 0; i < weights.length; i++) {
+                double fitness = raters.get(i).rateFitness(request, lease);
+                if (fitness < UNFITTEST) {
+                    return NOT_FIT;
+                }
+                sum += weights[i] * fitness;
+            }
+            return sum / weightSum;
+        }
+    }
+}
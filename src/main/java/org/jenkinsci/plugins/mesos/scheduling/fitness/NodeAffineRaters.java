@@ -4,6 +4,11 @@ import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.plugins.mesos.scheduling.Lease;
 import org.jenkinsci.plugins.mesos.scheduling.Request;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import static org.jenkinsci.plugins.mesos.scheduling.fitness.FitnessRater.FITTEST;
 import static org.jenkinsci.plugins.mesos.scheduling.fitness.FitnessRater.NOT_FIT;
 import static org.jenkinsci.plugins.mesos.scheduling.fitness.PackingFitnessRaters.CPU_MEM_PACKING;
@@ -40,14 +45,118 @@ public class NodeAffineRaters {
     };
 
 
+    /**
+     * Prefers the hosts of the recent builds (see {@link #weighBuildHosts(List, double)}) over the fitness of the
+     * lease according to {@link PackingFitnessRaters#CPU_MEM_PACKING}.
+     */
+    public static final FitnessRater DECAYED_AFFINE_CPU_MEM_PACKING = new FitnessRater() {
+
+        @Override
+        public String toString() {
+            return "DECAYED_AFFINE_CPU_MEM_PACKING";
+        }
+
+        @Override
+        public double rateFitness(Request request, Lease lease) {
+            return rateDecayedAffineFitness(request, lease, CPU_MEM_PACKING);
+        }
+
+    };
+
+    /**
+     * Prefers the hosts of the recent builds (see {@link #weighBuildHosts(List, double)}) over the fitness of the
+     * lease according to {@link SpreadingFitnessRaters#CPU_MEM_SPREAD}.
+     */
+    public static final FitnessRater DECAYED_AFFINE_CPU_MEM_SPREAD = new FitnessRater() {
+
+        @Override
+        public String toString() {
+            return "DECAYED_AFFINE_CPU_MEM_SPREAD";
+        }
+
+        @Override
+        public double rateFitness(Request request, Lease lease) {
+            return rateDecayedAffineFitness(request, lease, CPU_MEM_SPREAD);
+        }
+
+    };
+
+
     private static final double PENALTY_VALUE = 0.1;
 
+    /**
+     * Bonus of the heaviest host of the recent builds, less than the fitness range so that a busy host loses against
+     * idle hosts.
+     */
+    static final double AFFINITY_BONUS = 0.2;
+
+    /**
+     * Weighs the hosts of recent builds: each build adds {@code decay^i} to the weight of its host (i = 0 for the most
+     * recent build), the weights are scaled so that the heaviest host has 1.0.
+     *
+     * @param hostnames the hosts of the recent builds, most recent first
+     * @param decay the factor by which the weight of a build decreases with every older build, in (0, 1]
+     * @return the weights by hostname
+     */
+    public static Map<String, Double> weighBuildHosts(List<String> hostnames, double decay) {
+        Map<String, Double> weights = new LinkedHashMap<>();
+        double buildWeight = 1.0;
+        double maxWeight = 0.0;
+
+        for (String hostname : hostnames) {
+            if (StringUtils.isNotBlank(hostname)) {
+                double weight = weights.getOrDefault(hostname, 0.0) + buildWeight;
+                weights.put(hostname, weight);
+                maxWeight = Math.max(maxWeight, weight);
+            }
+            buildWeight *= decay;
+        }
+
+        if (maxWeight <= 0.0) {
+            return Collections.emptyMap();
+        }
+
+        for (Map.Entry<String, Double> weight : weights.entrySet()) {
+            weight.setValue(weight.getValue() / maxWeight);
+        }
+        return weights;
+    }
+
+    private static double rateDecayedAffineFitness(Request request, Lease lease, FitnessRater otherRater) {
+        return rateDecayedAffinity(request, lease, otherRater.rateFitness(request, lease));
+    }
+
+    /**
+     * Adds a bonus by the weight of the lease host to the fitness according to the other rater: up to
+     * {@link #AFFINITY_BONUS} for the heaviest host, none for hosts without recent builds. Thus, a job is not pinned
+     * to its hosts if they are busy.
+     */
+    static double rateDecayedAffinity(Request request, Lease lease, double otherFitness) {
+        if (otherFitness <= NOT_FIT) {
+            return otherFitness;
+        }
+
+        Double hostWeight = request.getRequest().getSlave().getBuildHostWeights().get(lease.getHostname());
+        if (hostWeight == null) {
+            return otherFitness;
+        }
+
+        return Math.min(FITTEST, otherFitness + AFFINITY_BONUS * hostWeight);
+    }
+
     private static double rateAffineFitness(Request request, Lease lease, FitnessRater otherRater) {
+        return rateAffinity(request, lease, otherRater.rateFitness(request, lease));
+    }
+
+    /**
+     * Prefers the host of the last build, if the fitness according to the other rater allows it at all.
+     */
+    static double rateAffinity(Request request, Lease lease, double otherRaterFitness) {
         String lastBuildHostname = request.getRequest().getSlave().getLastBuildHostname();
         String leaseHostname = lease.getHostname();
 
         double affinityFitness = StringUtils.equals(leaseHostname, lastBuildHostname) ? FITTEST : NOT_FIT;
-        double otherFitness = getPenalizedFitness(otherRater.rateFitness(request, lease), affinityFitness);
+        double otherFitness = getPenalizedFitness(otherRaterFitness, affinityFitness);
 
         return otherFitness > NOT_FIT && affinityFitness > NOT_FIT ? affinityFitness : otherFitness;
     }
@@ -0,0 +1,126 @@
+package org.jenkinsci.plugins.mesos.scheduling.fitness;
+
+import org.jenkinsci.plugins.mesos.scheduling.Lease;
+import org.jenkinsci.plugins.mesos.scheduling.Request;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Rates a request against many leases on a dedicated fork/join pool.
+ *
+ * Rating does not modify leases, so the leases are split into chunks which are rated concurrently. The ratings are returned by lease index, thus choosing the fittest lease stays deterministic. The pool
+ * is created on first use and its (daemon) threads terminate when idle. After {@link #shutdown()}, no pool is created
+ * anymore and the leases are rated sequentially (e.g. by an offer cycle still running while the scheduler stops).
+ */
+public class ParallelLeaseRater {
+
+    /**
+     * Minimum number of leases rated by one task, smaller chunks do not pay off the forking.
+     */
+    static final int MIN_CHUNK_SIZE = 16;
+
+    private final String name;
+    private final int parallelism;
+
+    private ForkJoinPool pool;
+    private boolean shutdown;
+
+    /**
+     * @param name prefix of the names of the pool threads
+     * @param parallelism the number of pool threads
+     */
+    public ParallelLeaseRater(String name, int parallelism) {
+        this.name = name;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return the ratings of the request, at the indices of the leases
+     */
+    public double[] rate(final FitnessRater rater, final Request request, final List<Lease> leases) {
+        double[] ratings = new double[leases.size()];
+        RatingAction action = new RatingAction(rater, request, leases, ratings, 0, ratings.length);
+
+        ForkJoinPool currentPool = getPool();
+        if (currentPool != null) {
+            try {
+                currentPool.invoke(action);
+                return ratings;
+            } catch (RejectedExecutionException e) {
+                // shut down meanwhile
+            }
+        }
+
+        action.rateSequentially();
+        return ratings;
+    }
+
+    public synchronized void shutdown() {
+        shutdown = true;
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    public synchronized boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * @return the pool, or null after shutdown
+     */
+    private synchronized ForkJoinPool getPool() {
+        if (pool == null && !shutdown) {
+            pool = new ForkJoinPool(parallelism, p -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                thread.setName(name + " " + thread.getPoolIndex());
+                thread.setDaemon(true);
+                return thread;
+            }, null, false);
+        }
+        return pool;
+    }
+
+    private static final class RatingAction extends RecursiveAction {
+
+        private final FitnessRater rater;
+        private final Request request;
+        private final List<Lease> leases;
+        private final double[] ratings;
+        private final int from;
+        private final int to;
+
+        RatingAction(FitnessRater rater, Request request, List<Lease> leases, double[] ratings, int from, int to) {
+            this.rater = rater;
+            this.request = request;
+            this.leases = leases;
+            this.ratings = ratings;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= MIN_CHUNK_SIZE) {
+                rateSequentially();
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(
+                    new RatingAction(rater, request, leases, ratings, from, middle),
+                    new RatingAction(rater, request, leases, ratings, middle, to));
+        }
+
+        void rateSequentially() {
+            for (int i = from; i < to; i++) {
+                ratings[i] = rater.rateFitness(request, leases.get(i));
+            }
+        }
+    }
+}
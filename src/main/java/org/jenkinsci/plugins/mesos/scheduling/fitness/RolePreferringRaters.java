@@ -0,0 +1,87 @@
+package org.jenkinsci.plugins.mesos.scheduling.fitness;
+
+import org.jenkinsci.plugins.mesos.scheduling.JenkinsSlave;
+import org.jenkinsci.plugins.mesos.scheduling.Lease;
+import org.jenkinsci.plugins.mesos.scheduling.Request;
+
+import static org.jenkinsci.plugins.mesos.scheduling.fitness.FitnessRater.FITTEST;
+import static org.jenkinsci.plugins.mesos.scheduling.fitness.FitnessRater.NOT_FIT;
+
+/**
+ * Raters preferring leases which can serve a request from the resources of its preferred role (see
+ * {@link JenkinsSlave#getPreferredRole()}), e.g. reserved resources for {@link JenkinsSlave.RoleResourcesFirst} and
+ * shared resources for {@link JenkinsSlave.SharedResourcesFirst} requests.
+ */
+public final class RolePreferringRaters {
+
+    private RolePreferringRaters() {}
+
+    /**
+     * Rates which share of the requested cpus and mem (the scarcer of both) the preferred role of the lease provides.
+     */
+    public static final FitnessRater PREFERRED_ROLE_SHARE = new FitnessRater() {
+
+        @Override
+        public String toString() {
+            return "PREFERRED_ROLE_SHARE";
+        }
+
+        @Override
+        public double rateFitness(Request request, Lease lease) {
+            JenkinsSlave.RequestJenkinsSlave requestedAgent = request.getRequest().getSlave();
+            String preferredRole = requestedAgent.getPreferredRole();
+
+            return Math.min(
+                    rateShare(requestedAgent.getCpus(), lease.getAvailableCpus(preferredRole)),
+                    rateShare(requestedAgent.getMem(), lease.getAvailableMem(preferredRole)));
+        }
+    };
+
+    public static final FitnessRater ROLE_PREFERRING_NODE_AFFINE_CPU_MEM_SPREAD = preferringRole(NodeAffineRaters.NODE_AFFINE_CPU_MEM_SPREAD);
+
+    public static final FitnessRater ROLE_PREFERRING_NODE_AFFINE_CPU_MEM_PACKING = preferringRole(NodeAffineRaters.NODE_AFFINE_CPU_MEM_PACKING);
+
+
+    /**
+     * Weight of the preferred role share, small enough to only decide between otherwise (nearly) equally fit leases.
+     */
+    private static final double PREFERENCE_WEIGHT = 0.05;
+
+    /**
+     * @param otherRater the rater deciding whether and how fit a lease is
+     * @return a rater additionally preferring leases with resources of the preferred role of the request
+     */
+    public static FitnessRater preferringRole(final FitnessRater otherRater) {
+        return new FitnessRater() {
+
+            @Override
+            public String toString() {
+                return "ROLE_PREFERRING_" + otherRater;
+            }
+
+            @Override
+            public double rateFitness(Request request, Lease lease) {
+                return ratePreference(request, lease, otherRater.rateFitness(request, lease));
+            }
+        };
+    }
+
+    /**
+     * Adds the preferred role share to the fitness according to the other rater, if the lease is fit at all.
+     */
+    static double ratePreference(Request request, Lease lease, double otherFitness) {
+        if (otherFitness <= NOT_FIT) {
+            return otherFitness;
+        }
+
+        double preferenceFitness = PREFERRED_ROLE_SHARE.rateFitness(request, lease);
+        return otherFitness * (FITTEST - PREFERENCE_WEIGHT) + preferenceFitness * PREFERENCE_WEIGHT;
+    }
+
+    private static double rateShare(double requestedValue, double availableValue) {
+        if (requestedValue <= 0.0) {
+            return FITTEST;
+        }
+        return Math.min(FITTEST, availableValue / requestedValue);
+    }
+}
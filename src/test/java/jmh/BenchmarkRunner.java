@@ -0,0 +1,24 @@
+package jmh;
+
+import org.junit.Test;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks in {@code jmh.benchmarks}, only in the benchmark profile: {@code mvn -P benchmark test}.
+ */
+public class BenchmarkRunner {
+
+    @Test
+    public void runJmhBenchmarks() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(getClass().getPackage().getName() + ".benchmarks")
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-report.json")
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,126 @@
+package jmh.benchmarks;
+
+import org.apache.mesos.Protos;
+import org.apache.mesos.SchedulerDriver;
+import org.jenkinsci.plugins.mesos.JenkinsScheduler;
+import org.jenkinsci.plugins.mesos.JenkinsSchedulerNew;
+import org.jenkinsci.plugins.mesos.MesosCloud;
+import org.jenkinsci.plugins.mesos.TestUtils;
+import org.jenkinsci.plugins.mesos.scheduling.JenkinsSlave;
+import org.jenkinsci.plugins.mesos.scheduling.Request;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Latency of requesting and cancelling agents, while many Jenkins threads do so at once and a mocked driver delivers
+ * offer cycles. All changes of the pending requests happen on the event loop of the scheduler, so the requesting
+ * threads only wait for their own events.
+ *
+ * The offers fit none of the requests, so that the offer cycles rate all leases without launching tasks (which would
+ * need a running Jenkins).
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class EnqueueStormBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Scheduler {
+
+        @Param({"10", "100"})
+        private int numberOfOffers;
+
+        private final AtomicInteger numberOfAgents = new AtomicInteger();
+
+        private JenkinsScheduler scheduler;
+        private SchedulerDriver driver;
+        private List<Protos.Offer> offers;
+
+        @Setup
+        public void setUp() {
+            MesosCloud mesosCloud = Mockito.mock(MesosCloud.class, Mockito.withSettings().stubOnly());
+            Mockito.when(mesosCloud.getFrameworkName()).thenReturn("benchmark");
+            Mockito.when(mesosCloud.getMaster()).thenReturn("mesos.test.net:5050");
+
+            driver = Mockito.mock(SchedulerDriver.class, Mockito.withSettings().stubOnly());
+
+            scheduler = new JenkinsSchedulerNew("jenkins.test.net", mesosCloud);
+            TestUtils.startScheduler(scheduler, driver);
+
+            offers = new ArrayList<>(numberOfOffers);
+            for (int i = 0; i < numberOfOffers; i++) {
+                offers.add(TestUtils.createOffer("O_" + i,
+                        TestUtils.createScalarResource("cpus", 0.1, TestUtils.SHARED_ROLE),
+                        TestUtils.createScalarResource("mem", 128.0, TestUtils.SHARED_ROLE)));
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            scheduler.stop();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Agent {
+
+        private Request request;
+        private String linkedItem;
+
+        @Setup
+        public void setUp(Scheduler scheduler) {
+            int agent = scheduler.numberOfAgents.incrementAndGet();
+            linkedItem = "job-" + agent;
+            request = TestUtils.createRequest(new JenkinsSlave.SharedResourcesFirst(
+                    "agent-" + agent,
+                    "mockLabel",
+                    1, // numExecutors
+                    linkedItem,
+                    "dummy.host-na.me",
+                    0L,
+                    1.0, // cpus
+                    1024.0, // mem
+                    Collections.emptySet(),
+                    TestUtils.SHARED_ROLE
+            ));
+        }
+    }
+
+    @Benchmark
+    @Group("storm")
+    @GroupThreads(7)
+    public boolean requestAndCancel(Scheduler scheduler, Agent agent) throws Exception {
+        scheduler.scheduler.requestJenkinsSlave(agent.request.getRequest(), agent.request.getResult()).get();
+        return scheduler.scheduler.removeRequestForLinkedItem(agent.linkedItem).get();
+    }
+
+    @Benchmark
+    @Group("storm")
+    @GroupThreads(1)
+    public void deliverOffers(Scheduler scheduler) throws Exception {
+        scheduler.scheduler.resourceOffers(scheduler.driver, scheduler.offers);
+        // the driver delivers offers at a steady rate, not as fast as the loop could take them
+        TimeUnit.MILLISECONDS.sleep(1);
+    }
+}
@@ -0,0 +1,75 @@
+package jmh.benchmarks;
+
+import org.jenkinsci.plugins.mesos.TestUtils;
+import org.jenkinsci.plugins.mesos.scheduling.Lease;
+import org.jenkinsci.plugins.mesos.scheduling.Request;
+import org.jenkinsci.plugins.mesos.scheduling.fitness.FitnessRater;
+import org.jenkinsci.plugins.mesos.scheduling.fitness.FitnessRaters;
+import org.jenkinsci.plugins.mesos.scheduling.fitness.NodeAffineRaters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rates a request against all leases of an offer cycle with {@link NodeAffineRaters#NODE_AFFINE_CPU_MEM_SPREAD} and
+ * with its compiled form (see {@link FitnessRaters#compile(FitnessRater)}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class FitnessRaterBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int numberOfLeases;
+
+    private final FitnessRater interpretedRater = NodeAffineRaters.NODE_AFFINE_CPU_MEM_SPREAD;
+    private final FitnessRater compiledRater = FitnessRaters.compile(NodeAffineRaters.NODE_AFFINE_CPU_MEM_SPREAD);
+
+    private Request request;
+    private List<Lease> leases;
+
+    @Setup
+    public void setUp() {
+        request = TestUtils.createSharedResourcesFirstRequest(1.0, 1024.0, "jenkins");
+
+        leases = new ArrayList<>(numberOfLeases);
+        for (int i = 0; i < numberOfLeases; i++) {
+            // every fourth lease is too small for the request
+            double cpus = i % 4 == 0 ? 0.5 : 1.0 + i % 8;
+            leases.add(TestUtils.createLease("O_" + i, cpus, cpus * 1024.0));
+        }
+    }
+
+    @Benchmark
+    public double interpreted() {
+        return rateLeases(interpretedRater);
+    }
+
+    @Benchmark
+    public double compiled() {
+        return rateLeases(compiledRater);
+    }
+
+    private double rateLeases(FitnessRater rater) {
+        double fittestRating = FitnessRater.NOT_FIT;
+        for (Lease lease : leases) {
+            fittestRating = Math.max(fittestRating, rater.rateFitness(request, lease));
+        }
+        return fittestRating;
+    }
+}
@@ -0,0 +1,80 @@
+package jmh.benchmarks;
+
+import org.jenkinsci.plugins.mesos.TestUtils;
+import org.jenkinsci.plugins.mesos.scheduling.Lease;
+import org.jenkinsci.plugins.mesos.scheduling.Request;
+import org.jenkinsci.plugins.mesos.scheduling.fitness.FitnessRater;
+import org.jenkinsci.plugins.mesos.scheduling.fitness.FitnessRaters;
+import org.jenkinsci.plugins.mesos.scheduling.fitness.ParallelLeaseRater;
+import org.jenkinsci.plugins.mesos.scheduling.fitness.RolePreferringRaters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rates a request against the leases of an offer cycle sequentially and with a {@link ParallelLeaseRater}, using the
+ * default rater of the scheduler. The lease count where parallel rating starts to win is the break-even for
+ * {@code MesosCloud.DEFAULT_PARALLEL_SCORING_THRESHOLD}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ParallelLeaseRaterBenchmark {
+
+    @Param({"32", "128", "512", "2048", "8192"})
+    private int numberOfLeases;
+
+    private final FitnessRater rater = FitnessRaters.compile(RolePreferringRaters.ROLE_PREFERRING_NODE_AFFINE_CPU_MEM_SPREAD);
+
+    private ParallelLeaseRater parallelLeaseRater;
+    private Request request;
+    private List<Lease> leases;
+
+    @Setup
+    public void setUp() {
+        parallelLeaseRater = new ParallelLeaseRater("benchmark scoring", Runtime.getRuntime().availableProcessors());
+        request = TestUtils.createSharedResourcesFirstRequest(1.0, 1024.0, "jenkins");
+
+        leases = new ArrayList<>(numberOfLeases);
+        for (int i = 0; i < numberOfLeases; i++) {
+            // every fourth lease is too small for the request
+            double cpus = i % 4 == 0 ? 0.5 : 1.0 + i % 8;
+            leases.add(TestUtils.createLease("O_" + i, cpus, cpus * 1024.0));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        parallelLeaseRater.shutdown();
+    }
+
+    @Benchmark
+    public double[] sequential() {
+        double[] ratings = new double[leases.size()];
+        for (int i = 0; i < ratings.length; i++) {
+            ratings[i] = rater.rateFitness(request, leases.get(i));
+        }
+        return ratings;
+    }
+
+    @Benchmark
+    public double[] parallel() {
+        return parallelLeaseRater.rate(rater, request, leases);
+    }
+}
@@ -0,0 +1,75 @@
+package jmh.benchmarks;
+
+import org.apache.mesos.Protos;
+import org.jenkinsci.plugins.mesos.JenkinsSchedulerOld;
+import org.jenkinsci.plugins.mesos.MesosCloud;
+import org.jenkinsci.plugins.mesos.TestUtils;
+import org.jenkinsci.plugins.mesos.config.slavedefinitions.MesosSlaveInfo;
+import org.jenkinsci.plugins.mesos.scheduling.Lease;
+import org.jenkinsci.plugins.mesos.scheduling.Request;
+import org.jenkinsci.plugins.mesos.scheduling.creator.TaskCreator;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Assigns dynamic host ports to the port mappings of a task from a lease offering a single port followed by a wide
+ * port range (see {@link TaskCreator#addPortMappings}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PortAllocationBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int numberOfPortMappings;
+
+    private TaskCreator taskCreator;
+    private Set<MesosSlaveInfo.PortMapping> portMappings;
+
+    @Setup
+    public void setUp() {
+        MesosCloud mesosCloud = Mockito.mock(MesosCloud.class);
+        Mockito.when(mesosCloud.getFrameworkName()).thenReturn("benchmark");
+
+        portMappings = new LinkedHashSet<>();
+        for (int i = 0; i < numberOfPortMappings; i++) {
+            portMappings.add(new MesosSlaveInfo.PortMapping(8000 + i, null, "tcp", null, null));
+        }
+        Request request = TestUtils.createSharedResourcesFirstRequest(1.0, 1024.0, portMappings, TestUtils.SHARED_ROLE);
+
+        Protos.Value.Ranges ports = Protos.Value.Ranges.newBuilder()
+                .addRange(Protos.Value.Range.newBuilder().setBegin(1000).setEnd(1000))
+                .addRange(Protos.Value.Range.newBuilder().setBegin(1025).setEnd(65535))
+                .build();
+        Lease lease = TestUtils.createLease("O_1",
+                TestUtils.createScalarResource("cpus", 1.0, TestUtils.SHARED_ROLE),
+                TestUtils.createScalarResource("mem", 1024.0, TestUtils.SHARED_ROLE),
+                TestUtils.createRangesResource("ports", TestUtils.SHARED_ROLE, ports));
+
+        taskCreator = new TaskCreator(request, lease, new JenkinsSchedulerOld("jenkins.test.net", mesosCloud));
+    }
+
+    @Benchmark
+    public Protos.TaskInfo.Builder addPortMappings() {
+        Protos.TaskInfo.Builder taskBuilder = Protos.TaskInfo.newBuilder();
+        taskCreator.addPortMappings(portMappings, Protos.ContainerInfo.DockerInfo.newBuilder(), taskBuilder);
+        return taskBuilder;
+    }
+}
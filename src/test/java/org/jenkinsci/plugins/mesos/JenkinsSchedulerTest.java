@@ -1,11 +1,24 @@
 package org.jenkinsci.plugins.mesos;
 
 import jenkins.model.Jenkins;
+import org.apache.mesos.Protos;
+import org.apache.mesos.SchedulerDriver;
+import org.jenkinsci.plugins.mesos.scheduling.Request;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.util.Collections;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
 
 @RunWith(PowerMockRunner.class)
 @PrepareForTest( { Jenkins.class })
@@ -16,4 +29,52 @@ public class JenkinsSchedulerTest {
         // do nothing
     }
 
+    @Test(timeout = 10000)
+    public void expectThatQueuedOfferCyclesSkipCancelledRequests() throws Exception {
+        MesosCloud mesosCloud = Mockito.mock(MesosCloud.class);
+        Mockito.when(mesosCloud.getFrameworkName()).thenReturn("test");
+        SchedulerDriver driver = Mockito.mock(SchedulerDriver.class);
+        JenkinsScheduler scheduler = new JenkinsSchedulerNew("jenkins.test.net", mesosCloud);
+
+        // queue the request and an offer cycle before the build is cancelled
+        Request request = TestUtils.createSharedResourcesFirstRequest(1.0, 1024.0, TestUtils.SHARED_ROLE);
+        Protos.Offer offer = TestUtils.createOffer("O_1",
+                TestUtils.createScalarResource("cpus", 0.5, TestUtils.SHARED_ROLE),
+                TestUtils.createScalarResource("mem", 512.0, TestUtils.SHARED_ROLE));
+        scheduler.requestJenkinsSlave(request.getRequest(), request.getResult());
+        scheduler.resourceOffers(driver, Collections.singletonList(offer));
+        Future<Boolean> removed = scheduler.removeRequestForLinkedItem("mockLinkedItem");
+
+        try {
+            TestUtils.startScheduler(scheduler, driver);
+
+            assertThat(removed.get(5, TimeUnit.SECONDS), is(true));
+            // processed after the offer cycle
+            assertThat(scheduler.getRequestForLinkedItem("mockLinkedItem").get(5, TimeUnit.SECONDS), is(nullValue()));
+            assertThat(scheduler.getNumberOfPendingTasks(), is(0));
+
+            // the offer cycle found no requests, thus declined the offer for long
+            ArgumentCaptor<Protos.Filters> filters = ArgumentCaptor.forClass(Protos.Filters.class);
+            Mockito.verify(driver).declineOffer(Mockito.eq(offer.getId()), filters.capture());
+            assertThat(filters.getValue().getRefuseSeconds(), is(scheduler.getNoRequestsDeclineOfferDuration()));
+        } finally {
+            scheduler.stop();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void expectThatCancellingWithoutPendingRequestFails() throws Exception {
+        MesosCloud mesosCloud = Mockito.mock(MesosCloud.class);
+        Mockito.when(mesosCloud.getFrameworkName()).thenReturn("test");
+        JenkinsScheduler scheduler = new JenkinsSchedulerNew("jenkins.test.net", mesosCloud);
+
+        try {
+            TestUtils.startScheduler(scheduler, Mockito.mock(SchedulerDriver.class));
+
+            assertThat(scheduler.removeRequestForLinkedItem("mockLinkedItem").get(5, TimeUnit.SECONDS), is(false));
+        } finally {
+            scheduler.stop();
+        }
+    }
+
 }
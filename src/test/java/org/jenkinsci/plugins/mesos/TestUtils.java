@@ -2,6 +2,7 @@ package org.jenkinsci.plugins.mesos;
 
 import hudson.model.Node;
 import org.apache.mesos.Protos;
+import org.apache.mesos.SchedulerDriver;
 import org.jenkinsci.plugins.mesos.config.slavedefinitions.MesosSlaveInfo;
 import org.jenkinsci.plugins.mesos.scheduling.*;
 import org.mockito.Mockito;
@@ -173,6 +174,10 @@ public class TestUtils {
         return offerBuilder.build();
     }
 
+    public static Lease createLease(String offerId, double cpus, double mem) {
+        return createLease(offerId, createScalarResource("cpus", cpus, SHARED_ROLE), createScalarResource("mem", mem, SHARED_ROLE));
+    }
+
     public static Lease createLease(String offerId, Protos.Resource... resources) {
         return createLease(createOffer(offerId, resources));
     }
@@ -181,4 +186,8 @@ public class TestUtils {
         return new Lease(offer);
     }
 
+    public static void startScheduler(JenkinsScheduler scheduler, SchedulerDriver driver) {
+        scheduler.startEventLoop(driver);
+    }
+
 }
@@ -0,0 +1,43 @@
+package org.jenkinsci.plugins.mesos.scheduling;
+
+import org.apache.mesos.Protos;
+import org.jenkinsci.plugins.mesos.TestUtils;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class AgentInfoCacheTest {
+
+    private final AgentInfoCache agentInfoCache = new AgentInfoCache();
+
+    @Test
+    public void expectThatAgentInfoIsReusedAcrossOffers() {
+        Protos.Offer offer = TestUtils.createOffer("O_1");
+        Protos.Offer nextOffer = offer.toBuilder().setId(Protos.OfferID.newBuilder().setValue("O_2")).build();
+
+        AgentInfo agentInfo = agentInfoCache.get(offer);
+
+        assertThat(agentInfoCache.get(nextOffer), is(sameInstance(agentInfo)));
+        assertThat(agentInfo.getAttributes(), hasEntry("mock", "attribute"));
+        assertThat(agentInfoCache.getHits(), is(1L));
+        assertThat(agentInfoCache.getMisses(), is(1L));
+    }
+
+    @Test
+    public void expectThatAgentInfoIsReplacedWhenAttributesChange() {
+        Protos.Offer offer = TestUtils.createOffer("O_1");
+        Protos.Offer changedOffer = offer.toBuilder()
+                .setId(Protos.OfferID.newBuilder().setValue("O_2"))
+                .setAttributes(0, offer.getAttributes(0).toBuilder()
+                        .setText(Protos.Value.Text.newBuilder().setValue("changed")))
+                .build();
+
+        AgentInfo agentInfo = agentInfoCache.get(offer);
+        AgentInfo changedAgentInfo = agentInfoCache.get(changedOffer);
+
+        assertThat(changedAgentInfo, is(not(sameInstance(agentInfo))));
+        assertThat(changedAgentInfo.getAttributes(), hasEntry("mock", "changed"));
+        assertThat(agentInfoCache.size(), is(1));
+    }
+}
@@ -0,0 +1,67 @@
+package org.jenkinsci.plugins.mesos.scheduling;
+
+import org.apache.mesos.Protos;
+import org.jenkinsci.plugins.mesos.TestUtils;
+import org.jenkinsci.plugins.mesos.config.slavedefinitions.MesosSlaveInfo;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AttributeIndexTest {
+
+    private final Lease centosZoneA = createLease("O_1", "centos7", "a");
+    private final Lease centosZoneB = createLease("O_2", "centos7", "b");
+    private final Lease ubuntuZoneB = createLease("O_3", "ubuntu", "b");
+
+    private final List<Lease> leases = Arrays.asList(centosZoneA, centosZoneB, ubuntuZoneB);
+    private final AttributeIndex attributeIndex = new AttributeIndex(leases);
+
+    @Test
+    public void expectThatRequestsWithoutAttributesMatchAllLeases() {
+        assertThat(attributeIndex.getCandidates(null), is(sameInstance(leases)));
+        assertThat(attributeIndex.getCandidates(createSlaveInfo(Collections.emptyMap())), is(sameInstance(leases)));
+    }
+
+    @Test
+    public void expectThatOnlyLeasesWithAllAttributesMatch() {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        attributes.put("os", "centos7");
+        attributes.put("zone", "b");
+
+        assertThat(attributeIndex.getCandidates(createSlaveInfo(attributes)), contains(centosZoneB));
+        assertThat(attributeIndex.getCandidates(createSlaveInfo(Collections.singletonMap("zone", "b"))), contains(centosZoneB, ubuntuZoneB));
+        assertThat(attributeIndex.getCandidates(createSlaveInfo(Collections.singletonMap("zone", "c"))), is(empty()));
+    }
+
+    private static MesosSlaveInfo createSlaveInfo(Map<String, String> attributes) {
+        MesosSlaveInfo slaveInfo = mock(MesosSlaveInfo.class);
+        when(slaveInfo.getSlaveAttributesMap()).thenReturn(attributes);
+        return slaveInfo;
+    }
+
+    private static Lease createLease(String offerId, String os, String zone) {
+        Protos.Offer offer = TestUtils.createOffer(offerId).toBuilder()
+                .clearAttributes()
+                .addAttributes(createAttribute("os", os))
+                .addAttributes(createAttribute("zone", zone))
+                .build();
+        return new Lease(offer);
+    }
+
+    private static Protos.Attribute createAttribute(String name, String value) {
+        return Protos.Attribute.newBuilder()
+                .setName(name)
+                .setType(Protos.Value.Type.TEXT)
+                .setText(Protos.Value.Text.newBuilder().setValue(value))
+                .build();
+    }
+}
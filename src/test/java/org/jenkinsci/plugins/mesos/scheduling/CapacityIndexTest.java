@@ -0,0 +1,59 @@
+package org.jenkinsci.plugins.mesos.scheduling;
+
+import org.apache.mesos.Protos;
+import org.jenkinsci.plugins.mesos.TestUtils;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class CapacityIndexTest {
+
+    private final Lease small = TestUtils.createLease("O_1", 1.0, 1024.0);
+    private final Lease large = TestUtils.createLease("O_2", 4.0, 4096.0);
+    private final Lease medium = TestUtils.createLease("O_3", 2.0, 1024.0);
+
+    private final List<Lease> leases = Arrays.asList(small, large, medium);
+    private final CapacityIndex capacityIndex = new CapacityIndex(leases);
+
+    @Test
+    public void expectThatOnlyLeasesWithEnoughCapacityAreCandidates() {
+        assertThat(capacityIndex.getCandidates(createAgent(1.0, 512.0)), contains(small, large, medium));
+        assertThat(capacityIndex.getCandidates(createAgent(2.0, 512.0)), contains(large, medium));
+        assertThat(capacityIndex.getCandidates(createAgent(2.0, 2048.0)), contains(large));
+        assertThat(capacityIndex.getCandidates(createAgent(8.0, 512.0)), is(empty()));
+    }
+
+    @Test
+    public void expectThatIndexFollowsAssignments() {
+        Request request = TestUtils.createSharedResourcesFirstRequest(3.0, 1024.0, TestUtils.SHARED_ROLE);
+        Protos.TaskInfo taskInfo = Protos.TaskInfo.newBuilder()
+                .setName("task")
+                .setTaskId(Protos.TaskID.newBuilder().setValue("T_1"))
+                .setSlaveId(large.getOffers().get(0).getSlaveId())
+                .addResources(TestUtils.createScalarResource("cpus", 3.0, TestUtils.SHARED_ROLE))
+                .addResources(TestUtils.createScalarResource("mem", 1024.0, TestUtils.SHARED_ROLE))
+                .build();
+
+        assertThat(large.assign(request, taskInfo), is(true));
+        capacityIndex.update(large);
+
+        assertThat(capacityIndex.getCandidates(createAgent(2.0, 512.0)), contains(medium));
+        assertThat(capacityIndex.getCandidates(createAgent(1.0, 512.0)), contains(small, large, medium));
+    }
+
+    @Test
+    public void expectThatUpdatesOfOtherLeasesAreIgnored() {
+        // all test leases have their own matching context, thus the same matching index as the first lease
+        capacityIndex.update(TestUtils.createLease("O_4", 0.5, 512.0));
+
+        assertThat(capacityIndex.getCandidates(createAgent(1.0, 512.0)), contains(small, large, medium));
+    }
+
+    private static JenkinsSlave.RequestJenkinsSlave createAgent(double cpus, double mem) {
+        return TestUtils.createSharedResourcesFirstRequest(cpus, mem, TestUtils.SHARED_ROLE).getRequest().getSlave();
+    }
+}
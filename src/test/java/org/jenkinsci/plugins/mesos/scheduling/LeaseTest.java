@@ -7,6 +7,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
@@ -119,6 +120,36 @@ public class LeaseTest {
 
 
 
+    @Test
+    public void expectThatLeaseIsCheckedAgainstTheStartOfTheCycle() {
+        List<Protos.Offer> offers = lease.getOffers();
+
+        Lease cycleLeaseBefore = new Lease(offers, now.getTime() - TimeUnit.MINUTES.toMillis(5));
+        assertTrue(cycleLeaseBefore.isAvailableFromCycleStart(TimeUnit.MINUTES.toMillis(1)));
+        assertFalse(cycleLeaseBefore.isAvailableFromCycleStart(TimeUnit.MINUTES.toMillis(6)));
+
+        Lease cycleLeaseAfter = new Lease(offers, now.getTime() + TimeUnit.HOURS.toMillis(2));
+        assertTrue(cycleLeaseAfter.isAvailableFromCycleStart(TimeUnit.MINUTES.toMillis(6)));
+    }
+
+    @Test
+    public void expectThatOffersOfTheSameAgentAreCombined() {
+        Protos.Offer reservedOffer = TestUtils.createOffer("O_1",
+                TestUtils.createScalarResource("cpus", 2.0, "testRole"),
+                TestUtils.createScalarResource("mem",  4.0, "testRole"));
+        Protos.Offer unreservedOffer = TestUtils.createOffer("O_2",
+                TestUtils.createScalarResource("cpus", 1.0, TestUtils.SHARED_ROLE),
+                TestUtils.createScalarResource("mem",  2.0, TestUtils.SHARED_ROLE))
+                .toBuilder().setSlaveId(reservedOffer.getSlaveId()).build();
+
+        Lease multiOfferLease = new Lease(Arrays.asList(reservedOffer, unreservedOffer));
+
+        assertThat(multiOfferLease.getOfferIds(), is(equalTo(Arrays.asList(reservedOffer.getId(), unreservedOffer.getId()))));
+        assertThat(multiOfferLease.getTotalAvailableCpus(), is(equalTo(3.0)));
+        assertThat(multiOfferLease.getTotalAvailableMem(), is(equalTo(6.0)));
+    }
+
+
     private Protos.Value.Range createRange(long begin, long end) {
         return Protos.Value.Range.newBuilder()
                 .setBegin(begin)
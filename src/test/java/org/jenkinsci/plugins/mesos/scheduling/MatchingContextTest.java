@@ -0,0 +1,46 @@
+package org.jenkinsci.plugins.mesos.scheduling;
+
+import org.apache.mesos.Protos;
+import org.jenkinsci.plugins.mesos.TestUtils;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class MatchingContextTest {
+
+    private final MatchingContext matchingContext = new MatchingContext(System.currentTimeMillis());
+
+    private final Protos.Offer offer = TestUtils.createOffer("O_1",
+            TestUtils.createScalarResource("cpus", 2.0, TestUtils.SHARED_ROLE),
+            TestUtils.createScalarResource("mem",  4.0, TestUtils.SHARED_ROLE));
+
+    private final Lease lease = new Lease(Collections.singletonList(offer), matchingContext, AgentInfo.of(offer));
+
+    @Test
+    public void expectThatLeasesAreNumberedInCreationOrder() {
+        Lease otherLease = new Lease(Collections.singletonList(offer), matchingContext, AgentInfo.of(offer));
+
+        assertThat(lease.getMatchingIndex(), is(0));
+        assertThat(otherLease.getMatchingIndex(), is(1));
+    }
+
+    @Test
+    public void expectThatAssignedAgentsAreRecorded() {
+        Request request = TestUtils.createSharedResourcesFirstRequest(1.0, 2.0, TestUtils.SHARED_ROLE);
+        String agentName = request.getRequest().getSlave().getName();
+        assertThat(matchingContext.isAssigned(agentName), is(false));
+
+        Protos.TaskInfo taskInfo = Protos.TaskInfo.newBuilder()
+                .setName("task")
+                .setTaskId(Protos.TaskID.newBuilder().setValue("T_1"))
+                .setSlaveId(offer.getSlaveId())
+                .addResources(TestUtils.createScalarResource("cpus", 1.0, TestUtils.SHARED_ROLE))
+                .build();
+        assertThat(lease.assign(request, taskInfo), is(true));
+
+        assertThat(matchingContext.isAssigned(agentName), is(true));
+    }
+}
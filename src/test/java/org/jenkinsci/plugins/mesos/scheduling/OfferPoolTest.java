@@ -0,0 +1,74 @@
+package org.jenkinsci.plugins.mesos.scheduling;
+
+import org.apache.mesos.Protos;
+import org.jenkinsci.plugins.mesos.TestUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class OfferPoolTest {
+
+    private SchedulerEventLoop eventLoop;
+    private List<Protos.Offer> releasedOffers;
+
+    @Before
+    public void setUp() {
+        eventLoop = new SchedulerEventLoop("test event loop");
+        eventLoop.start();
+        releasedOffers = new CopyOnWriteArrayList<>();
+    }
+
+    @After
+    public void tearDown() {
+        eventLoop.stop();
+    }
+
+    @Test
+    public void testHoldTakeAndRescind() throws Exception {
+        OfferPool offerPool = new OfferPool(eventLoop, () -> 2, () -> TimeUnit.MINUTES.toMillis(1), releasedOffers::addAll);
+
+        eventLoop.submit("hold", () -> {
+            assertThat(offerPool.hold(TestUtils.createOffer("O_1")), is(true));
+            assertThat(offerPool.hold(TestUtils.createOffer("O_2")), is(true));
+            // pool is full
+            assertThat(offerPool.hold(TestUtils.createOffer("O_3")), is(false));
+
+            offerPool.rescind(Protos.OfferID.newBuilder().setValue("O_1").build());
+            assertThat(offerPool.size(), is(equalTo(1)));
+
+            List<Protos.Offer> taken = offerPool.take();
+            assertThat(taken.size(), is(equalTo(1)));
+            assertThat(taken.get(0).getId().getValue(), is(equalTo("O_2")));
+            assertThat(offerPool.isEmpty(), is(true));
+        }).get();
+
+        assertThat(offerPool.getHeldOffers(), is(equalTo(2L)));
+        assertThat(offerPool.getRejectedOffers(), is(equalTo(1L)));
+        assertThat(offerPool.getRescindedOffers(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void testOffersAreReleasedAfterFirstHoldWindow() throws Exception {
+        OfferPool offerPool = new OfferPool(eventLoop, () -> 16, () -> 100L, releasedOffers::addAll);
+
+        eventLoop.submit("hold", () -> offerPool.hold(TestUtils.createOffer("O_1"))).get();
+        Thread.sleep(50);
+        // taken and held again, the window is not extended
+        eventLoop.submit("hold again", () -> offerPool.hold(offerPool.take().get(0))).get();
+
+        Thread.sleep(200);
+        eventLoop.submit("sync", () -> { }).get();
+
+        assertThat(releasedOffers.size(), is(equalTo(1)));
+        assertThat(offerPool.isEmpty(), is(true));
+        assertThat(offerPool.getHeldOffers(), is(equalTo(1L)));
+        assertThat(offerPool.getReleasedOffers(), is(equalTo(1L)));
+    }
+}
@@ -0,0 +1,95 @@
+package org.jenkinsci.plugins.mesos.scheduling;
+
+import org.jenkinsci.plugins.mesos.TestUtils;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class PendingRequestsTest {
+
+    private static Request createRequest(String name, String linkedItem) {
+        return TestUtils.createRequest(new JenkinsSlave.SharedResourcesFirst(
+                name,
+                "mockLabel",
+                1,
+                linkedItem,
+                "dummy.host-na.me",
+                0L,
+                1.0,
+                1.0,
+                Collections.emptySet(),
+                "testRole"));
+    }
+
+    @Test
+    public void testDrainKeepsFifoOrder() {
+        PendingRequests pendingRequests = new PendingRequests();
+        Request first = createRequest("agent-1", "job-a");
+        Request second = createRequest("agent-2", "job-b");
+        Request third = createRequest("agent-3", "job-a");
+
+        pendingRequests.add(first);
+        pendingRequests.add(second);
+        pendingRequests.add(third);
+
+        List<Request> drained = pendingRequests.drain();
+
+        assertThat(drained, is(equalTo(Arrays.asList(first, second, third))));
+        assertThat(pendingRequests.isEmpty(), is(true));
+        assertThat(pendingRequests.getFirstForLinkedItem("job-a"), is(nullValue()));
+        assertThat(pendingRequests.getForLabel("mockLabel"), is(empty()));
+    }
+
+    @Test
+    public void testLookupAndRemoval() {
+        PendingRequests pendingRequests = new PendingRequests();
+        Request first = createRequest("agent-1", "job-a");
+        Request second = createRequest("agent-2", "job-b");
+        Request third = createRequest("agent-3", "job-a");
+
+        pendingRequests.add(first);
+        pendingRequests.add(second);
+        pendingRequests.add(third);
+
+        assertThat(pendingRequests.get("agent-2"), is(sameInstance(second)));
+        assertThat(pendingRequests.getFirstForLinkedItem("job-a"), is(sameInstance(first)));
+        assertThat(pendingRequests.getForLabel("mockLabel"), is(equalTo(Arrays.asList(first, second, third))));
+
+        assertThat(pendingRequests.remove(first), is(true));
+        assertThat(pendingRequests.remove(first), is(false));
+        assertThat(pendingRequests.getFirstForLinkedItem("job-a"), is(sameInstance(third)));
+
+        assertThat(pendingRequests.remove("agent-2"), is(sameInstance(second)));
+        assertThat(pendingRequests.getFirstForLinkedItem("job-b"), is(nullValue()));
+        assertThat(pendingRequests.getForLabel("mockLabel"), is(equalTo(Collections.singletonList(third))));
+        assertThat(pendingRequests.size(), is(equalTo(1)));
+
+        assertThat(pendingRequests.removeFirstForLinkedItem("job-a"), is(sameInstance(third)));
+        assertThat(pendingRequests.removeFirstForLinkedItem("job-a"), is(nullValue()));
+        assertThat(pendingRequests.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testResourceUsageIsTracked() {
+        PendingRequests pendingRequests = new PendingRequests();
+        pendingRequests.add(createRequest("agent-1", "job-a"));
+        pendingRequests.add(createRequest("agent-2", "job-b"));
+
+        assertThat(pendingRequests.getUsage().getAgents(), is(equalTo(2)));
+        assertThat(pendingRequests.getUsage().getCpus(), is(equalTo(2.0)));
+        assertThat(pendingRequests.getUsage().getUsageByRole().get("testRole").getMem(), is(equalTo(2.0)));
+
+        pendingRequests.remove("agent-1");
+        assertThat(pendingRequests.getUsage().getCpus(), is(equalTo(1.0)));
+        assertThat(pendingRequests.getUsage().getUsageByLabel().get("mockLabel").getAgents(), is(equalTo(1)));
+
+        pendingRequests.drain();
+        assertThat(pendingRequests.getUsage().getAgents(), is(equalTo(0)));
+        assertThat(pendingRequests.getUsage().getUsageByRole().isEmpty(), is(true));
+    }
+}
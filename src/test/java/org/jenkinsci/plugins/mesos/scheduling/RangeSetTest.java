@@ -0,0 +1,47 @@
+package org.jenkinsci.plugins.mesos.scheduling;
+
+import org.apache.mesos.Protos;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class RangeSetTest {
+
+    private static Protos.Value.Range createRange(long begin, long end) {
+        return Protos.Value.Range.newBuilder().setBegin(begin).setEnd(end).build();
+    }
+
+    @Test
+    public void testRangesAreMerged() {
+        RangeSet rangeSet = RangeSet.of(Arrays.asList(createRange(8005, 8010), createRange(8000, 8004), createRange(8008, 8012), createRange(9000, 9000)));
+
+        assertThat(rangeSet.toRanges(), is(equalTo(Arrays.asList(createRange(8000, 8012), createRange(9000, 9000)))));
+        assertThat(rangeSet.size(), is(equalTo(14L)));
+        assertThat(rangeSet.contains(8012), is(true));
+        assertThat(rangeSet.contains(8013), is(false));
+    }
+
+    @Test
+    public void testSubtract() {
+        RangeSet available = RangeSet.of(Arrays.asList(createRange(8000, 8010), createRange(9000, 9010)));
+        RangeSet requested = RangeSet.of(Arrays.asList(createRange(8001, 8001), createRange(8005, 8008), createRange(9000, 9010)));
+
+        assertThat(available.containsAll(requested), is(true));
+        assertThat(requested.containsAll(available), is(false));
+        assertThat(available.subtract(requested).toRanges(),
+                is(equalTo(Arrays.asList(createRange(8000, 8000), createRange(8002, 8004), createRange(8009, 8010)))));
+    }
+
+    @Test
+    public void testFirstOfWideRange() {
+        RangeSet rangeSet = RangeSet.of(Arrays.asList(createRange(31005, 1_000_000_000L), createRange(31000, 31000)));
+
+        assertThat(rangeSet.size(), is(equalTo(1_000_000_000L - 31005 + 2)));
+        assertThat(rangeSet.first(3), is(equalTo(new long[] { 31000, 31005, 31006 })));
+        assertThat(RangeSet.of(31000, 32000).first(1), is(equalTo(new long[] { 31000 })));
+        assertThat(RangeSet.EMPTY.first(3).length, is(equalTo(0)));
+    }
+}
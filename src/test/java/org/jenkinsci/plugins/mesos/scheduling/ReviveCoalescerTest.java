@@ -0,0 +1,62 @@
+package org.jenkinsci.plugins.mesos.scheduling;
+
+import org.apache.mesos.SchedulerDriver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.*;
+
+public class ReviveCoalescerTest {
+
+    private SchedulerEventLoop eventLoop;
+    private SchedulerDriver driver;
+    private ReviveCoalescer reviveCoalescer;
+
+    @Before
+    public void setUp() {
+        eventLoop = new SchedulerEventLoop("test event loop");
+        eventLoop.start();
+        driver = Mockito.mock(SchedulerDriver.class);
+        reviveCoalescer = new ReviveCoalescer(eventLoop, () -> driver, () -> 50L);
+    }
+
+    @After
+    public void tearDown() {
+        eventLoop.stop();
+    }
+
+    @Test
+    public void testRevivesAreCoalesced() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            eventLoop.submit("request", reviveCoalescer::requestRevive);
+        }
+
+        verify(driver, timeout(TimeUnit.SECONDS.toMillis(5)).times(1)).reviveOffers();
+        Thread.sleep(100);
+        verify(driver, times(1)).reviveOffers();
+    }
+
+    @Test
+    public void testSuppressUntilDemandReturns() throws Exception {
+        eventLoop.submit("no demand", reviveCoalescer::suppress).get();
+        eventLoop.submit("no demand", reviveCoalescer::suppress).get();
+
+        verify(driver, times(1)).suppressOffers();
+        assertThat(reviveCoalescer.isSuppressed(), is(true));
+
+        eventLoop.submit("request", reviveCoalescer::requestRevive).get();
+        // no suppression while a revive is pending
+        eventLoop.submit("no demand", reviveCoalescer::suppress).get();
+        verify(driver, times(1)).suppressOffers();
+
+        verify(driver, timeout(TimeUnit.SECONDS.toMillis(5)).times(1)).reviveOffers();
+        eventLoop.submit("sync", () -> { }).get();
+        assertThat(reviveCoalescer.isSuppressed(), is(false));
+    }
+}
@@ -0,0 +1,87 @@
+package org.jenkinsci.plugins.mesos.scheduling;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class SchedulerEventLoopTest {
+
+    private SchedulerEventLoop eventLoop;
+
+    @Before
+    public void setUp() {
+        eventLoop = new SchedulerEventLoop("test event loop");
+    }
+
+    @After
+    public void tearDown() {
+        eventLoop.stop();
+    }
+
+    @Test
+    public void testEventsAreProcessedInOrderOnOwnerThread() throws Exception {
+        eventLoop.start();
+
+        List<Integer> processed = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        Future<Void> last = null;
+        for (int i = 0; i < 100; i++) {
+            final int value = i;
+            last = eventLoop.submit("event " + i, () -> {
+                processed.add(value);
+                threads.add(Thread.currentThread());
+            });
+        }
+        last.get(5, TimeUnit.SECONDS);
+
+        assertThat(processed.size(), is(equalTo(100)));
+        for (int i = 0; i < 100; i++) {
+            assertThat(processed.get(i), is(equalTo(i)));
+            assertThat(threads.get(i), is(sameInstance(threads.get(0))));
+        }
+        assertThat(threads.get(0), is(not(sameInstance(Thread.currentThread()))));
+    }
+
+    @Test
+    public void testNestedEventsAreExecutedDirectly() throws Exception {
+        eventLoop.start();
+
+        Future<Boolean> outer = eventLoop.submit("outer", () -> eventLoop.submit("inner", () -> eventLoop.isOwnerThread()).isDone());
+
+        assertThat(outer.get(5, TimeUnit.SECONDS), is(true));
+    }
+
+    @Test
+    public void testEventsBeforeStartAreQueued() throws Exception {
+        Future<Thread> beforeStart = eventLoop.submit("before start", Thread::currentThread);
+        assertThat(beforeStart.isDone(), is(false));
+
+        eventLoop.start();
+
+        assertThat(beforeStart.get(5, TimeUnit.SECONDS), is(not(sameInstance(Thread.currentThread()))));
+    }
+
+    @Test
+    public void testEventsAfterStopAreRejected() throws Exception {
+        eventLoop.start();
+        eventLoop.stop();
+
+        List<String> processed = new ArrayList<>();
+        Future<?> afterStop = eventLoop.submit("after stop", () -> processed.add("after stop"));
+        eventLoop.schedule("delayed after stop", () -> processed.add("delayed after stop"), 0, TimeUnit.MILLISECONDS);
+
+        assertThat(afterStop.isCancelled(), is(true));
+        assertThat(processed, is(empty()));
+
+        eventLoop.start();
+        assertThat(eventLoop.isRunning(), is(false));
+    }
+}
@@ -0,0 +1,63 @@
+package org.jenkinsci.plugins.mesos.scheduling;
+
+import org.jenkinsci.plugins.mesos.TestUtils;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class TaskTableTest {
+
+    private static Result createResult(double cpus, double mem) {
+        Request request = TestUtils.createSharedResourcesFirstRequest(cpus, mem, "testRole");
+        return new Result(request.getResult(), new JenkinsSlave.ResultJenkinsSlave(request.getRequest().getSlave()));
+    }
+
+    @Test
+    public void testLifecycle() {
+        TaskTable taskTable = new TaskTable();
+        Result result = createResult(1.0, 512.0);
+
+        taskTable.launched("task-1", result);
+        taskTable.launched("task-2", createResult(2.0, 1024.0));
+
+        assertThat(taskTable.get("task-1"), is(sameInstance(result)));
+        assertThat(taskTable.count(TaskTable.State.LAUNCHED), is(equalTo(2L)));
+        assertThat(taskTable.getUsage().getCpus(), is(equalTo(3.0)));
+
+        taskTable.transition("task-1", TaskTable.State.RUNNING);
+        taskTable.transition("task-1", TaskTable.State.CONNECTED);
+        // late status updates do not move the task backwards
+        taskTable.transition("task-1", TaskTable.State.RUNNING);
+
+        assertThat(taskTable.getState("task-1"), is(TaskTable.State.CONNECTED));
+        assertThat(taskTable.count(TaskTable.State.LAUNCHED), is(equalTo(1L)));
+        assertThat(taskTable.count(TaskTable.State.RUNNING), is(equalTo(0L)));
+        assertThat(taskTable.count(TaskTable.State.CONNECTED), is(equalTo(1L)));
+
+        assertThat(taskTable.transition("task-1", TaskTable.State.TERMINAL), is(sameInstance(result)));
+        assertThat(taskTable.transition("task-1", TaskTable.State.TERMINAL), is(nullValue()));
+
+        assertThat(taskTable.contains("task-1"), is(false));
+        assertThat(taskTable.size(), is(equalTo(1)));
+        assertThat(taskTable.count(TaskTable.State.CONNECTED), is(equalTo(0L)));
+        assertThat(taskTable.count(TaskTable.State.TERMINAL), is(equalTo(1L)));
+        assertThat(taskTable.getUsage().getCpus(), is(equalTo(2.0)));
+    }
+
+    @Test
+    public void testClearDoesNotCountTerminatedTasks() {
+        TaskTable taskTable = new TaskTable();
+        taskTable.launched("task-1", createResult(1.0, 512.0));
+        taskTable.launched("task-2", createResult(2.0, 1024.0));
+        taskTable.transition("task-2", TaskTable.State.RUNNING);
+
+        taskTable.clear();
+
+        assertThat(taskTable.size(), is(equalTo(0)));
+        assertThat(taskTable.count(TaskTable.State.LAUNCHED), is(equalTo(0L)));
+        assertThat(taskTable.count(TaskTable.State.RUNNING), is(equalTo(0L)));
+        assertThat(taskTable.count(TaskTable.State.TERMINAL), is(equalTo(0L)));
+        assertThat(taskTable.getUsage().getCpus(), is(equalTo(0.0)));
+    }
+}
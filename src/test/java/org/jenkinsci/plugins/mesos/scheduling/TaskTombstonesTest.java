@@ -0,0 +1,68 @@
+package org.jenkinsci.plugins.mesos.scheduling;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class TaskTombstonesTest {
+
+    @Test
+    public void testAgentIdGenerator() {
+        AgentIdGenerator agentIdGenerator = new AgentIdGenerator("epoch");
+
+        String first = agentIdGenerator.nextName("label-with-dashes");
+        String second = agentIdGenerator.nextName("label-with-dashes");
+
+        assertThat(first, is(not(equalTo(second))));
+        assertThat(agentIdGenerator.getSequence(first), is(equalTo(0L)));
+        assertThat(agentIdGenerator.getSequence(second), is(equalTo(1L)));
+        assertThat(agentIdGenerator.getSequence("label-" + java.util.UUID.randomUUID()), is(equalTo(-1L)));
+        assertThat(new AgentIdGenerator("other").getSequence(first), is(equalTo(-1L)));
+    }
+
+    @Test
+    public void testContainsIsExactWithinWindow() {
+        AgentIdGenerator agentIdGenerator = new AgentIdGenerator("epoch");
+        TaskTombstones tombstones = new TaskTombstones(agentIdGenerator, 64, 2, TimeUnit.DAYS.toMillis(1));
+
+        String[] names = new String[100];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = agentIdGenerator.nextName("label");
+        }
+
+        for (int i = 0; i < names.length; i += 2) {
+            tombstones.add(names[i]);
+        }
+
+        for (int i = names.length - 64 + 1; i < names.length; i++) {
+            assertThat(names[i], tombstones.contains(names[i]), is(i % 2 == 0));
+        }
+        // out of the window
+        assertThat(tombstones.contains(names[0]), is(false));
+
+        tombstones.add("foreign-1");
+        tombstones.add("foreign-2");
+        tombstones.add("foreign-3");
+        assertThat(tombstones.contains("foreign-1"), is(false));
+        assertThat(tombstones.contains("foreign-3"), is(true));
+    }
+
+    @Test
+    public void testTombstonesExpire() throws InterruptedException {
+        AgentIdGenerator agentIdGenerator = new AgentIdGenerator("epoch");
+        TaskTombstones tombstones = new TaskTombstones(agentIdGenerator, 64, 2, 20);
+
+        String name = agentIdGenerator.nextName("label");
+        tombstones.add(name);
+        tombstones.add("foreign");
+        assertThat(tombstones.contains(name), is(true));
+
+        Thread.sleep(50);
+
+        assertThat(tombstones.contains(name), is(false));
+        assertThat(tombstones.contains("foreign"), is(false));
+    }
+}
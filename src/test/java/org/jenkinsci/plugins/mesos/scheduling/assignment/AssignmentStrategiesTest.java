@@ -0,0 +1,84 @@
+package org.jenkinsci.plugins.mesos.scheduling.assignment;
+
+import org.jenkinsci.plugins.mesos.TestUtils;
+import org.jenkinsci.plugins.mesos.scheduling.Lease;
+import org.jenkinsci.plugins.mesos.scheduling.Request;
+import org.jenkinsci.plugins.mesos.scheduling.fitness.BasicFitnessRaters;
+import org.jenkinsci.plugins.mesos.scheduling.fitness.FitnessRater;
+import org.jenkinsci.plugins.mesos.scheduling.fitness.SpreadingFitnessRaters;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class AssignmentStrategiesTest {
+
+    private final List<Lease> leases = Arrays.asList(
+            TestUtils.createLease("O_1", 4.0, 4096.0),
+            TestUtils.createLease("O_2", 1.5, 2048.0));
+
+    private final Request smallRequest = TestUtils.createSharedResourcesFirstRequest(1.0, 1024.0, TestUtils.SHARED_ROLE);
+    private final Request largeRequest = TestUtils.createSharedResourcesFirstRequest(4.0, 4096.0, TestUtils.SHARED_ROLE);
+
+    @Test
+    public void expectThatGreedyLetsSmallRequestsFragmentTheLargestLease() {
+        Placement placement = createPlacement(leases, SpreadingFitnessRaters.CPU_MEM_SPREAD);
+
+        AssignmentStrategies.GREEDY.assign(Arrays.asList(smallRequest, largeRequest), placement);
+
+        assertThat(placement.isPlaced(smallRequest), is(true));
+        assertThat(placement.isPlaced(largeRequest), is(false));
+    }
+
+    @Test
+    public void expectThatDominantResourceDecreasingPlacesAllRequests() {
+        Placement placement = createPlacement(leases, SpreadingFitnessRaters.CPU_MEM_SPREAD);
+
+        AssignmentStrategies.DOMINANT_RESOURCE_DECREASING.assign(Arrays.asList(smallRequest, largeRequest), placement);
+
+        assertThat(placement.isPlaced(smallRequest), is(true));
+        assertThat(placement.isPlaced(largeRequest), is(true));
+    }
+
+    @Test
+    public void expectThatDominantResourceDecreasingBreaksTiesOfLargeRequestsBestFit() {
+        List<Lease> leases = Arrays.asList(
+                TestUtils.createLease("O_1", 4.0, 4096.0),
+                TestUtils.createLease("O_2", 3.0, 3072.0));
+        List<Request> requests = Arrays.asList(
+                TestUtils.createSharedResourcesFirstRequest(1.5, 1536.0, TestUtils.SHARED_ROLE),
+                TestUtils.createSharedResourcesFirstRequest(2.5, 2560.0, TestUtils.SHARED_ROLE),
+                TestUtils.createSharedResourcesFirstRequest(3.0, 3072.0, TestUtils.SHARED_ROLE));
+        // all leases with enough resources are equally fit
+        Placement placement = createPlacement(leases, BasicFitnessRaters.ASSIGNABLE);
+
+        AssignmentStrategies.DOMINANT_RESOURCE_DECREASING.assign(requests, placement);
+
+        // the first of the equally fit leases would leave no room for the 1.5 cpus request
+        for (Request request : requests) {
+            assertThat(placement.isPlaced(request), is(true));
+        }
+    }
+
+    @Test
+    public void expectThatDominantResourceDecreasingKeepsTheConfiguredRater() {
+        Lease largeLease = TestUtils.createLease("O_1", 4.0, 4096.0);
+        Lease fittingLease = TestUtils.createLease("O_2", 3.0, 3072.0);
+        Request request = TestUtils.createSharedResourcesFirstRequest(3.0, 3072.0, TestUtils.SHARED_ROLE);
+        Placement placement = createPlacement(Arrays.asList(largeLease, fittingLease), SpreadingFitnessRaters.CPU_MEM_SPREAD);
+
+        AssignmentStrategies.DOMINANT_RESOURCE_DECREASING.assign(Collections.singletonList(request), placement);
+
+        assertThat(largeLease.hasAssignments(), is(true));
+        assertThat(fittingLease.hasAssignments(), is(false));
+    }
+
+    private static Placement createPlacement(List<Lease> leases, FitnessRater rater) {
+        return new TestPlacement(leases, rater, TimeUnit.SECONDS.toNanos(10));
+    }
+}
@@ -0,0 +1,78 @@
+package org.jenkinsci.plugins.mesos.scheduling.assignment;
+
+import org.jenkinsci.plugins.mesos.TestUtils;
+import org.jenkinsci.plugins.mesos.scheduling.Lease;
+import org.jenkinsci.plugins.mesos.scheduling.Request;
+import org.jenkinsci.plugins.mesos.scheduling.fitness.SpreadingFitnessRaters;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class PlacementTest {
+
+    private static final long BUDGET_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final List<Lease> leases = Collections.singletonList(TestUtils.createLease("O_1", 4.0, 4096.0));
+
+    private final Request firstRequest = TestUtils.createSharedResourcesFirstRequest(1.0, 1024.0, TestUtils.SHARED_ROLE);
+    private final Request secondRequest = TestUtils.createSharedResourcesFirstRequest(1.0, 1024.0, TestUtils.SHARED_ROLE);
+    private final Request tooLargeRequest = TestUtils.createSharedResourcesFirstRequest(8.0, 1024.0, TestUtils.SHARED_ROLE);
+
+    private final List<Request> requests = Arrays.asList(firstRequest, tooLargeRequest, secondRequest);
+
+    @Test
+    public void expectThatUnplacedRequestsAreReturnedInQueueOrder() {
+        Placement placement = new TestPlacement(leases, SpreadingFitnessRaters.CPU_MEM_SPREAD, BUDGET_NANOS);
+
+        List<Request> unplacedRequests = placement.assign(AssignmentStrategies.GREEDY, requests, BUDGET_NANOS);
+
+        assertThat(unplacedRequests, contains(tooLargeRequest));
+        assertThat(placement.isPlaced(firstRequest), is(true));
+        assertThat(placement.isPlaced(secondRequest), is(true));
+    }
+
+    @Test
+    public void expectThatRequestsOfAFailedStrategyArePlacedGreedily() {
+        Placement placement = new TestPlacement(leases, SpreadingFitnessRaters.CPU_MEM_SPREAD, BUDGET_NANOS);
+        AssignmentStrategy failingStrategy = new AssignmentStrategy() {
+            @Override
+            public void assign(List<Request> requests, Placement placement) {
+                placement.place(requests.get(0));
+                throw new IllegalStateException("strategy failed");
+            }
+        };
+
+        List<Request> unplacedRequests = placement.assign(failingStrategy, requests, BUDGET_NANOS);
+
+        assertThat(unplacedRequests, contains(tooLargeRequest));
+        assertThat(placement.isPlaced(secondRequest), is(true));
+    }
+
+    @Test
+    public void expectThatRequestsOfAnExpiredStrategyArePlacedGreedily() {
+        Placement placement = new TestPlacement(leases, SpreadingFitnessRaters.CPU_MEM_SPREAD, 0L);
+
+        List<Request> unplacedRequests = placement.assign(AssignmentStrategies.DOMINANT_RESOURCE_DECREASING, requests, BUDGET_NANOS);
+
+        assertThat(placement.isExpired(), is(true));
+        assertThat(unplacedRequests, contains(tooLargeRequest));
+        assertThat(placement.isPlaced(firstRequest), is(true));
+    }
+
+    @Test
+    public void expectThatRequestsBeyondTheFallbackBudgetAreDeferred() {
+        Placement placement = new TestPlacement(leases, SpreadingFitnessRaters.CPU_MEM_SPREAD, 0L);
+
+        List<Request> unplacedRequests = placement.assign(AssignmentStrategies.GREEDY, requests, 0L);
+
+        assertThat(unplacedRequests, contains(firstRequest, tooLargeRequest, secondRequest));
+        assertThat(placement.isAttempted(firstRequest), is(false));
+        assertThat(leases.get(0).hasAssignments(), is(false));
+    }
+}
@@ -0,0 +1,44 @@
+package org.jenkinsci.plugins.mesos.scheduling.assignment;
+
+import org.apache.mesos.Protos;
+import org.jenkinsci.plugins.mesos.TestUtils;
+import org.jenkinsci.plugins.mesos.scheduling.JenkinsSlave;
+import org.jenkinsci.plugins.mesos.scheduling.Lease;
+import org.jenkinsci.plugins.mesos.scheduling.Request;
+import org.jenkinsci.plugins.mesos.scheduling.fitness.FitnessRater;
+
+import java.util.List;
+
+/**
+ * Places requests on the leases by one rater, choosing the fittest lease like the scheduler does.
+ */
+class TestPlacement extends Placement {
+
+    private final FitnessRater rater;
+
+    private int tasks;
+
+    TestPlacement(List<Lease> leases, FitnessRater rater, long budgetNanos) {
+        super(leases, budgetNanos);
+        this.rater = rater;
+    }
+
+    @Override
+    protected boolean placeOnFittestLease(Request request, FitnessRater tieBreaker) {
+        double[] ratings = new double[getLeases().size()];
+        for (int i = 0; i < ratings.length; i++) {
+            ratings[i] = rater.rateFitness(request, getLeases().get(i));
+        }
+
+        Lease fittestLease = chooseFittestLease(request, getLeases(), ratings, tieBreaker);
+
+        JenkinsSlave.RequestJenkinsSlave requestedAgent = request.getRequest().getSlave();
+        return fittestLease != null && fittestLease.assign(request, Protos.TaskInfo.newBuilder()
+                .setName("task")
+                .setTaskId(Protos.TaskID.newBuilder().setValue("T_" + tasks++))
+                .setSlaveId(fittestLease.getOffers().get(0).getSlaveId())
+                .addResources(TestUtils.createScalarResource("cpus", requestedAgent.getCpus(), TestUtils.SHARED_ROLE))
+                .addResources(TestUtils.createScalarResource("mem", requestedAgent.getMem(), TestUtils.SHARED_ROLE))
+                .build());
+    }
+}
@@ -7,8 +7,10 @@ import org.apache.mesos.Protos;
 import org.jenkinsci.plugins.mesos.JenkinsScheduler;
 import org.jenkinsci.plugins.mesos.JenkinsSchedulerOld;
 import org.jenkinsci.plugins.mesos.MesosCloud;
+import org.jenkinsci.plugins.mesos.TestUtils;
 import org.jenkinsci.plugins.mesos.config.slavedefinitions.MesosSlaveInfo;
 import org.jenkinsci.plugins.mesos.scheduling.JenkinsSlave;
+import org.jenkinsci.plugins.mesos.scheduling.Lease;
 import org.jenkinsci.plugins.mesos.scheduling.Request;
 import org.jenkinsci.plugins.mesos.scheduling.SlaveRequest;
 import org.jenkinsci.plugins.mesos.scheduling.SlaveResult;
@@ -22,11 +24,11 @@ import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.SortedSet;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.List;
+import java.util.Set;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.when;
@@ -57,100 +59,40 @@ public class TaskCreatorTest {
         Mockito.when(Jenkins.get()).thenReturn(jenkins);
     }
 
-    @Test
+    @Test(timeout = 1000)
     public void testFindPortsToUse() {
         JenkinsScheduler scheduler = new JenkinsSchedulerOld("jenkinsMaster", mesosCloud);
-        Protos.Offer offer = createOfferWithVariableRanges(31000, 32000);
-        Request request = mockMesosRequest(Boolean.FALSE, null, null);
-        taskCreator = new TaskCreator(request, offer, scheduler);
+        Lease lease = createLeaseWithPortRanges(createRange(31000, 32000));
+        Request request = mockMesosPortRequest(createDynamicPortMapping(8080));
 
-        SortedSet<Long> portsToUse = taskCreator.findPortsToUse(offer, 1);
+        Protos.TaskInfo task = new TaskCreator(request, lease, scheduler).createTask();
 
-        assertEquals(1, portsToUse.size());
-        assertEquals(Long.valueOf(31000), portsToUse.first());
+        assertEquals(Collections.singletonList(31000), getHostPorts(task));
     }
 
-    @Test
+    @Test(timeout = 1000)
     public void testFindPortsToUseSamePortNumber() {
         JenkinsScheduler scheduler = new JenkinsSchedulerOld("jenkinsMaster", mesosCloud);
-        final Protos.Offer offer = createOfferWithVariableRanges(31000, 32000);
-        Request request = mockMesosRequest(Boolean.FALSE, null, null);
-        taskCreator = new TaskCreator(request, offer, scheduler);
-
-        final ExecutorService executorService = Executors.newFixedThreadPool(1);
-        executorService.execute(() -> {
-            SortedSet<Long> portsToUse = taskCreator.findPortsToUse(offer, 1);
-
-            assertEquals(1, portsToUse.size());
-            assertEquals(Long.valueOf(31000), portsToUse.first());
-        });
+        Lease lease = createLeaseWithPortRanges(createRange(31000, 32000));
+        Request request = mockMesosPortRequest(createDynamicPortMapping(8080));
 
-        executorService.shutdown();
+        // as long as the first task is not assigned, the lease offers the same port again
+        Protos.TaskInfo task = new TaskCreator(request, lease, scheduler).createTask();
+        Protos.TaskInfo otherTask = new TaskCreator(request, lease, scheduler).createTask();
 
-        // Test that there is no infinite loop by asserting that the task finishes in 500ms or less
-        try {
-            assertTrue(executorService.awaitTermination(500L, TimeUnit.MILLISECONDS));
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        } finally {
-            executorService.shutdownNow();
-        }
+        assertEquals(Collections.singletonList(31000), getHostPorts(task));
+        assertEquals(Collections.singletonList(31000), getHostPorts(otherTask));
     }
 
-    @Test
+    @Test(timeout = 1000)
     public void testSingleFirstRangeLongRangeAfterNoInfiniteLoop() {
-        Protos.Value.Range range = Protos.Value.Range.newBuilder()
-                .setBegin(31000)
-                .setEnd(31000)
-                .build();
-
-        Protos.Value.Range range2 = Protos.Value.Range.newBuilder()
-                .setBegin(31005)
-                .setEnd(32000)
-                .build();
-
-        Protos.Value.Ranges ranges = Protos.Value.Ranges.newBuilder()
-                .addRange(range)
-                .addRange(range2)
-                .build();
-
-        Protos.Resource resource = Protos.Resource.newBuilder()
-                .setName("ports")
-                .setRanges(ranges)
-                .setType(Protos.Value.Type.RANGES)
-                .build();
+        JenkinsScheduler scheduler = new JenkinsSchedulerOld("jenkinsMaster", mesosCloud);
+        Lease lease = createLeaseWithPortRanges(createRange(31000, 31000), createRange(31005, 32000));
+        Request request = mockMesosPortRequest(createDynamicPortMapping(8080), createDynamicPortMapping(8081));
 
-        final Protos.Offer protoOffer = Protos.Offer.newBuilder()
-                .addResources(resource)
-                .setId(Protos.OfferID.newBuilder().setValue("value").build())
-                .setFrameworkId(Protos.FrameworkID.newBuilder().setValue("value").build())
-                .setSlaveId(Protos.SlaveID.newBuilder().setValue("value").build())
-                .setHostname("hostname")
-                .build();
+        Protos.TaskInfo task = new TaskCreator(request, lease, scheduler).createTask();
 
-        JenkinsScheduler scheduler = new JenkinsSchedulerOld("jenkinsMaster", mesosCloud);
-        Request request = mockMesosRequest(Boolean.FALSE, null, null);
-        taskCreator = new TaskCreator(request, protoOffer, scheduler);
-
-        final ExecutorService executorService = Executors.newFixedThreadPool(1);
-        executorService.execute(() -> {
-            SortedSet<Long> portsToUse = taskCreator.findPortsToUse(protoOffer, 2);
-
-            assertEquals(2, portsToUse.size());
-            assertEquals(Long.valueOf(31000), portsToUse.first());
-            assertEquals(Long.valueOf(31005), portsToUse.last());
-        });
-
-        executorService.shutdown();
-
-        // Test that there is no infinite loop by asserting that the task finishes in 500ms or less
-        try {
-            assertTrue(executorService.awaitTermination(999999500L, TimeUnit.MILLISECONDS));
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        } finally {
-            executorService.shutdownNow();
-        }
+        assertEquals(Arrays.asList(31000, 31005), getHostPorts(task));
     }
 
     @Test
@@ -226,7 +168,56 @@ public class TaskCreatorTest {
         taskCreator.getCommandInfoBuilder(request);
     }
 
+    @Test
+    public void testCreateTasksFromRemainingLeaseResources() {
+        JenkinsScheduler scheduler = new JenkinsSchedulerOld("jenkinsMaster", mesosCloud);
+        Protos.Offer offer = Protos.Offer.newBuilder()
+                .addResources(TestUtils.createScalarResource("cpus", 0.3, "*"))
+                .addResources(TestUtils.createScalarResource("cpus", 0.3, "jenkins"))
+                .addResources(TestUtils.createScalarResource("mem", 1536, "*"))
+                .setId(Protos.OfferID.newBuilder().setValue("value").build())
+                .setFrameworkId(Protos.FrameworkID.newBuilder().setValue("value").build())
+                .setSlaveId(Protos.SlaveID.newBuilder().setValue("value").build())
+                .setHostname("hostname")
+                .build();
+        Lease lease = new Lease(offer);
+
+        for (int i = 0; i < 3; i++) {
+            Request request = mockMesosRequest("testSlave" + i, Boolean.FALSE, null, null);
+            Protos.TaskInfo task = new TaskCreator(request, lease, scheduler).createTask();
+
+            assertTrue("task " + i + " should be assignable to the lease", lease.assign(request, task));
+        }
+
+        assertEquals(0.0, lease.getTotalAvailableCpus(), 0.001);
+        assertEquals(0.0, lease.getTotalAvailableMem(), 0.001);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCreateTaskFailsWithoutEnoughLeaseResources() {
+        JenkinsScheduler scheduler = new JenkinsSchedulerOld("jenkinsMaster", mesosCloud);
+        Protos.Offer offer = Protos.Offer.newBuilder()
+                .addResources(TestUtils.createScalarResource("cpus", 0.1, "*"))
+                .addResources(TestUtils.createScalarResource("mem", 1536, "*"))
+                .setId(Protos.OfferID.newBuilder().setValue("value").build())
+                .setFrameworkId(Protos.FrameworkID.newBuilder().setValue("value").build())
+                .setSlaveId(Protos.SlaveID.newBuilder().setValue("value").build())
+                .setHostname("hostname")
+                .build();
+        Request request = mockMesosRequest(Boolean.FALSE, null, null);
+
+        new TaskCreator(request, new Lease(offer), scheduler).createTask();
+    }
+
+    private Request mockMesosRequest(
+            Boolean useDocker,
+            Boolean useCustomDockerCommandShell,
+            String customDockerCommandShell) {
+        return mockMesosRequest(TEST_JENKINS_SLAVE_NAME, useDocker, useCustomDockerCommandShell, customDockerCommandShell);
+    }
+
     private Request mockMesosRequest(
+            String slaveName,
             Boolean useDocker,
             Boolean useCustomDockerCommandShell,
             String customDockerCommandShell) {
@@ -246,6 +237,28 @@ public class TaskCreatorTest {
                     Collections.emptyList());
         }
 
+        return mockMesosRequest(slaveName, containerInfo);
+    }
+
+    private Request mockMesosPortRequest(MesosSlaveInfo.PortMapping... portMappings) {
+        MesosSlaveInfo.ContainerInfo containerInfo = new MesosSlaveInfo.ContainerInfo(
+                "docker",
+                "test-docker-in-docker-image",
+                Boolean.TRUE,
+                Boolean.TRUE,
+                false,
+                null,
+                Collections.emptyList(),
+                Collections.emptyList(),
+                Protos.ContainerInfo.DockerInfo.Network.BRIDGE.name(),
+                Arrays.asList(portMappings));
+
+        return mockMesosRequest(TEST_JENKINS_SLAVE_NAME, containerInfo);
+    }
+
+    private Request mockMesosRequest(String slaveName, MesosSlaveInfo.ContainerInfo containerInfo) {
+        Set<MesosSlaveInfo.PortMapping> portMappings = containerInfo != null ? containerInfo.getPortMappings() : Collections.emptySet();
+
         MesosSlaveInfo mesosSlaveInfo = new MesosSlaveInfo(
                 "testLabelString",  // labelString,
                 Node.Mode.NORMAL,
@@ -269,9 +282,9 @@ public class TaskCreatorTest {
 
 
         JenkinsSlave.RequestJenkinsSlave jenkinsSlave = new JenkinsSlave.SharedResourcesFirst(
-                TEST_JENKINS_SLAVE_NAME,"label",1,
+                slaveName,"label",1,
                 "linkedItem", "dummy.host-na.me", 0L,
-                0.2, TEST_JENKINS_SLAVE_MEM, Collections.emptySet(),"jenkins");
+                0.2, TEST_JENKINS_SLAVE_MEM, portMappings,"jenkins");
 
 
         SlaveRequest slaveReq = new SlaveRequest(jenkinsSlave, mesosSlaveInfo);
@@ -280,6 +293,31 @@ public class TaskCreatorTest {
         return new Request(slaveReq,slaveResult);
     }
 
+    private static MesosSlaveInfo.PortMapping createDynamicPortMapping(int containerPort) {
+        return new MesosSlaveInfo.PortMapping(containerPort, null, "tcp", null, null);
+    }
+
+    private static Protos.Value.Range createRange(long begin, long end) {
+        return Protos.Value.Range.newBuilder().setBegin(begin).setEnd(end).build();
+    }
+
+    private static Lease createLeaseWithPortRanges(Protos.Value.Range... ranges) {
+        Protos.Value.Ranges portRanges = Protos.Value.Ranges.newBuilder().addAllRange(Arrays.asList(ranges)).build();
+
+        return TestUtils.createLease("O_1",
+                TestUtils.createScalarResource("cpus", 1.0, TestUtils.SHARED_ROLE),
+                TestUtils.createScalarResource("mem", 1024.0, TestUtils.SHARED_ROLE),
+                TestUtils.createRangesResource("ports", TestUtils.SHARED_ROLE, portRanges));
+    }
+
+    private static List<Integer> getHostPorts(Protos.TaskInfo task) {
+        List<Integer> hostPorts = new ArrayList<>();
+        for (Protos.ContainerInfo.DockerInfo.PortMapping portMapping : task.getContainer().getDocker().getPortMappingsList()) {
+            hostPorts.add(portMapping.getHostPort());
+        }
+        return hostPorts;
+    }
+
     private Protos.Offer createOfferWithVariableRanges(long rangeBegin, long rangeEnd) {
         Protos.Value.Range range = Protos.Value.Range.newBuilder()
                 .setBegin(rangeBegin)
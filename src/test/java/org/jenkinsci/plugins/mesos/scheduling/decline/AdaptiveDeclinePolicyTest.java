@@ -0,0 +1,57 @@
+package org.jenkinsci.plugins.mesos.scheduling.decline;
+
+import org.apache.mesos.Protos;
+import org.jenkinsci.plugins.mesos.TestUtils;
+import org.jenkinsci.plugins.mesos.scheduling.Request;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class AdaptiveDeclinePolicyTest {
+
+    @Test
+    public void testRefuseSeconds() {
+        AdaptiveDeclinePolicy declinePolicy = new AdaptiveDeclinePolicy(0.8, 1.0, 30.0, 300.0);
+        List<Request> requests = Collections.singletonList(TestUtils.createSharedResourcesFirstRequest(2.0, 2048.0, TestUtils.SHARED_ROLE));
+
+        // no demand
+        assertThat(declinePolicy.getRefuseSeconds(TestUtils.createLease("O_1", 1.0, 1024.0), Collections.emptyList()), is(equalTo(300.0)));
+
+        // never offered enough resources
+        assertThat(declinePolicy.getRefuseSeconds(TestUtils.createLease("O_1", 1.0, 1024.0), requests), is(equalTo(30.0)));
+        assertThat(declinePolicy.getRefuseSeconds(TestUtils.createLease("O_1", 1.0, 1024.0), requests), is(equalTo(60.0)));
+
+        // near miss
+        assertThat(declinePolicy.getRefuseSeconds(TestUtils.createLease("O_1", 1.8, 2048.0), requests), is(equalTo(1.0)));
+
+        // offered enough resources before
+        assertThat(declinePolicy.getRefuseSeconds(TestUtils.createLease("O_1", 4.0, 4096.0), requests), is(equalTo(1.0)));
+        assertThat(declinePolicy.getRefuseSeconds(TestUtils.createLease("O_1", 1.0, 1024.0), requests), is(equalTo(1.0)));
+        assertThat(declinePolicy.getRefuseSeconds(TestUtils.createLease("O_1", 1.0, 1024.0), requests), is(equalTo(2.0)));
+        for (int i = 0; i < 10; i++) {
+            declinePolicy.getRefuseSeconds(TestUtils.createLease("O_1", 1.0, 1024.0), requests);
+        }
+        assertThat(declinePolicy.getRefuseSeconds(TestUtils.createLease("O_1", 1.0, 1024.0), requests), is(equalTo(30.0)));
+    }
+
+    @Test
+    public void expectThatRequestsForOtherAttributesAreIgnored() {
+        AdaptiveDeclinePolicy declinePolicy = new AdaptiveDeclinePolicy(0.8, 1.0, 30.0, 300.0);
+        List<Request> requests = Collections.singletonList(TestUtils.createSharedResourcesFirstRequest(2.0, 2048.0, TestUtils.SHARED_ROLE));
+
+        // enough resources, but without the attribute requested by the slave info
+        Protos.Offer offer = TestUtils.createOffer("O_1",
+                TestUtils.createScalarResource("cpus", 4.0, TestUtils.SHARED_ROLE),
+                TestUtils.createScalarResource("mem", 4096.0, TestUtils.SHARED_ROLE)).toBuilder()
+                .clearAttributes()
+                .build();
+
+        assertThat(declinePolicy.getRefuseSeconds(TestUtils.createLease(offer), requests), is(equalTo(30.0)));
+        assertThat(declinePolicy.getRefuseSeconds(TestUtils.createLease(offer), requests), is(equalTo(60.0)));
+    }
+}
@@ -0,0 +1,78 @@
+package org.jenkinsci.plugins.mesos.scheduling.fitness;
+
+import org.jenkinsci.plugins.mesos.TestUtils;
+import org.jenkinsci.plugins.mesos.scheduling.Lease;
+import org.jenkinsci.plugins.mesos.scheduling.Request;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class CompiledFitnessRaterTest {
+
+    private static final String ROLE = "jenkins";
+
+    private final List<Lease> leases = Arrays.asList(
+            TestUtils.createLease("O_1", 4.0, 4096.0),
+            TestUtils.createLease("O_2",
+                    TestUtils.createScalarResource("cpus", 1.0, TestUtils.SHARED_ROLE),
+                    TestUtils.createScalarResource("cpus", 2.0, ROLE),
+                    TestUtils.createScalarResource("mem", 1024.0, TestUtils.SHARED_ROLE),
+                    TestUtils.createScalarResource("mem", 2048.0, ROLE)),
+            // the host of the last build of the requests
+            TestUtils.createLease(TestUtils.createOffer("O_3",
+                    TestUtils.createScalarResource("cpus", 2.0, TestUtils.SHARED_ROLE),
+                    TestUtils.createScalarResource("mem", 2048.0, TestUtils.SHARED_ROLE))
+                    .toBuilder().setHostname("dummy.host-na.me").build()));
+
+    private final List<Request> requests = Arrays.asList(
+            TestUtils.createSharedResourcesFirstRequest(1.0, 1024.0, ROLE),
+            TestUtils.createRoleResourcesFirstRequest(2.0, 1024.0, ROLE),
+            TestUtils.createRoleCappedRequest(1.0, 512.0, ROLE),
+            TestUtils.createSharedResourcesFirstRequest(3.0, 3072.0, ROLE),
+            TestUtils.createSharedResourcesFirstRequest(8.0, 1024.0, ROLE));
+
+    @Test
+    public void expectThatCompiledRatersRateLikeTheBuiltInRaters() {
+        for (String name : FitnessRaters.getNames()) {
+            expectSameRatings(FitnessRaters.resolve(name));
+        }
+    }
+
+    @Test
+    public void expectThatCompiledCompositesRateTheWeightedAverage() {
+        expectSameRatings(FitnessRaters.resolve("CPU_MEM_PACKING:0.7, NODE_AFFINE_CPU_MEM_SPREAD:0.3"));
+        expectSameRatings(FitnessRaters.resolve("PREFERRED_ROLE_SHARE:1, DECAYED_AFFINE_CPU_MEM_PACKING:2"));
+    }
+
+    @Test
+    public void expectThatOtherRatersAreNotCompiled() {
+        FitnessRater rater = RolePreferringRaters.preferringRole(PackingFitnessRaters.CPU_MEM_PACKING);
+
+        assertThat(FitnessRaters.compile(rater), is(sameInstance(rater)));
+    }
+
+    @Test
+    public void expectThatCompiledRatersAreCached() {
+        FitnessRater compiledRater = FitnessRaters.compile(SpreadingFitnessRaters.CPU_MEM_SPREAD);
+
+        assertThat(compiledRater, is(instanceOf(CompiledFitnessRater.class)));
+        assertThat(compiledRater.toString(), is("CPU_MEM_SPREAD"));
+        assertThat(FitnessRaters.compile(SpreadingFitnessRaters.CPU_MEM_SPREAD), is(sameInstance(compiledRater)));
+    }
+
+    private void expectSameRatings(FitnessRater rater) {
+        FitnessRater compiledRater = FitnessRaters.compile(rater);
+        assertThat(compiledRater, is(not(sameInstance(rater))));
+
+        for (Request request : requests) {
+            for (Lease lease : leases) {
+                assertThat(rater + " of " + request.getRequest().getSlave() + " on " + lease.getHostname(),
+                        compiledRater.rateFitness(request, lease), is(closeTo(rater.rateFitness(request, lease), 0.0001)));
+            }
+        }
+    }
+}
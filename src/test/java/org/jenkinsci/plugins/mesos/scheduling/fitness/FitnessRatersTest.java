@@ -0,0 +1,59 @@
+package org.jenkinsci.plugins.mesos.scheduling.fitness;
+
+import org.jenkinsci.plugins.mesos.TestUtils;
+import org.jenkinsci.plugins.mesos.scheduling.Lease;
+import org.jenkinsci.plugins.mesos.scheduling.Request;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class FitnessRatersTest {
+
+    private final Lease lease = TestUtils.createLease("O_1",
+            TestUtils.createScalarResource("cpus", 4.0, TestUtils.SHARED_ROLE),
+            TestUtils.createScalarResource("mem", 4096.0, TestUtils.SHARED_ROLE));
+
+    @Test
+    public void expectThatNamesResolveToTheBuiltInRaters() {
+        assertThat(FitnessRaters.resolve("CPU_MEM_PACKING"), is(sameInstance(PackingFitnessRaters.CPU_MEM_PACKING)));
+        assertThat(FitnessRaters.resolve(" NODE_AFFINE_CPU_MEM_SPREAD "), is(sameInstance(NodeAffineRaters.NODE_AFFINE_CPU_MEM_SPREAD)));
+        assertThat(FitnessRaters.getNames(), hasItem("ROLE_PREFERRING_NODE_AFFINE_CPU_MEM_SPREAD"));
+    }
+
+    @Test
+    public void expectThatCompositesRateTheWeightedAverage() {
+        FitnessRater rater = FitnessRaters.resolve("CPU_MEM_PACKING:3, CPU_MEM_SPREAD:1");
+        Request request = TestUtils.createSharedResourcesFirstRequest(1.0, 1024.0, TestUtils.SHARED_ROLE);
+
+        // packing 0.25, spread 0.75
+        assertThat(rater.rateFitness(request, lease), is(closeTo((3 * 0.25 + 0.75) / 4, 0.0001)));
+        assertThat(FitnessRaters.resolve("CPU_MEM_PACKING:3,CPU_MEM_SPREAD:1"), is(sameInstance(rater)));
+    }
+
+    @Test
+    public void expectThatCompositesAreNotFitIfOneRaterIsNotFit() {
+        FitnessRater rater = FitnessRaters.resolve("CPU_MEM_PACKING:0.5, CPU_MEM_SPREAD:0.5");
+        Request request = TestUtils.createSharedResourcesFirstRequest(8.0, 1024.0, TestUtils.SHARED_ROLE);
+
+        assertThat(rater.rateFitness(request, lease), is(FitnessRater.NOT_FIT));
+    }
+
+    @Test
+    public void expectThatOnlyDecayedRatersUseBuildHostWeights() {
+        assertThat(FitnessRaters.usesBuildHostWeights(FitnessRaters.resolve("DECAYED_AFFINE_CPU_MEM_SPREAD")), is(true));
+        assertThat(FitnessRaters.usesBuildHostWeights(FitnessRaters.resolve("CPU_MEM_PACKING, DECAYED_AFFINE_CPU_MEM_PACKING:0.5")), is(true));
+        assertThat(FitnessRaters.usesBuildHostWeights(FitnessRaters.resolve("NODE_AFFINE_CPU_MEM_SPREAD")), is(false));
+        assertThat(FitnessRaters.usesBuildHostWeights(FitnessRaters.resolve("CPU_MEM_PACKING:3, CPU_MEM_SPREAD:1")), is(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void expectThatUnknownRatersAreRejected() {
+        FitnessRaters.resolve("CPU_MEM_PACKING, UNKNOWN_RATER");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void expectThatInvalidWeightsAreRejected() {
+        FitnessRaters.resolve("CPU_MEM_PACKING:-1");
+    }
+}
@@ -0,0 +1,70 @@
+package org.jenkinsci.plugins.mesos.scheduling.fitness;
+
+import org.jenkinsci.plugins.mesos.TestUtils;
+import org.jenkinsci.plugins.mesos.scheduling.Lease;
+import org.jenkinsci.plugins.mesos.scheduling.Request;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class NodeAffineRatersTest {
+
+    private final Lease recentLease = TestUtils.createLease("O_1", 4.0, 4096.0);
+    private final Lease olderLease = TestUtils.createLease("O_2", 4.0, 4096.0);
+    private final Lease otherLease = TestUtils.createLease("O_3", 4.0, 4096.0);
+
+    @Test
+    public void expectThatRecentAndFrequentHostsWeighMore() {
+        Map<String, Double> weights = NodeAffineRaters.weighBuildHosts(Arrays.asList("a", "b", "a", "c", null), 0.5);
+
+        // a: 1 + 0.25, b: 0.5, c: 0.125
+        assertThat(weights.get("a"), is(closeTo(1.0, 0.0001)));
+        assertThat(weights.get("b"), is(closeTo(0.5 / 1.25, 0.0001)));
+        assertThat(weights.get("c"), is(closeTo(0.125 / 1.25, 0.0001)));
+        assertThat(NodeAffineRaters.weighBuildHosts(Collections.emptyList(), 0.5).isEmpty(), is(true));
+    }
+
+    @Test
+    public void expectThatHostsOfRecentBuildsArePreferred() {
+        Request request = TestUtils.createSharedResourcesFirstRequest(1.0, 1024.0, TestUtils.SHARED_ROLE);
+        request.getRequest().getSlave().setBuildHostWeights(NodeAffineRaters.weighBuildHosts(
+                Arrays.asList(recentLease.getHostname(), olderLease.getHostname()), 0.5));
+
+        FitnessRater rater = NodeAffineRaters.DECAYED_AFFINE_CPU_MEM_SPREAD;
+        double recentFitness = rater.rateFitness(request, recentLease);
+        double olderFitness = rater.rateFitness(request, olderLease);
+        double otherFitness = rater.rateFitness(request, otherLease);
+
+        // the heaviest host gets the full bonus, but is not pinned
+        double spreadFitness = SpreadingFitnessRaters.CPU_MEM_SPREAD.rateFitness(request, recentLease);
+        assertThat(recentFitness, is(closeTo(spreadFitness + NodeAffineRaters.AFFINITY_BONUS, 0.0001)));
+        assertThat(recentFitness, is(lessThan(FitnessRater.FITTEST)));
+        assertThat(olderFitness, is(greaterThan(otherFitness)));
+        assertThat(otherFitness, is(closeTo(SpreadingFitnessRaters.CPU_MEM_SPREAD.rateFitness(request, otherLease), 0.0001)));
+    }
+
+    @Test
+    public void expectThatLoadedHostsOfRecentBuildsLoseToIdleHosts() {
+        Request request = TestUtils.createSharedResourcesFirstRequest(1.0, 1024.0, TestUtils.SHARED_ROLE);
+        Lease loadedLease = TestUtils.createLease("O_4", 1.25, 1280.0);
+        request.getRequest().getSlave().setBuildHostWeights(NodeAffineRaters.weighBuildHosts(
+                Arrays.asList(loadedLease.getHostname(), loadedLease.getHostname()), 0.5));
+
+        FitnessRater rater = NodeAffineRaters.DECAYED_AFFINE_CPU_MEM_SPREAD;
+
+        assertThat(rater.rateFitness(request, loadedLease), is(lessThan(rater.rateFitness(request, otherLease))));
+    }
+
+    @Test
+    public void expectThatHostsOfRecentBuildsWithoutCapacityAreNotFit() {
+        Request request = TestUtils.createSharedResourcesFirstRequest(8.0, 1024.0, TestUtils.SHARED_ROLE);
+        request.getRequest().getSlave().setBuildHostWeights(Collections.singletonMap(recentLease.getHostname(), 1.0));
+
+        assertThat(NodeAffineRaters.DECAYED_AFFINE_CPU_MEM_SPREAD.rateFitness(request, recentLease), is(FitnessRater.NOT_FIT));
+    }
+}
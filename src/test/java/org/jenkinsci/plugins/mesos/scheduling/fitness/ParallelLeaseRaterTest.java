@@ -0,0 +1,60 @@
+package org.jenkinsci.plugins.mesos.scheduling.fitness;
+
+import org.jenkinsci.plugins.mesos.TestUtils;
+import org.jenkinsci.plugins.mesos.scheduling.Lease;
+import org.jenkinsci.plugins.mesos.scheduling.Request;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ParallelLeaseRaterTest {
+
+    private final ParallelLeaseRater parallelLeaseRater = new ParallelLeaseRater("test scoring", 4);
+
+    @After
+    public void tearDown() {
+        parallelLeaseRater.shutdown();
+    }
+
+    private final List<Lease> leases = createLeases(10 * ParallelLeaseRater.MIN_CHUNK_SIZE);
+    private final Request request = TestUtils.createSharedResourcesFirstRequest(2.0, 1024.0, TestUtils.SHARED_ROLE);
+    private final FitnessRater rater = SpreadingFitnessRaters.CPU_MEM_SPREAD;
+
+    @Test
+    public void expectThatRatingsAreTheSameAsSequentialRatings() {
+        double[] ratings = parallelLeaseRater.rate(rater, request, leases);
+
+        assertSequentialRatings(ratings);
+    }
+
+    @Test
+    public void expectThatLeasesAreRatedSequentiallyAfterShutdown() {
+        parallelLeaseRater.rate(rater, request, leases);
+        parallelLeaseRater.shutdown();
+
+        double[] ratings = parallelLeaseRater.rate(rater, request, leases);
+
+        assertThat(parallelLeaseRater.isShutdown(), is(true));
+        assertSequentialRatings(ratings);
+    }
+
+    private void assertSequentialRatings(double[] ratings) {
+        assertThat(ratings.length, is(leases.size()));
+        for (int i = 0; i < ratings.length; i++) {
+            assertThat(ratings[i], is(rater.rateFitness(request, leases.get(i))));
+        }
+    }
+
+    private static List<Lease> createLeases(int numberOfLeases) {
+        List<Lease> leases = new ArrayList<>();
+        for (int i = 0; i < numberOfLeases; i++) {
+            leases.add(TestUtils.createLease("O_" + i, 1.0 + i % 7, 1024.0 + 128.0 * (i % 5)));
+        }
+        return leases;
+    }
+}
@@ -0,0 +1,47 @@
+package org.jenkinsci.plugins.mesos.scheduling.fitness;
+
+import org.jenkinsci.plugins.mesos.TestUtils;
+import org.jenkinsci.plugins.mesos.scheduling.Lease;
+import org.jenkinsci.plugins.mesos.scheduling.Request;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class RolePreferringRatersTest {
+
+    private static final String ROLE = "testRole";
+
+    private final Lease sharedLease = TestUtils.createLease("O_1",
+            TestUtils.createScalarResource("cpus", 2.0, TestUtils.SHARED_ROLE),
+            TestUtils.createScalarResource("mem",  4.0, TestUtils.SHARED_ROLE));
+
+    private final Lease reservedLease = TestUtils.createLease("O_2",
+            TestUtils.createScalarResource("cpus", 2.0, ROLE),
+            TestUtils.createScalarResource("mem",  4.0, ROLE));
+
+    private final FitnessRater rater = RolePreferringRaters.preferringRole(BasicFitnessRaters.ASSIGNABLE);
+
+    @Test
+    public void expectThatRoleResourcesFirstPrefersReservedResources() {
+        Request request = TestUtils.createRoleResourcesFirstRequest(1.0, 2.0, ROLE);
+
+        assertThat(rater.rateFitness(request, reservedLease), is(greaterThan(rater.rateFitness(request, sharedLease))));
+    }
+
+    @Test
+    public void expectThatSharedResourcesFirstPrefersSharedResources() {
+        Request request = TestUtils.createSharedResourcesFirstRequest(1.0, 2.0, ROLE);
+
+        assertThat(rater.rateFitness(request, sharedLease), is(greaterThan(rater.rateFitness(request, reservedLease))));
+    }
+
+    @Test
+    public void expectThatRoleCappedDoesNotFitSharedResources() {
+        Request request = TestUtils.createRoleCappedRequest(1.0, 2.0, ROLE);
+
+        assertThat(request.getRequest().getSlave().getRoles(), contains(ROLE));
+        assertThat(rater.rateFitness(request, sharedLease), is(equalTo(FitnessRater.NOT_FIT)));
+        assertThat(rater.rateFitness(request, reservedLease), is(closeTo(FitnessRater.FITTEST, 0.0001)));
+    }
+}